@@ -0,0 +1,75 @@
+#!/usr/bin/env bash
+# 生成 AppCDS 归档（Class Data Sharing）
+#
+# 用法: scripts/cds-train.sh <app.jar> <输出目录>
+#
+# 1. 把 Spring Boot fat jar 展开为普通 classpath（CDS 只能归档内置类加载器从 jar 文件加载的类，
+#    不支持 fat jar 的嵌套 jar，也不支持非空目录）：应用类打成 app-classes.jar，依赖放在 lib/
+# 2. 生成 java 参数文件 app.args（-cp 和 main class），训练运行和正式运行必须使用完全相同的 classpath
+# 3. 以 faststart profile 启动一次训练运行，请求几个主要页面让相关类被加载，然后正常退出，
+#    JVM 退出时通过 -XX:ArchiveClassesAtExit 写出 app.jsa
+#
+# 运行: java -XX:SharedArchiveFile=<输出目录>/app.jsa @<输出目录>/app.args
+# 必须使用生成归档的同一个 JDK，否则 JVM 会忽略归档（-Xshare:auto）
+set -euo pipefail
+
+JAR="${1:?usage: cds-train.sh <app.jar> <output-dir>}"
+OUT="${2:?usage: cds-train.sh <app.jar> <output-dir>}"
+PORT="${CDS_TRAIN_PORT:-8091}"
+MAIN_CLASS="com.salesforce.integration.SalesforceJavaIntegrationApplication"
+
+JAR="$(cd "$(dirname "$JAR")" && pwd)/$(basename "$JAR")"
+rm -rf "$OUT"
+mkdir -p "$OUT/exploded" "$OUT/lib"
+OUT="$(cd "$OUT" && pwd)"
+
+(cd "$OUT/exploded" && jar xf "$JAR")
+jar cf "$OUT/app-classes.jar" -C "$OUT/exploded/BOOT-INF/classes" .
+cp "$OUT"/exploded/BOOT-INF/lib/*.jar "$OUT/lib/"
+rm -rf "$OUT/exploded"
+
+# classpath 顺序固定（按文件名排序），保证训练和运行时一致
+CLASSPATH="$OUT/app-classes.jar"
+for lib in $(ls "$OUT/lib" | sort); do
+    CLASSPATH="$CLASSPATH:$OUT/lib/$lib"
+done
+printf -- '-cp %s\n%s\n' "$CLASSPATH" "$MAIN_CLASS" > "$OUT/app.args"
+
+echo "Training run on port $PORT ..."
+# application.yml 中的凭证占位符必须能解析，构建环境没有真实凭证时使用占位值
+SF_CLIENT_ID="${SF_CLIENT_ID:-cds-training}" \
+SF_CLIENT_SECRET="${SF_CLIENT_SECRET:-cds-training}" \
+SF_USERNAME="${SF_USERNAME:-cds-training}" \
+SF_PASSWORD="${SF_PASSWORD:-cds-training}" \
+java -XX:ArchiveClassesAtExit="$OUT/app.jsa" \
+     -Dspring.profiles.active=faststart \
+     -Dserver.port="$PORT" \
+     -Dsalesforce.sync.enabled=false \
+     -Dsalesforce.replica.enabled=false \
+     @"$OUT/app.args" > "$OUT/training.log" 2>&1 &
+APP_PID=$!
+
+for _ in $(seq 1 120); do
+    if curl -sf "http://localhost:$PORT/api/health" > /dev/null; then
+        break
+    fi
+    if ! kill -0 "$APP_PID" 2> /dev/null; then
+        echo "Training run exited early, see $OUT/training.log" >&2
+        exit 1
+    fi
+    sleep 0.5
+done
+
+# 覆盖主要请求路径，使这些类进入归档
+for path in /api/health /api/test "/embed?recordId=001xx000003DGb2AAG" "/form?recordId=001xx000003DGb2AAG" /diag/status; do
+    curl -s -o /dev/null "http://localhost:$PORT$path" || true
+done
+
+kill -TERM "$APP_PID"
+wait "$APP_PID" || true
+
+if [ ! -s "$OUT/app.jsa" ]; then
+    echo "CDS archive was not created, see $OUT/training.log" >&2
+    exit 1
+fi
+echo "Created $OUT/app.jsa ($(du -h "$OUT/app.jsa" | cut -f1))"
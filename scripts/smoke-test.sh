@@ -0,0 +1,79 @@
+#!/usr/bin/env bash
+# 冒烟测试：启动应用，检查主要接口，并输出启动时间和内存占用（RSS）
+#
+# 用法: scripts/smoke-test.sh <启动命令...>
+#   原生可执行文件: scripts/smoke-test.sh target/salesforce-java-app
+#   JVM 对比:       scripts/smoke-test.sh java -jar target/salesforce-java-app-1.0.0.jar
+#
+# 端口通过 SERVER_PORT 传给应用（默认 8093）；关闭增量同步和本地副本以避免后台网络请求。
+# 任一检查失败时退出码非 0。
+set -uo pipefail
+
+if [ $# -eq 0 ]; then
+    echo "usage: smoke-test.sh <command...>" >&2
+    exit 2
+fi
+
+PORT="${SMOKE_PORT:-8093}"
+BASE="http://localhost:$PORT"
+LOG="$(mktemp)"
+FAILURES=0
+
+export SERVER_PORT="$PORT"
+export SF_SYNC_ENABLED=false
+export SF_REPLICA_ENABLED=false
+export SF_CLIENT_ID="${SF_CLIENT_ID:-smoke-test}"
+export SF_CLIENT_SECRET="${SF_CLIENT_SECRET:-smoke-test}"
+export SF_USERNAME="${SF_USERNAME:-smoke-test}"
+export SF_PASSWORD="${SF_PASSWORD:-smoke-test}"
+
+start=$(date +%s%3N)
+"$@" > "$LOG" 2>&1 &
+PID=$!
+trap 'kill -TERM $PID 2> /dev/null; wait $PID 2> /dev/null' EXIT
+
+until curl -sf "$BASE/api/health" > /dev/null; do
+    if ! kill -0 "$PID" 2> /dev/null; then
+        echo "FAIL application exited during startup, log: $LOG" >&2
+        exit 1
+    fi
+    sleep 0.01
+done
+startup_ms=$(( $(date +%s%3N) - start ))
+
+# check <描述> <路径> <期望状态码> [响应中必须包含的文本]
+check() {
+    local name="$1" path="$2" expected="$3" contains="${4:-}"
+    local body status
+    body="$(mktemp)"
+    status=$(curl -s -o "$body" -w '%{http_code}' "$BASE$path")
+    if [ "$status" != "$expected" ]; then
+        echo "FAIL $name: HTTP $status (expected $expected)"
+        FAILURES=$((FAILURES + 1))
+    elif [ -n "$contains" ] && ! grep -q "$contains" "$body"; then
+        echo "FAIL $name: response does not contain '$contains'"
+        FAILURES=$((FAILURES + 1))
+    else
+        echo "ok   $name"
+    fi
+    rm -f "$body"
+}
+
+check "health (JSON)"          /api/health 200 '"status":"UP"'
+check "api test"               /api/test 200
+check "embed page (Thymeleaf)" "/embed?recordId=001xx000003DGb2AAG" 200 'id="accountId"'
+check "form page (Thymeleaf)"  "/form?recordId=001xx000003DGb2AAG" 200 'name="sfRecordId"'
+check "static resource"        /test.html 200
+check "diagnostics"            /diag/status 200 '"service":"DiagnosticController"'
+check "security (protected)"   /not-permitted 403
+
+rss_kb=$(awk '/VmRSS/ {print $2}' /proc/$PID/status)
+peak_kb=$(awk '/VmHWM/ {print $2}' /proc/$PID/status)
+echo "startup to first /api/health: ${startup_ms} ms"
+echo "RSS: $((rss_kb / 1024)) MB (peak $((peak_kb / 1024)) MB)"
+
+if [ "$FAILURES" -gt 0 ]; then
+    echo "$FAILURES check(s) failed, log: $LOG"
+    exit 1
+fi
+rm -f "$LOG"
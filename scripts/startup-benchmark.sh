@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+# 启动时间基准：从启动 JVM 到 /api/health 首次返回 200 的时间
+#
+# 用法: scripts/startup-benchmark.sh <app.jar> [运行次数] [CDS 目录]
+#
+# 依次测量三种方式，每种运行 N 次（默认 5）并输出每次耗时和中位数：
+#   default    java -jar app.jar
+#   faststart  java -jar app.jar --spring.profiles.active=faststart
+#   cds        faststart + AppCDS 归档（需要先运行 scripts/cds-train.sh 生成 CDS 目录）
+# 测量时关闭增量同步和本地副本，避免后台任务的网络请求影响结果
+set -euo pipefail
+
+JAR="${1:?usage: startup-benchmark.sh <app.jar> [runs] [cds-dir]}"
+RUNS="${2:-5}"
+CDS_DIR="${3:-}"
+PORT="${BENCH_PORT:-8092}"
+COMMON_OPTS="-Dserver.port=$PORT -Dsalesforce.sync.enabled=false -Dsalesforce.replica.enabled=false"
+
+now_ms() {
+    date +%s%3N
+}
+
+measure() {
+    local start pid elapsed
+    start=$(now_ms)
+    # shellcheck disable=SC2086
+    java $COMMON_OPTS "$@" > /dev/null 2>&1 &
+    pid=$!
+    until curl -sf "http://localhost:$PORT/api/health" > /dev/null; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "startup failed" >&2
+            return 1
+        fi
+        sleep 0.02
+    done
+    elapsed=$(( $(now_ms) - start ))
+    kill -TERM "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo "$elapsed"
+}
+
+run_mode() {
+    local name="$1"
+    shift
+    local results=()
+    for _ in $(seq 1 "$RUNS"); do
+        results+=("$(measure "$@")")
+    done
+    local median
+    median=$(printf '%s\n' "${results[@]}" | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+    printf '%-10s median %6s ms   runs: %s\n' "$name" "$median" "${results[*]}"
+}
+
+echo "Time to first /api/health ($RUNS runs each, $(java -version 2>&1 | head -1))"
+run_mode default -jar "$JAR"
+run_mode faststart -Dspring.profiles.active=faststart -jar "$JAR"
+if [ -n "$CDS_DIR" ]; then
+    run_mode cds -XX:SharedArchiveFile="$CDS_DIR/app.jsa" -Dspring.profiles.active=faststart @"$CDS_DIR/app.args"
+fi
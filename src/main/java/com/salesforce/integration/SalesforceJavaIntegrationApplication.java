@@ -2,8 +2,11 @@ package com.salesforce.integration;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// 只扫描本应用的包；com.example.sfdc 是独立的示例应用，不加载它的控制器
+@SpringBootApplication(scanBasePackages = "com.salesforce.integration")
+@EnableScheduling
 public class SalesforceJavaIntegrationApplication {
     public static void main(String[] args) {
         SpringApplication.run(SalesforceJavaIntegrationApplication.class, args);
@@ -0,0 +1,91 @@
+package com.salesforce.integration.config;
+
+import com.salesforce.integration.service.AdaptiveConcurrencyLimiter;
+import com.salesforce.integration.service.AdaptiveConcurrencyLimiter.Priority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 入站请求准入控制：按路径划分优先级，超过 AdaptiveConcurrencyLimiter 给该优先级的并发份额时
+ * 立即返回 503 和 Retry-After，不排队。
+ * 用户页面（/、/embed、/form）和存储节点接口为 critical，诊断、调试和测试接口为 low，其余 API 为 normal；
+ * 健康检查和 /diag/admission 不受限制。在 TenantFilter 之后执行，看到的是去掉 /org/{id} 前缀后的路径。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 12)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String[] LOW_PRIORITY_PREFIXES = {
+            "/diag/", "/debug/", "/api/debug/", "/api/test-query/", "/api/simple-auth/", "/test-auth/", "/admin/"};
+    private static final String[] LOW_PRIORITY_PATHS = {"/api/test", "/api/auth/test", "/test.html"};
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final boolean enabled;
+    private final String retryAfterSeconds;
+
+    public AdmissionControlFilter(AdaptiveConcurrencyLimiter limiter,
+                                  @Value("${salesforce.admission.enabled:true}") boolean enabled,
+                                  @Value("${salesforce.admission.retry-after-seconds:2}") int retryAfterSeconds) {
+        this.limiter = limiter;
+        this.enabled = enabled;
+        this.retryAfterSeconds = Integer.toString(retryAfterSeconds);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!enabled || path.equals("/api/health") || path.equals("/diag/admission")) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.tryAcquire(classify(path))) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Server busy, retry later\"}");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // 异步请求（SSE）此时只完成了订阅，批量导出/导入的耗时取决于数据量，都不代表负载
+            boolean sample = !request.isAsyncStarted() && !path.startsWith("/admin/form-data/");
+            limiter.release((System.nanoTime() - start) / 1_000_000, sample);
+        }
+    }
+
+    static Priority classify(String path) {
+        if (path.equals("/form/search")) {
+            // 运维搜索，不是用户页面
+            return Priority.NORMAL;
+        }
+        if (path.equals("/") || path.equals("/embed") || path.equals("/form") || path.startsWith("/form/")
+                || path.startsWith("/internal/storage")) {
+            return Priority.CRITICAL;
+        }
+        for (String prefix : LOW_PRIORITY_PREFIXES) {
+            if (path.startsWith(prefix)) {
+                return Priority.LOW;
+            }
+        }
+        for (String lowPath : LOW_PRIORITY_PATHS) {
+            if (path.equals(lowPath)) {
+                return Priority.LOW;
+            }
+        }
+        return Priority.NORMAL;
+    }
+}
@@ -0,0 +1,29 @@
+package com.salesforce.integration.config;
+
+import com.salesforce.integration.service.AccountReplicaService;
+import com.salesforce.integration.service.DeltaSyncService;
+import com.salesforce.integration.service.FormSearchIndex;
+import com.salesforce.integration.service.FormSyncOutbox;
+import com.salesforce.integration.service.RecordEventHub;
+import com.salesforce.integration.service.StartupWarmupService;
+import com.salesforce.integration.service.TaskQueueService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 快速启动（faststart profile）相关配置
+ * 开启延迟初始化后，带 @Scheduled 任务或监听启动事件的 Bean 不能延迟创建，否则任务不会被注册；
+ * LoggingConfig 在构造时设置载荷日志参数，也需要立即创建
+ */
+@Configuration
+public class FastStartConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                DeltaSyncService.class, AccountReplicaService.class, StartupWarmupService.class,
+                TaskQueueService.class, FormSyncOutbox.class, RecordEventHub.class, FormSearchIndex.class,
+                LoggingConfig.class);
+    }
+}
@@ -0,0 +1,17 @@
+package com.salesforce.integration.config;
+
+import com.salesforce.integration.service.PayloadLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 载荷日志的采样比例和截断长度；日志输出本身的异步队列见 logback-spring.xml
+ */
+@Configuration
+public class LoggingConfig {
+
+    public LoggingConfig(@Value("${logging.payload.sample-rate:0.01}") double sampleRate,
+                         @Value("${logging.payload.max-length:512}") int maxLength) {
+        PayloadLog.configure(sampleRate, maxLength);
+    }
+}
@@ -0,0 +1,118 @@
+package com.salesforce.integration.config;
+
+import com.salesforce.integration.service.RequestTiming;
+import com.salesforce.integration.service.SlowRequestLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * 请求耗时记录：为每个请求创建 RequestTiming，在响应开始写出前加上 Server-Timing 响应头，
+ * 请求结束后把超过阈值的请求写入 SlowRequestLog。在 TenantFilter 之前执行，总耗时包含租户解析。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final SlowRequestLog slowRequestLog;
+    private final boolean enabled;
+    private final boolean serverTimingHeader;
+
+    public RequestTimingFilter(SlowRequestLog slowRequestLog,
+                               @Value("${salesforce.timing.enabled:true}") boolean enabled,
+                               @Value("${salesforce.timing.server-timing-header:true}") boolean serverTimingHeader) {
+        this.slowRequestLog = slowRequestLog;
+        this.enabled = enabled;
+        this.serverTimingHeader = serverTimingHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+        RequestTiming timing = RequestTiming.start();
+        TimingResponse timingResponse = new TimingResponse(response, timing);
+        try {
+            chain.doFilter(request, serverTimingHeader ? timingResponse : response);
+        } finally {
+            // 没有响应体的响应（如 304）不会触发写出，在这里补上
+            timingResponse.addServerTiming();
+            slowRequestLog.record(request.getMethod(), request.getRequestURI(), response.getStatus(),
+                    (String) request.getAttribute(TenantFilter.TENANT_ATTRIBUTE), timing);
+            RequestTiming.clear();
+        }
+    }
+
+    /**
+     * 在响应提交（开始写响应体、发送错误或重定向）之前加上 Server-Timing 响应头
+     */
+    private class TimingResponse extends HttpServletResponseWrapper {
+        private final RequestTiming timing;
+        private boolean headerAdded;
+
+        TimingResponse(HttpServletResponse response, RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        void addServerTiming() {
+            if (!serverTimingHeader || headerAdded || isCommitted()) {
+                return;
+            }
+            headerAdded = true;
+            setHeader(SERVER_TIMING_HEADER, timing.toServerTimingHeader());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+}
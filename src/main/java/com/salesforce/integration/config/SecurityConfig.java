@@ -22,8 +22,8 @@ public class SecurityConfig {
             .cors().and()
             .csrf().disable()
             .authorizeRequests()
-                .antMatchers("/", "/embed", "/form", "/api/**", "/health", "/test.html", 
-                           "/diag/**", "/debug/**", "/test-auth/**").permitAll()
+                .antMatchers("/", "/embed", "/form", "/form/search", "/api/**", "/health", "/test.html", 
+                           "/diag/**", "/debug/**", "/test-auth/**", "/internal/storage/**", "/admin/**").permitAll()
                 .anyRequest().authenticated()
             .and()
             .headers()
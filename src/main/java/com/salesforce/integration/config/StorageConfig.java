@@ -0,0 +1,70 @@
+package com.salesforce.integration.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.service.FormDataStore;
+import com.salesforce.integration.service.LocalFileFormDataStore;
+import com.salesforce.integration.service.LocalFileTokenStore;
+import com.salesforce.integration.service.RemoteFormDataStore;
+import com.salesforce.integration.service.RemoteTokenStore;
+import com.salesforce.integration.service.TokenStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 表单数据存储后端选择
+ * local：写入本机目录（单实例或挂载了共享卷时使用）；
+ * remote：所有副本通过 HTTP 读写同一个存储节点，可以水平扩展 /form 而不需要粘性会话。
+ * 共享令牌存储同样支持 local / remote，remote 与表单存储使用同一个存储节点。
+ */
+@Configuration
+public class StorageConfig {
+    private static final Logger logger = LoggerFactory.getLogger(StorageConfig.class);
+
+    @Bean
+    public FormDataStore formDataStore(
+            ObjectMapper objectMapper,
+            @Value("${salesforce.storage.type:local}") String type,
+            @Value("${salesforce.storage.local-dir:${java.io.tmpdir}/salesforce-form-data}") String localDir,
+            @Value("${salesforce.storage.remote-url:}") String remoteUrl,
+            @Value("${salesforce.storage.shared-token:}") String sharedToken,
+            @Value("${salesforce.storage.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${salesforce.storage.read-timeout-ms:5000}") int readTimeoutMs,
+            @Value("${salesforce.storage.max-connections:20}") int maxConnections) throws Exception {
+        FormDataStore store;
+        if ("remote".equalsIgnoreCase(type)) {
+            if (remoteUrl.isEmpty()) {
+                throw new Exception("salesforce.storage.remote-url is required when salesforce.storage.type=remote");
+            }
+            store = new RemoteFormDataStore(remoteUrl, sharedToken, objectMapper,
+                    connectTimeoutMs, readTimeoutMs, maxConnections);
+        } else if ("local".equalsIgnoreCase(type)) {
+            store = new LocalFileFormDataStore(localDir);
+        } else {
+            throw new Exception("Unknown salesforce.storage.type: " + type);
+        }
+        logger.info("Form data storage backend: {}", store.describe());
+        return store;
+    }
+
+    @Bean
+    public TokenStore tokenStore(
+            @Value("${salesforce.token-store.type:local}") String type,
+            @Value("${salesforce.token-store.local-dir:${java.io.tmpdir}/salesforce-token-store}") String localDir,
+            @Value("${salesforce.storage.remote-url:}") String remoteUrl,
+            @Value("${salesforce.storage.shared-token:}") String sharedToken,
+            @Value("${salesforce.storage.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${salesforce.storage.read-timeout-ms:5000}") int readTimeoutMs) throws Exception {
+        if ("remote".equalsIgnoreCase(type)) {
+            if (remoteUrl.isEmpty()) {
+                throw new Exception("salesforce.storage.remote-url is required when salesforce.token-store.type=remote");
+            }
+            return new RemoteTokenStore(remoteUrl, sharedToken, connectTimeoutMs, readTimeoutMs);
+        } else if ("local".equalsIgnoreCase(type)) {
+            return new LocalFileTokenStore(localDir);
+        }
+        throw new Exception("Unknown salesforce.token-store.type: " + type);
+    }
+}
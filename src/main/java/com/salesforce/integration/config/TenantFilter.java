@@ -0,0 +1,120 @@
+package com.salesforce.integration.config;
+
+import com.salesforce.integration.service.TenantContext;
+import com.salesforce.integration.service.TenantRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 解析请求所属的 Salesforce 组织（租户）
+ * 优先级：X-Salesforce-Org 请求头 &gt; 路径前缀 /org/{id}/... &gt; Origin &gt; Referer &gt; 默认租户。
+ * 路径前缀会在进入安全过滤器和 Spring MVC 之前去掉，因此 /org/acme/api/account/001... 与 /api/account/001... 走同一个接口。
+ * 在 Spring Security 之前执行。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TenantFilter extends OncePerRequestFilter {
+
+    public static final String TENANT_HEADER = "X-Salesforce-Org";
+    public static final String TENANT_ATTRIBUTE = "salesforceOrg";
+    private static final String PATH_PREFIX = "/org/";
+
+    private final TenantRegistry tenantRegistry;
+
+    public TenantFilter(TenantRegistry tenantRegistry) {
+        this.tenantRegistry = tenantRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        HttpServletRequest effectiveRequest = request;
+        String tenantId = request.getHeader(TENANT_HEADER);
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith(PATH_PREFIX)) {
+            int end = path.indexOf('/', PATH_PREFIX.length());
+            String pathTenant = end > 0 ? path.substring(PATH_PREFIX.length(), end) : path.substring(PATH_PREFIX.length());
+            if (tenantId == null) {
+                tenantId = pathTenant;
+            }
+            effectiveRequest = new PrefixStrippedRequest(request, end > 0 ? path.substring(end) : "/");
+        }
+
+        if (tenantId == null) {
+            tenantId = tenantRegistry.resolveByOrigin(request.getHeader("Origin"));
+        }
+        if (tenantId == null) {
+            tenantId = tenantRegistry.resolveByOrigin(request.getHeader("Referer"));
+        }
+        if (tenantId == null) {
+            tenantId = TenantContext.DEFAULT_TENANT;
+        }
+
+        if (tenantRegistry.find(tenantId) == null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Unknown Salesforce org\"}");
+            return;
+        }
+
+        TenantContext.set(tenantId);
+        effectiveRequest.setAttribute(TENANT_ATTRIBUTE, tenantId);
+        response.setHeader(TENANT_HEADER, tenantId);
+        try {
+            chain.doFilter(effectiveRequest, response);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    /**
+     * 去掉 /org/{id} 前缀后的请求
+     */
+    private static class PrefixStrippedRequest extends HttpServletRequestWrapper {
+        private final String requestUri;
+        private final String servletPath;
+
+        PrefixStrippedRequest(HttpServletRequest request, String strippedPath) {
+            super(request);
+            this.requestUri = request.getContextPath() + strippedPath;
+            this.servletPath = strippedPath;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return requestUri;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            StringBuffer url = new StringBuffer();
+            url.append(getScheme()).append("://").append(getServerName());
+            int port = getServerPort();
+            if (port > 0 && !(("http".equals(getScheme()) && port == 80) || ("https".equals(getScheme()) && port == 443))) {
+                url.append(':').append(port);
+            }
+            return url.append(requestUri);
+        }
+
+        @Override
+        public String getServletPath() {
+            return servletPath;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.salesforce.integration.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.service.FormDataTransferService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * 表单数据批量导出/导入接口
+ * 请求必须携带与 salesforce.admin.token 相同的 X-Admin-Token，未配置令牌时接口关闭。
+ */
+@RestController
+@RequestMapping("/admin/form-data")
+public class AdminController {
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    public static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final FormDataTransferService transferService;
+    private final ObjectMapper objectMapper;
+    private final byte[] adminToken;
+
+    public AdminController(FormDataTransferService transferService,
+                           ObjectMapper objectMapper,
+                           @Value("${salesforce.admin.token:}") String adminToken) {
+        this.transferService = transferService;
+        this.objectMapper = objectMapper;
+        this.adminToken = adminToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 导出全部已保存的表单数据，format 为 tar（默认）或 ndjson；边读边写，不在内存中组装
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = FormDataTransferService.TAR) String format,
+                       @RequestHeader(value = TOKEN_HEADER, required = false) String token,
+                       HttpServletResponse response) throws IOException {
+        ResponseEntity<?> rejected = reject(token, format);
+        if (rejected != null) {
+            response.setStatus(rejected.getStatusCodeValue());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), rejected.getBody());
+            return;
+        }
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        boolean tar = FormDataTransferService.TAR.equals(format);
+        response.setContentType(tar ? "application/x-tar" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"form-data-" + timestamp + (tar ? ".tar" : ".ndjson") + "\"");
+        try {
+            transferService.export(format, response.getOutputStream());
+        } catch (IOException e) {
+            // 响应已经开始输出，只能中断连接，客户端会看到不完整的归档
+            logger.warn("Form data export aborted: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 导入 tar 或 ndjson 格式的表单数据，同名记录被覆盖
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importData(@RequestParam(defaultValue = FormDataTransferService.TAR) String format,
+                                        @RequestHeader(value = TOKEN_HEADER, required = false) String token,
+                                        HttpServletRequest request) {
+        ResponseEntity<?> rejected = reject(token, format);
+        if (rejected != null) {
+            return rejected;
+        }
+        try {
+            return ResponseEntity.ok(transferService.importFrom(format, request.getInputStream()));
+        } catch (IOException e) {
+            logger.error("Form data import failed", e);
+            return ResponseEntity.status(500).body(Map.of("error", "Import failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 进行中和最近完成的导出/导入进度
+     */
+    @GetMapping("/transfers")
+    public ResponseEntity<?> transfers(@RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+        ResponseEntity<?> rejected = reject(token, FormDataTransferService.TAR);
+        if (rejected != null) {
+            return rejected;
+        }
+        return ResponseEntity.ok(transferService.getProgress());
+    }
+
+    private ResponseEntity<?> reject(String token, String format) {
+        if (adminToken.length == 0) {
+            return ResponseEntity.status(503).body(Map.of("error", "Admin endpoints are disabled"));
+        }
+        if (token == null || !MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(403).body(Map.of("error", "Invalid admin token"));
+        }
+        if (!FormDataTransferService.TAR.equals(format) && !FormDataTransferService.NDJSON.equals(format)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "format must be tar or ndjson"));
+        }
+        return null;
+    }
+}
@@ -1,18 +1,27 @@
 package com.salesforce.integration.controller;
 
+import com.salesforce.integration.service.AccountReplicaService;
+import com.salesforce.integration.service.DiagnosticProbeRunner;
+import com.salesforce.integration.service.EmbedHydrationService;
+import com.salesforce.integration.service.FileStorageService;
+import com.salesforce.integration.service.FormDataStore;
+import com.salesforce.integration.service.RecordEventHub;
 import com.salesforce.integration.service.SalesforceApiService;
 import com.salesforce.integration.service.SalesforceOAuthClient;
+import com.salesforce.integration.service.SoqlTemplate;
+import com.salesforce.integration.service.TaskQueueService;
+import com.salesforce.integration.model.AccountInfo;
+import com.salesforce.integration.model.SalesforceRecord;
 import com.salesforce.integration.model.TokenInfo;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -21,15 +30,44 @@ import java.util.stream.Collectors;
 public class ApiController {
     private static final Logger logger = LoggerFactory.getLogger(ApiController.class);
     
+    // 检查对象名时尝试的对象名变体
+    private static final Map<String, SoqlTemplate> OBJECT_NAME_PROBES = new LinkedHashMap<>();
+    static {
+        for (String objectName : new String[] {"ffscpq__Estimate__c", "ffscpq_Estimate_c", "Estimate__c", "ffscpq_Estimate"}) {
+            OBJECT_NAME_PROBES.put(objectName, SoqlTemplate.compile("SELECT Id FROM " + objectName + " WHERE Id = :id LIMIT 1"));
+        }
+    }
+    
+    // GET /api/forms 每页最多返回的记录数
+    private static final int MAX_FORMS_PAGE_SIZE = 500;
+    
     private final SalesforceApiService salesforceApiService;
     private final SalesforceOAuthClient oauthClient;
+    private final AccountReplicaService accountReplicaService;
+    private final EmbedHydrationService embedHydrationService;
+    private final TaskQueueService taskQueueService;
+    private final RecordEventHub recordEventHub;
+    private final DiagnosticProbeRunner probeRunner;
+    private final FileStorageService fileStorageService;
     
     @Value("${salesforce.oauth.api-version:v59.0}")
     private String apiVersion;
     
-    public ApiController(SalesforceApiService salesforceApiService, SalesforceOAuthClient oauthClient) {
+    public ApiController(SalesforceApiService salesforceApiService, SalesforceOAuthClient oauthClient,
+                         AccountReplicaService accountReplicaService,
+                         EmbedHydrationService embedHydrationService,
+                         TaskQueueService taskQueueService,
+                         RecordEventHub recordEventHub,
+                         DiagnosticProbeRunner probeRunner,
+                         FileStorageService fileStorageService) {
         this.salesforceApiService = salesforceApiService;
         this.oauthClient = oauthClient;
+        this.accountReplicaService = accountReplicaService;
+        this.embedHydrationService = embedHydrationService;
+        this.taskQueueService = taskQueueService;
+        this.recordEventHub = recordEventHub;
+        this.probeRunner = probeRunner;
+        this.fileStorageService = fileStorageService;
     }
     
     @GetMapping("/test")
@@ -67,9 +105,15 @@ public class ApiController {
     @GetMapping("/account/{id}")
     public ResponseEntity<?> getAccount(@PathVariable String id) {
         try {
-            logger.info("Getting account from Salesforce: {}", id);
-            Map<String, Object> account = salesforceApiService.getAccountById(id);
+            logger.debug("Getting account from Salesforce: {}", id);
+            AccountInfo account = salesforceApiService.getAccountById(id);
             return ResponseEntity.ok(account);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("accountId", id);
+            error.put("status", "failed");
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             logger.error("Error getting account: {}", e.getMessage(), e);
             
@@ -81,12 +125,32 @@ public class ApiController {
         }
     }
     
+    @GetMapping("/accounts/search")
+    public ResponseEntity<?> searchAccounts(@RequestParam(required = false) String name,
+                                            @RequestParam(required = false) String industry,
+                                            @RequestParam(required = false) String type,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            int boundedLimit = Math.max(1, Math.min(limit, 200));
+            return ResponseEntity.ok(accountReplicaService.search(name, industry, type, boundedLimit));
+        } catch (Exception e) {
+            logger.error("Error searching accounts: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/estimate/{id}")
     public ResponseEntity<?> getEstimate(@PathVariable String id) {
         try {
-            logger.info("Getting estimate from Salesforce: {}", id);
-            Map<String, Object> estimate = salesforceApiService.getEstimateById(id);
+            logger.debug("Getting estimate from Salesforce: {}", id);
+            SalesforceRecord estimate = salesforceApiService.getEstimateById(id);
             return ResponseEntity.ok(estimate);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("estimateId", id);
+            error.put("status", "failed");
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             logger.error("Error getting estimate: {}", e.getMessage(), e);
             
@@ -101,14 +165,20 @@ public class ApiController {
     @GetMapping("/record/{id}")
     public ResponseEntity<?> getRecord(@PathVariable String id) {
         try {
-            logger.info("Getting record: {}", id);
+            logger.debug("Getting record: {}", id);
             
             // 根据ID前缀推断对象类型
             String objectType = inferObjectTypeFromId(id);
-            logger.info("Inferred object type: {}", objectType);
+            logger.debug("Inferred object type: {}", objectType);
             
-            Map<String, Object> record = salesforceApiService.getRecordById(objectType, id);
+            SalesforceRecord record = salesforceApiService.getRecordById(objectType, id);
             return ResponseEntity.ok(record);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("recordId", id);
+            error.put("status", "failed");
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             logger.error("Error getting record: {}", e.getMessage(), e);
             
@@ -120,6 +190,9 @@ public class ApiController {
         }
     }
     
+    /**
+     * 并行尝试各个对象名变体，总耗时不超过探测截止时间
+     */
     @GetMapping("/debug/check-object/{id}")
     public ResponseEntity<?> checkObjectName(@PathVariable String id) {
         Map<String, Object> result = new HashMap<>();
@@ -127,57 +200,23 @@ public class ApiController {
         
         try {
             TokenInfo token = oauthClient.getAccessToken();
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(token.getAccessToken());
+            HttpEntity<String> request = new HttpEntity<>(headers);
             
-            // 尝试不同的对象名变体
-            String[] possibleNames = {
-                "ffscpq__Estimate__c",
-                "ffscpq_Estimate_c",
-                "Estimate__c",
-                "ffscpq_Estimate"
-            };
-            
-            Map<String, Object> attempts = new HashMap<>();
-            RestTemplate restTemplate = new RestTemplate();
-            
-            for (String objectName : possibleNames) {
-                try {
-                    String soql = "SELECT Id FROM " + objectName + " WHERE Id = '" + id + "' LIMIT 1";
-                    
-                    String url = UriComponentsBuilder.fromHttpUrl(token.getInstanceUrl())
-                            .path("/services/data/" + apiVersion + "/query")
-                            .queryParam("q", soql)
-                            .build()
-                            .toUriString();
-                    
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.setBearerAuth(token.getAccessToken());
-                    
-                    HttpEntity<String> request = new HttpEntity<>(headers);
-                    
+            Map<String, DiagnosticProbeRunner.Probe> probes = new LinkedHashMap<>();
+            for (Map.Entry<String, SoqlTemplate> probe : OBJECT_NAME_PROBES.entrySet()) {
+                URI url = probe.getValue().bind(id).toUri(token.getInstanceUrl(), apiVersion);
+                probes.put(probe.getKey(), restTemplate -> {
                     ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, request, String.class);
-                    
-                    attempts.put(objectName, Map.of(
-                        "success", true,
-                        "status", response.getStatusCode().value(),
-                        "response", response.getBody()
-                    ));
-                    
-                } catch (Exception e) {
-                    String errorMsg = e.getMessage();
-                    if (e instanceof org.springframework.web.client.HttpClientErrorException) {
-                        org.springframework.web.client.HttpClientErrorException httpEx = 
-                            (org.springframework.web.client.HttpClientErrorException) e;
-                        errorMsg = httpEx.getResponseBodyAsString();
-                    }
-                    
-                    attempts.put(objectName, Map.of(
-                        "success", false,
-                        "error", errorMsg
-                    ));
-                }
+                    return Map.of("status", response.getStatusCode().value(), "response", response.getBody());
+                });
             }
             
-            result.put("attempts", attempts);
+            Map<String, Object> report = probeRunner.run(probes);
+            result.put("attempts", report.get("results"));
+            result.put("complete", report.get("complete"));
+            result.put("elapsedMs", report.get("elapsedMs"));
             
         } catch (Exception e) {
             result.put("error", e.getMessage());
@@ -189,22 +228,9 @@ public class ApiController {
     @GetMapping("/sobject/{objectName}/{id}")
     public ResponseEntity<?> getSObject(@PathVariable String objectName, @PathVariable String id) {
         try {
-            logger.info("Getting {}/{}", objectName, id);
-            
-            TokenInfo token = oauthClient.getAccessToken();
+            logger.debug("Getting {}/{}", objectName, id);
             
-            String url = token.getInstanceUrl() + "/services/data/" + apiVersion + "/sobjects/" + objectName + "/" + id;
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(token.getAccessToken());
-            
-            HttpEntity<String> request = new HttpEntity<>(headers);
-            RestTemplate restTemplate = new RestTemplate();
-            
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, request, String.class);
-            
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode record = mapper.readTree(response.getBody());
+            JsonNode record = salesforceApiService.getSObject(objectName, id);
             
             return ResponseEntity.ok(record);
             
@@ -234,7 +260,7 @@ public class ApiController {
         if (id == null || id.length() < 3) return "Account";
         
         String prefix = id.substring(0, 3);
-        logger.info("Record ID prefix: {}", prefix);
+        logger.debug("Record ID prefix: {}", prefix);
         
         // 对象类型映射
         if ("001".equals(prefix)) return "Account";
@@ -247,8 +273,12 @@ public class ApiController {
         return "Account";
     }
     
+    /**
+     * 创建 Task；async=true 时写入持久化队列后立即返回 202 和 ticket，由后台批量创建
+     */
     @PostMapping("/task")
-    public ResponseEntity<?> createTask(@RequestBody Map<String, String> taskData) {
+    public ResponseEntity<?> createTask(@RequestBody Map<String, String> taskData,
+                                        @RequestParam(defaultValue = "false") boolean async) {
         try {
             String whatId = taskData.get("whatId");
             String subject = taskData.get("subject");
@@ -264,6 +294,13 @@ public class ApiController {
             fields.put("Status", status != null ? status : "Not Started");
             fields.put("Priority", "Normal");
             
+            if (async) {
+                String ticket = taskQueueService.enqueue(fields);
+                return ResponseEntity.accepted()
+                        .header(HttpHeaders.LOCATION, "/api/task/" + ticket)
+                        .body(Map.of("ticket", ticket, "status", TaskQueueService.QUEUED));
+            }
+            
             JsonNode result = salesforceApiService.createRecord("Task", fields);
             
             return ResponseEntity.ok(Map.of(
@@ -277,17 +314,121 @@ public class ApiController {
         }
     }
     
+    /**
+     * 更新单个 Account；returnRecord=merged（默认）返回合并后的记录，false 只返回结果
+     */
     @PatchMapping("/account/{id}")
-    public ResponseEntity<?> updateAccount(@PathVariable String id, @RequestBody Map<String, Object> updates) {
+    public ResponseEntity<?> updateAccount(@PathVariable String id, @RequestBody Map<String, Object> updates,
+                                           @RequestParam(defaultValue = "merged") String returnRecord) {
+        if (!isReturnRecordOption(returnRecord)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "returnRecord must be false or merged"));
+        }
         try {
-            Map<String, Object> result = salesforceApiService.updateAccount(id, updates);
+            AccountInfo result = salesforceApiService.updateAccount(id, updates);
+            if ("false".equals(returnRecord)) {
+                return ResponseEntity.ok(Map.of("id", id, "success", true));
+            }
             return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error updating account", e);
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
     
+    /**
+     * 异步创建的 Task 的状态：queued、retrying、created（附 Salesforce ID）或 dead
+     */
+    @GetMapping("/task/{ticket}")
+    public ResponseEntity<?> getTaskStatus(@PathVariable String ticket) {
+        Map<String, Object> status = taskQueueService.getStatus(ticket);
+        if (status == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "Unknown ticket: " + ticket));
+        }
+        return ResponseEntity.ok(status);
+    }
+    
+    /**
+     * 分页列出已保存表单的记录：按修改时间排序（order=desc 最近的在前，asc 最早的在前），
+     * since 只返回此后修改的记录；响应中的 nextCursor 作为下一页的 cursor，为 null 时没有更多
+     */
+    @GetMapping("/forms")
+    public ResponseEntity<?> listSavedForms(@RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "0") long since,
+                                            @RequestParam(defaultValue = "desc") String order,
+                                            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_FORMS_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be between 1 and " + MAX_FORMS_PAGE_SIZE));
+        }
+        if (!"asc".equalsIgnoreCase(order) && !"desc".equalsIgnoreCase(order)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "order must be asc or desc"));
+        }
+        try {
+            FormDataStore.Page page = fileStorageService.listSavedRecords(cursor, since,
+                    "desc".equalsIgnoreCase(order), limit);
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("records", page.getEntries());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error listing saved forms", e);
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 订阅记录变更（Server-Sent Events）：record 为 Salesforce 字段的变化，form 为本地保存的表单字段的变化，
+     * deleted 表示记录已在 Salesforce 删除。EventSource 无法设置请求头，其他组织使用 /org/{id}/api/events/{id}
+     */
+    @GetMapping("/events/{id}")
+    public ResponseEntity<SseEmitter> subscribeToRecord(@PathVariable String id) {
+        if (!SoqlTemplate.isRecordId(id)) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = recordEventHub.subscribe(id);
+        if (emitter == null) {
+            logger.warn("Rejected event subscription for {}: connection limit reached", id);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+        // 禁止反向代理缓冲事件流
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).header("X-Accel-Buffering", "no").body(emitter);
+    }
+    
+    /**
+     * 批量更新 Account（sObject Collections，每 200 条一次请求），返回逐条结果
+     */
+    @PatchMapping("/accounts/batch")
+    public ResponseEntity<?> updateAccounts(@RequestBody List<Map<String, Object>> records,
+                                            @RequestParam(defaultValue = "false") String returnRecord,
+                                            @RequestParam(defaultValue = "false") boolean allOrNone) {
+        if (!isReturnRecordOption(returnRecord)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "returnRecord must be false or merged"));
+        }
+        try {
+            List<Map<String, Object>> results = salesforceApiService.updateAccounts(records, allOrNone,
+                    "merged".equals(returnRecord));
+            long succeeded = results.stream().filter(result -> Boolean.TRUE.equals(result.get("success"))).count();
+            
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("succeeded", succeeded);
+            response.put("failed", results.size() - succeeded);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error updating accounts", e);
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    private static boolean isReturnRecordOption(String returnRecord) {
+        return "false".equals(returnRecord) || "merged".equals(returnRecord);
+    }
+    
     @PostMapping("/token/refresh")
     public ResponseEntity<?> refreshToken() {
         try {
@@ -302,6 +443,20 @@ public class ApiController {
         }
     }
     
+    /**
+     * embed 页面上报的 time-to-data（sendBeacon）
+     */
+    @PostMapping("/metrics/embed-time-to-data")
+    public ResponseEntity<?> reportEmbedTimeToData(@RequestBody Map<String, Object> report) {
+        Object millis = report.get("millis");
+        if (!(millis instanceof Number)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "millis is required"));
+        }
+        embedHydrationService.recordTimeToData(Boolean.TRUE.equals(report.get("hydrated")),
+                ((Number) millis).longValue());
+        return ResponseEntity.noContent().build();
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<?> health() {
         Map<String, Object> status = new HashMap<>();
@@ -1,7 +1,24 @@
 package com.salesforce.integration.controller;
 
+import com.salesforce.integration.service.AccountReplicaService;
+import com.salesforce.integration.service.AdaptiveConcurrencyLimiter;
+import com.salesforce.integration.service.DeltaSyncService;
+import com.salesforce.integration.service.DiagnosticProbeRunner;
+import com.salesforce.integration.service.EmbedHydrationService;
+import com.salesforce.integration.service.FileStorageService;
+import com.salesforce.integration.service.FormSearchIndex;
+import com.salesforce.integration.service.FormSyncOutbox;
+import com.salesforce.integration.service.PageRenderCache;
+import com.salesforce.integration.service.RecordEventHub;
 import com.salesforce.integration.service.SalesforceApiService;
 import com.salesforce.integration.service.SalesforceOAuthClient;
+import com.salesforce.integration.service.SalesforceRequestExecutor;
+import com.salesforce.integration.service.SharedTokenCache;
+import com.salesforce.integration.service.SlowRequestLog;
+import com.salesforce.integration.service.TaskQueueService;
+import com.salesforce.integration.service.TenantContext;
+import com.salesforce.integration.service.TenantRegistry;
+import com.salesforce.integration.service.StartupWarmupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +26,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -22,6 +40,54 @@ public class DiagnosticController {
     @Autowired(required = false)
     private SalesforceOAuthClient oauthClient;
     
+    @Autowired(required = false)
+    private DeltaSyncService deltaSyncService;
+    
+    @Autowired(required = false)
+    private AccountReplicaService accountReplicaService;
+    
+    @Autowired(required = false)
+    private PageRenderCache pageRenderCache;
+    
+    @Autowired(required = false)
+    private EmbedHydrationService embedHydrationService;
+    
+    @Autowired(required = false)
+    private StartupWarmupService startupWarmupService;
+    
+    @Autowired(required = false)
+    private TenantRegistry tenantRegistry;
+    
+    @Autowired(required = false)
+    private SalesforceRequestExecutor requestExecutor;
+    
+    @Autowired(required = false)
+    private FileStorageService fileStorageService;
+    
+    @Autowired(required = false)
+    private SharedTokenCache sharedTokenCache;
+    
+    @Autowired(required = false)
+    private SlowRequestLog slowRequestLog;
+    
+    @Autowired(required = false)
+    private TaskQueueService taskQueueService;
+    
+    @Autowired(required = false)
+    private FormSyncOutbox formSyncOutbox;
+    
+    @Autowired(required = false)
+    private RecordEventHub recordEventHub;
+    
+    @Autowired(required = false)
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    
+    @Autowired(required = false)
+    private DiagnosticProbeRunner probeRunner;
+    
+    @Autowired(required = false)
+    private FormSearchIndex formSearchIndex;
+    
     @GetMapping("/status")
     public Map<String, Object> status() {
         Map<String, Object> status = new HashMap<>();
@@ -32,42 +98,199 @@ public class DiagnosticController {
         return status;
     }
     
+    /**
+     * 并行获取令牌和查询 Account，由 DiagnosticProbeRunner 限定总耗时，org 很慢时返回 timeout 而不是一直等待
+     */
     @GetMapping("/test-account/{id}")
     public Map<String, Object> testAccount(@PathVariable String id) {
         Map<String, Object> result = new HashMap<>();
         result.put("accountId", id);
         result.put("timestamp", System.currentTimeMillis());
         
-        try {
-            if (salesforceApiService == null) {
-                result.put("error", "SalesforceApiService not available");
-                return result;
-            }
-            
-            // 尝试获取token
-            result.put("attempting", "Getting access token");
-            var token = oauthClient.getAccessToken();
-            result.put("tokenObtained", true);
-            result.put("instanceUrl", token.getInstanceUrl());
-            
-            // 尝试查询account
-            result.put("attempting", "Querying account");
-            Map<String, Object> account = salesforceApiService.getAccountById(id);
+        if (salesforceApiService == null || oauthClient == null || probeRunner == null) {
+            result.put("error", "SalesforceApiService not available");
+            return result;
+        }
+        
+        Map<String, DiagnosticProbeRunner.Probe> probes = new LinkedHashMap<>();
+        probes.put("token", restTemplate -> oauthClient.getAccessToken().getInstanceUrl());
+        probes.put("account", restTemplate -> salesforceApiService.getAccountById(id));
+        Map<String, Object> report = probeRunner.run(probes);
+        Map<?, ?> outcomes = (Map<?, ?>) report.get("results");
+        
+        Map<?, ?> token = (Map<?, ?>) outcomes.get("token");
+        result.put("tokenObtained", token.get("success"));
+        if (Boolean.TRUE.equals(token.get("success"))) {
+            result.put("instanceUrl", token.get("result"));
+        }
+        Map<?, ?> account = (Map<?, ?>) outcomes.get("account");
+        if (Boolean.TRUE.equals(account.get("success"))) {
             result.put("accountFound", true);
-            result.put("account", account);
+            result.put("account", account.get("result"));
             result.put("status", "success");
-            
-        } catch (Exception e) {
-            result.put("status", "error");
-            result.put("error", e.getMessage());
-            result.put("errorType", e.getClass().getSimpleName());
-            
-            logger.error("Diagnostic error for account {}: {}", id, e.getMessage(), e);
+        } else {
+            // status 为 error、timeout 或 rejected
+            result.put("status", account.get("status"));
+            result.put("error", account.containsKey("error") ? account.get("error") : token.get("error"));
+            logger.warn("Diagnostic check for account {} failed: {}", id, result.get("error"));
         }
+        result.put("elapsedMs", report.get("elapsedMs"));
         
         return result;
     }
     
+    @GetMapping("/probes")
+    public Map<String, Object> probeStats() {
+        if (probeRunner == null) {
+            return Map.of("error", "DiagnosticProbeRunner not available");
+        }
+        return probeRunner.getStats();
+    }
+    
+    @GetMapping("/search")
+    public Map<String, Object> searchIndexStats() {
+        if (formSearchIndex == null) {
+            return Map.of("error", "FormSearchIndex not available");
+        }
+        return formSearchIndex.getStats();
+    }
+    
+    @GetMapping("/sync")
+    public Map<String, Object> syncStatus() {
+        if (deltaSyncService == null) {
+            return Map.of("error", "DeltaSyncService not available");
+        }
+        return deltaSyncService.getStatus();
+    }
+    
+    @PostMapping("/sync")
+    public ResponseEntity<?> runSync() {
+        if (deltaSyncService == null) {
+            return ResponseEntity.status(500).body(Map.of("error", "DeltaSyncService not available"));
+        }
+        return ResponseEntity.ok(deltaSyncService.syncAll());
+    }
+    
+    @GetMapping("/replica")
+    public Map<String, Object> replicaStatus() {
+        if (accountReplicaService == null) {
+            return Map.of("error", "AccountReplicaService not available");
+        }
+        return accountReplicaService.getStats();
+    }
+    
+    @GetMapping("/page-cache")
+    public Map<String, Object> pageCacheStatus() {
+        if (pageRenderCache == null) {
+            return Map.of("error", "PageRenderCache not available");
+        }
+        return pageRenderCache.getStats();
+    }
+    
+    @PostMapping("/page-cache/clear")
+    public Map<String, Object> clearPageCache() {
+        if (pageRenderCache == null) {
+            return Map.of("error", "PageRenderCache not available");
+        }
+        pageRenderCache.clear();
+        return pageRenderCache.getStats();
+    }
+    
+    @GetMapping("/embed-hydration")
+    public Map<String, Object> embedHydrationStatus() {
+        if (embedHydrationService == null) {
+            return Map.of("error", "EmbedHydrationService not available");
+        }
+        return embedHydrationService.getStats();
+    }
+    
+    @GetMapping("/warmup")
+    public Map<String, Object> warmupStatus() {
+        if (startupWarmupService == null) {
+            return Map.of("error", "StartupWarmupService not available");
+        }
+        return startupWarmupService.getStatus();
+    }
+    
+    @GetMapping("/tenants")
+    public Map<String, Object> tenantStatus() {
+        if (tenantRegistry == null || requestExecutor == null) {
+            return Map.of("error", "TenantRegistry not available");
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("current", TenantContext.current());
+        result.put("pools", tenantRegistry.getStats());
+        result.put("bulkheads", requestExecutor.getTenantStats());
+        return result;
+    }
+    
+    @GetMapping("/storage")
+    public Map<String, Object> storageStatus() {
+        if (fileStorageService == null) {
+            return Map.of("error", "FileStorageService not available");
+        }
+        return fileStorageService.getStats();
+    }
+    
+    @GetMapping("/token-store")
+    public Map<String, Object> tokenStoreStatus() {
+        if (sharedTokenCache == null) {
+            return Map.of("error", "SharedTokenCache not available");
+        }
+        return sharedTokenCache.getStats();
+    }
+    
+    @GetMapping("/task-queue")
+    public Map<String, Object> taskQueueStatus() {
+        if (taskQueueService == null) {
+            return Map.of("error", "TaskQueueService not available");
+        }
+        return taskQueueService.getStats();
+    }
+    
+    @GetMapping("/outbox")
+    public Map<String, Object> outboxStatus() {
+        if (formSyncOutbox == null) {
+            return Map.of("error", "FormSyncOutbox not available");
+        }
+        return formSyncOutbox.getStats();
+    }
+    
+    @GetMapping("/events")
+    public Map<String, Object> eventsStatus() {
+        if (recordEventHub == null) {
+            return Map.of("error", "RecordEventHub not available");
+        }
+        return recordEventHub.getStats();
+    }
+    
+    @GetMapping("/admission")
+    public Map<String, Object> admissionStatus() {
+        if (concurrencyLimiter == null) {
+            return Map.of("error", "AdaptiveConcurrencyLimiter not available");
+        }
+        return concurrencyLimiter.getStats();
+    }
+    
+    @GetMapping("/slow-requests")
+    public Map<String, Object> slowRequests(@RequestParam(defaultValue = "50") int limit) {
+        if (slowRequestLog == null) {
+            return Map.of("error", "SlowRequestLog not available");
+        }
+        Map<String, Object> result = new HashMap<>(slowRequestLog.getStats());
+        result.put("recent", slowRequestLog.recent(limit));
+        return result;
+    }
+    
+    @PostMapping("/slow-requests/clear")
+    public Map<String, Object> clearSlowRequests() {
+        if (slowRequestLog == null) {
+            return Map.of("error", "SlowRequestLog not available");
+        }
+        slowRequestLog.clear();
+        return Map.of("success", true);
+    }
+    
     @GetMapping("/simple-account/{id}")
     public ResponseEntity<?> simpleAccount(@PathVariable String id) {
         try {
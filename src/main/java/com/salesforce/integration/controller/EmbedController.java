@@ -2,13 +2,21 @@ package com.salesforce.integration.controller;
 
 import com.salesforce.integration.service.SalesforceApiService;
 import com.salesforce.integration.service.SalesforceOAuthClient;
+import com.salesforce.integration.service.EmbedHydrationService;
 import com.salesforce.integration.service.FileStorageService;
+import com.salesforce.integration.service.FormSearchIndex;
+import com.salesforce.integration.service.PageRenderCache;
+import com.salesforce.integration.service.TenantContext;
+import com.salesforce.integration.model.AccountFormData;
+import com.salesforce.integration.model.AccountInfo;
 import com.salesforce.integration.model.TokenInfo;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -18,173 +26,190 @@ import org.springframework.http.ResponseEntity;
 
 import javax.servlet.http.HttpServletResponse;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 public class EmbedController {
     private static final Logger logger = LoggerFactory.getLogger(EmbedController.class);
     
+    private static final String APP_VERSION = "1.0.0";
+    private static final MediaType TEXT_HTML_UTF8 = new MediaType("text", "html", StandardCharsets.UTF_8);
+    private static final int MAX_SEARCH_RESULTS = 100;
+    
     private final SalesforceApiService salesforceApiService;
     private final SalesforceOAuthClient oauthClient;
     private final FileStorageService fileStorageService;
+    private final PageRenderCache pageRenderCache;
+    private final EmbedHydrationService embedHydrationService;
+    private final FormSearchIndex formSearchIndex;
+    
+    @Value("${salesforce.page-cache.embed-max-age-seconds:60}")
+    private long embedMaxAgeSeconds;
     
     public EmbedController(SalesforceApiService salesforceApiService, 
                           SalesforceOAuthClient oauthClient,
-                          FileStorageService fileStorageService) {
+                          FileStorageService fileStorageService,
+                          PageRenderCache pageRenderCache,
+                          EmbedHydrationService embedHydrationService,
+                          FormSearchIndex formSearchIndex) {
         this.salesforceApiService = salesforceApiService;
         this.oauthClient = oauthClient;
         this.fileStorageService = fileStorageService;
+        this.pageRenderCache = pageRenderCache;
+        this.embedHydrationService = embedHydrationService;
+        this.formSearchIndex = formSearchIndex;
     }
     
     @GetMapping("/embed")
-    public String embedPage(
+    public ResponseEntity<String> embedPage(
             @RequestParam(defaultValue = "001xx000003DGb2AAG") String recordId,
-            Model model,
             HttpServletResponse response) {
         
-        logger.info("Embed page request - recordId: {}", recordId);
+        logger.debug("Embed page request - recordId: {}", recordId);
         
         // 确保 headers 正确设置
         response.setHeader("X-Frame-Options", "ALLOWALL");
         response.setHeader("Content-Security-Policy", "frame-ancestors *");
         
-        model.addAttribute("recordId", recordId);
-        model.addAttribute("appName", "Salesforce Java Integration");
-        model.addAttribute("version", "1.0.0");
-        model.addAttribute("timestamp", System.currentTimeMillis());
+        // 页面版本取决于内联的记录数据，所以先等待读取完成（最多 hydration-timeout-ms）再查缓存/渲染；
+        // 超时则不内联，由客户端照常请求。记录通常命中 RecordCache，等待很短
+        CompletableFuture<EmbedHydrationService.HydratedRecord> hydration =
+                embedHydrationService.startHydration(recordId);
+        EmbedHydrationService.HydratedRecord record = embedHydrationService.await(hydration);
+        
+        // 页面内容只取决于 recordId、应用版本和内联数据
+        String version = record == null ? APP_VERSION
+                : APP_VERSION + ":" + Integer.toHexString(record.getJson().hashCode()) + "-" + record.getJson().length();
+        PageRenderCache.RenderedPage page = pageRenderCache.render("embed", recordId, version, () -> {
+            Map<String, Object> model = new HashMap<>();
+            model.put("recordId", recordId);
+            model.put("org", TenantContext.current());
+            model.put("appName", "Salesforce Java Integration");
+            model.put("version", APP_VERSION);
+            model.put("recordJson", record != null ? record.getJson() : null);
+            model.put("recordObjectType", record != null ? record.getObjectType() : null);
+            return model;
+        });
         
-        return "embed";
+        // 内联了数据的页面每次都需要重新验证，数据未变时仍是 304
+        CacheControl cacheControl = record != null ? CacheControl.noCache().cachePrivate()
+                : CacheControl.maxAge(embedMaxAgeSeconds, TimeUnit.SECONDS).cachePrivate();
+        return htmlResponse(page, cacheControl);
     }
     
     @GetMapping("/form")
-    public String formPage(
+    public ResponseEntity<String> formPage(
             @RequestParam(defaultValue = "001xx000003DGb2AAG") String recordId,
-            Model model,
             HttpServletResponse response) {
         
-        logger.info("Form page request - recordId: {}", recordId);
+        logger.debug("Form page request - recordId: {}", recordId);
         
         // 确保 headers 正确设置（用于 iframe 嵌入）
         response.setHeader("X-Frame-Options", "ALLOWALL");
         response.setHeader("Content-Security-Policy", "frame-ancestors *");
         
         try {
-            // 1. 尝试从文件加载已保存的数据
-            Map<String, Object> savedData = fileStorageService.loadAccountData(recordId);
+            PageRenderCache.RenderedPage page;
             
-            Map<String, Object> formData;
-            String mode;
+            // 1. 已保存的数据以文件版本作为页面版本，命中缓存时无需读取文件
+            String savedVersion = fileStorageService.getDataVersion(recordId);
             
-            if (savedData != null) {
-                // 有已保存的数据，使用保存的数据
-                logger.info("Found saved data for recordId: {}", recordId);
-                formData = savedData;
-                mode = "edit";
-                
-                // 确保 recordId 正确
-                if (!formData.containsKey("sfRecordId") || formData.get("sfRecordId") == null) {
-                    formData.put("sfRecordId", recordId);
-                }
+            if (savedVersion != null) {
+                logger.debug("Found saved data for recordId: {}", recordId);
+                page = pageRenderCache.render("form", recordId, "saved:" + savedVersion, () -> {
+                    Map<String, Object> savedData = fileStorageService.loadAccountData(recordId);
+                    if (savedData == null) {
+                        // 读取期间文件被删除，按新建处理
+                        return formModel(recordId, emptyFormData(recordId), "create", false);
+                    }
+                    // 确保 recordId 正确
+                    if (savedData.get("sfRecordId") == null) {
+                        savedData.put("sfRecordId", recordId);
+                    }
+                    return formModel(recordId, savedData, "edit", true);
+                });
             } else {
-                // 没有保存的数据，从 Salesforce 加载 Account 数据
-                logger.info("No saved data found, loading from Salesforce for recordId: {}", recordId);
-                formData = loadAccountFromSalesforce(recordId);
-                formData.put("sfRecordId", recordId);
-                mode = "create";
+                // 2. 没有保存的数据，从 Salesforce 加载 Account 数据（通常命中记录缓存），以内容作为页面版本
+                logger.debug("No saved data found, loading from Salesforce for recordId: {}", recordId);
+                AccountFormData salesforceData = loadAccountFromSalesforce(recordId);
+                salesforceData.setSfRecordId(recordId);
+                page = pageRenderCache.render("form", recordId,
+                        "sf:" + Integer.toHexString(salesforceData.hashCode()),
+                        () -> formModel(recordId, salesforceData, "create", false));
             }
             
-            model.addAttribute("recordId", recordId);
-            model.addAttribute("appName", "Account Form");
-            model.addAttribute("version", "1.0.0");
-            model.addAttribute("timestamp", System.currentTimeMillis());
-            model.addAttribute("formData", formData);
-            model.addAttribute("mode", mode);
-            model.addAttribute("hasSavedData", savedData != null);
+            return htmlResponse(page, CacheControl.noCache().cachePrivate());
             
         } catch (Exception e) {
             logger.error("Error loading form data", e);
             
-            // 如果出错，使用默认空数据
-            Map<String, Object> formData = new HashMap<>();
-            formData.put("sfRecordId", recordId);
-            formData.put("accountName", "");
-            formData.put("accountNumber", "");
-            formData.put("phone", "");
-            formData.put("address", "");
+            // 如果出错，使用默认空数据；错误页不缓存
+            Map<String, Object> model = formModel(recordId, emptyFormData(recordId), "create", false);
+            model.put("error", "Failed to load data: " + e.getMessage());
             
-            model.addAttribute("recordId", recordId);
-            model.addAttribute("formData", formData);
-            model.addAttribute("mode", "create");
-            model.addAttribute("hasSavedData", false);
-            model.addAttribute("error", "Failed to load data: " + e.getMessage());
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .contentType(TEXT_HTML_UTF8)
+                    .body(pageRenderCache.renderNow("form", model));
         }
-        
-        return "form";
+    }
+    
+    private static Map<String, Object> formModel(String recordId, Object formData, String mode, boolean hasSavedData) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("recordId", recordId);
+        model.put("org", TenantContext.current());
+        model.put("appName", "Account Form");
+        model.put("version", APP_VERSION);
+        model.put("formData", formData);
+        model.put("mode", mode);
+        model.put("hasSavedData", hasSavedData);
+        return model;
+    }
+    
+    private static AccountFormData emptyFormData(String recordId) {
+        // 模板会读取所有表单字段，使用完整的空表单而不是只含部分键的 Map
+        AccountFormData formData = AccountFormData.empty();
+        formData.setSfRecordId(recordId);
+        return formData;
     }
     
     /**
-     * 从 Salesforce 加载 Account 数据
+     * 带 ETag 返回渲染结果；请求的 If-None-Match 匹配时 Spring 会直接返回 304
      */
-    private Map<String, Object> loadAccountFromSalesforce(String recordId) throws Exception {
-        // 初始化所有字段为默认空值
-        Map<String, Object> formData = new HashMap<>();
-        formData.put("accountName", "");
-        formData.put("accountNumber", "");
-        formData.put("phone", "");
-        formData.put("address", "");
-        formData.put("industry", "");
-        formData.put("annualRevenue", "");
-        formData.put("numberOfEmployees", "");
-        formData.put("description", "");
-        formData.put("website", "");
-        formData.put("billingStreet", "");
-        formData.put("billingCity", "");
-        formData.put("billingState", "");
-        formData.put("billingPostalCode", "");
-        formData.put("billingCountry", "");
+    private static ResponseEntity<String> htmlResponse(PageRenderCache.RenderedPage page, CacheControl cacheControl) {
+        return ResponseEntity.ok()
+                .eTag(page.getEtag())
+                .cacheControl(cacheControl)
+                .contentType(TEXT_HTML_UTF8)
+                .body(page.getHtml());
+    }
+    
+    /**
+     * 从 Salesforce 加载 Account 数据，直接由类型化记录映射为表单数据
+     */
+    private AccountFormData loadAccountFromSalesforce(String recordId) {
+        // 所有字段默认为空字符串
+        AccountFormData formData = AccountFormData.empty();
         
         try {
-            // 直接从 SalesforceApiService 获取 Account 数据（返回 Map）
-            Map<String, Object> account = salesforceApiService.getAccountById(recordId);
+            AccountInfo account = salesforceApiService.getAccountById(recordId);
             
-            // 提取字段值（安全地获取，避免 null）
-            if (account != null) {
-                putIfPresent(formData, account, "accountName");
-                putIfPresent(formData, account, "accountNumber");
-                putIfPresent(formData, account, "phone");
-                putIfPresent(formData, account, "address", "BillingStreet");
-                putIfPresent(formData, account, "industry");
-                
-                if (account.containsKey("AnnualRevenue") && account.get("AnnualRevenue") != null) {
-                    formData.put("annualRevenue", account.get("AnnualRevenue").toString());
-                }
-                if (account.containsKey("NumberOfEmployees") && account.get("NumberOfEmployees") != null) {
-                    formData.put("numberOfEmployees", account.get("NumberOfEmployees").toString());
-                }
-                
-                putIfPresent(formData, account, "description");
-                putIfPresent(formData, account, "website");
-                
-                // 地址字段
-                if (account.containsKey("BillingStreet") && account.get("BillingStreet") != null) {
-                    formData.put("billingStreet", account.get("BillingStreet"));
-                }
-                if (account.containsKey("BillingCity") && account.get("BillingCity") != null) {
-                    formData.put("billingCity", account.get("BillingCity"));
-                }
-                if (account.containsKey("BillingState") && account.get("BillingState") != null) {
-                    formData.put("billingState", account.get("BillingState"));
-                }
-                if (account.containsKey("BillingPostalCode") && account.get("BillingPostalCode") != null) {
-                    formData.put("billingPostalCode", account.get("BillingPostalCode"));
-                }
-                if (account.containsKey("BillingCountry") && account.get("BillingCountry") != null) {
-                    formData.put("billingCountry", account.get("BillingCountry"));
-                }
+            formData.setAccountName(valueOrEmpty(account.getName()));
+            formData.setPhone(valueOrEmpty(account.getPhone()));
+            formData.setWebsite(valueOrEmpty(account.getWebsite()));
+            formData.setIndustry(valueOrEmpty(account.getIndustry()));
+            formData.setDescription(valueOrEmpty(account.getDescription()));
+            if (account.getAnnualRevenue() != null) {
+                formData.setAnnualRevenue(account.getAnnualRevenue().toString());
             }
             
-            logger.info("Loaded account data from Salesforce: {}", formData.get("accountName"));
+            logger.debug("Loaded account data from Salesforce for recordId: {}", recordId);
             
         } catch (Exception e) {
             logger.error("Failed to load account from Salesforce: {}", e.getMessage(), e);
@@ -194,33 +219,8 @@ public class EmbedController {
         return formData;
     }
     
-    /**
-     * 安全地从 source Map 复制字段到 target Map
-     * @param target 目标 Map
-     * @param source 源 Map
-     * @param fieldName 字段名
-     */
-    private void putIfPresent(Map<String, Object> target, Map<String, Object> source, String fieldName) {
-        putIfPresent(target, source, fieldName, fieldName);
-    }
-    
-    /**
-     * 安全地从 source Map 复制字段到 target Map（支持不同的字段名映射）
-     * @param target 目标 Map
-     * @param source 源 Map
-     * @param targetField 目标字段名
-     * @param sourceField 源字段名
-     */
-    private void putIfPresent(Map<String, Object> target, Map<String, Object> source, 
-                             String targetField, String sourceField) {
-        if (source.containsKey(sourceField)) {
-            Object value = source.get(sourceField);
-            if (value != null) {
-                target.put(targetField, value.toString());
-            } else {
-                target.put(targetField, "");
-            }
-        }
+    private static String valueOrEmpty(String value) {
+        return value != null ? value : "";
     }
     
     /**
@@ -284,6 +284,43 @@ public class EmbedController {
         }
     }
     
+    /**
+     * 按账户名称、电话、网站和描述搜索已保存的表单（前缀匹配，按相关度排序）
+     */
+    @GetMapping("/form/search")
+    @ResponseBody
+    public ResponseEntity<?> searchSavedForms(@RequestParam String q,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "limit must be between 1 and " + MAX_SEARCH_RESULTS
+            ));
+        }
+        try {
+            List<Map<String, Object>> results = formSearchIndex.search(q, limit);
+            // 只为返回的记录读取存储，显示名称、电话和网站
+            for (Map<String, Object> result : results) {
+                Map<String, Object> data = fileStorageService.loadAccountData((String) result.get("recordId"));
+                if (data != null) {
+                    result.put("accountName", data.get("accountName"));
+                    result.put("phone", data.get("phone"));
+                    result.put("website", data.get("website"));
+                }
+            }
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("query", q);
+            response.put("results", results);
+            // 启动重建完成前结果可能不完整
+            response.put("complete", formSearchIndex.isReady());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error searching saved forms", e);
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/")
     public String home(HttpServletResponse response) {
         response.setHeader("X-Frame-Options", "ALLOWALL");
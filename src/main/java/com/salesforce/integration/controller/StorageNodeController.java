@@ -0,0 +1,200 @@
+package com.salesforce.integration.controller;
+
+import com.salesforce.integration.service.FormDataStore;
+import com.salesforce.integration.service.LocalFileTokenStore;
+import com.salesforce.integration.service.RemoteFormDataStore;
+import com.salesforce.integration.service.TokenStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * 共享存储节点接口：开启 salesforce.storage.serve 的实例把本地表单存储（RemoteFormDataStore）
+ * 和加密令牌存储（RemoteTokenStore）暴露给其他副本。
+ * 请求必须携带与 salesforce.storage.shared-token 相同的 X-Storage-Token。
+ */
+@RestController
+@RequestMapping("/internal/storage")
+public class StorageNodeController {
+    private static final Logger logger = LoggerFactory.getLogger(StorageNodeController.class);
+
+    private final FormDataStore store;
+    private final TokenStore tokenStore;
+    private final boolean serve;
+    private final byte[] sharedToken;
+
+    public StorageNodeController(FormDataStore store,
+                                 TokenStore tokenStore,
+                                 @Value("${salesforce.storage.serve:false}") boolean serve,
+                                 @Value("${salesforce.storage.shared-token:}") String sharedToken) {
+        this.store = store;
+        this.tokenStore = tokenStore;
+        this.serve = serve;
+        this.sharedToken = sharedToken.getBytes(StandardCharsets.UTF_8);
+        if (serve) {
+            if (sharedToken.isEmpty()) {
+                logger.warn("salesforce.storage.serve is on but no shared token is configured; storage requests will be rejected");
+            } else if (store instanceof RemoteFormDataStore) {
+                logger.warn("salesforce.storage.serve is on but this node uses remote storage; storage requests will be rejected");
+            } else {
+                logger.info("Serving form data storage {} to other replicas", store.describe());
+            }
+        }
+    }
+
+    @RequestMapping(value = "/{key}", method = RequestMethod.HEAD)
+    public ResponseEntity<?> head(@PathVariable String key,
+                                  @RequestHeader(value = RemoteFormDataStore.TOKEN_HEADER, required = false) String token)
+            throws Exception {
+        ResponseEntity<?> rejected = reject(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        Long version = store.version(key);
+        if (version == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().header(RemoteFormDataStore.VERSION_HEADER, Long.toString(version)).build();
+    }
+
+    @GetMapping("/{key}")
+    public ResponseEntity<?> read(@PathVariable String key,
+                                  @RequestHeader(value = RemoteFormDataStore.TOKEN_HEADER, required = false) String token)
+            throws Exception {
+        ResponseEntity<?> rejected = reject(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        FormDataStore.StoredDocument document = store.read(key);
+        if (document == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .header(RemoteFormDataStore.VERSION_HEADER, Long.toString(document.getVersion()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(document.getContent());
+    }
+
+    @PutMapping("/{key}")
+    public ResponseEntity<?> write(@PathVariable String key, @RequestBody byte[] content,
+                                   @RequestHeader(value = RemoteFormDataStore.TOKEN_HEADER, required = false) String token)
+            throws Exception {
+        ResponseEntity<?> rejected = reject(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        long version = store.write(key, content);
+        return ResponseEntity.ok().header(RemoteFormDataStore.VERSION_HEADER, Long.toString(version)).build();
+    }
+
+    @DeleteMapping("/{key}")
+    public ResponseEntity<?> delete(@PathVariable String key,
+                                    @RequestHeader(value = RemoteFormDataStore.TOKEN_HEADER, required = false) String token)
+            throws Exception {
+        ResponseEntity<?> rejected = reject(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        return store.delete(key) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 不带 limit 时返回全部键和版本；带 limit 时按修改时间返回一页清单
+     */
+    @GetMapping
+    public ResponseEntity<?> list(@RequestParam(required = false) Integer limit,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "0") long since,
+                                  @RequestParam(defaultValue = "desc") String order,
+                                  @RequestHeader(value = RemoteFormDataStore.TOKEN_HEADER, required = false) String token)
+            throws Exception {
+        ResponseEntity<?> rejected = reject(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        if (limit == null) {
+            return ResponseEntity.ok(store.list());
+        }
+        try {
+            return ResponseEntity.ok(store.listPage(cursor, since, !"asc".equalsIgnoreCase(order), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/tokens/{tenantId}")
+    public ResponseEntity<?> loadToken(@PathVariable String tenantId,
+                                       @RequestHeader(value = RemoteFormDataStore.TOKEN_HEADER, required = false) String token)
+            throws Exception {
+        ResponseEntity<?> rejected = rejectToken(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        byte[] encrypted = tokenStore.load(tenantId);
+        if (encrypted == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(encrypted);
+    }
+
+    @PutMapping("/tokens/{tenantId}")
+    public ResponseEntity<?> saveToken(@PathVariable String tenantId, @RequestBody byte[] encrypted,
+                                       @RequestHeader(value = RemoteFormDataStore.TOKEN_HEADER, required = false) String token)
+            throws Exception {
+        ResponseEntity<?> rejected = rejectToken(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        tokenStore.save(tenantId, encrypted);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/tokens/{tenantId}/lease")
+    public ResponseEntity<?> acquireLease(@PathVariable String tenantId, @RequestParam String owner,
+                                          @RequestParam long ttlMs,
+                                          @RequestHeader(value = RemoteFormDataStore.TOKEN_HEADER, required = false) String token)
+            throws Exception {
+        ResponseEntity<?> rejected = rejectToken(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        return ResponseEntity.ok(Map.of("granted", tokenStore.tryAcquireLease(tenantId, owner, ttlMs)));
+    }
+
+    @DeleteMapping("/tokens/{tenantId}/lease")
+    public ResponseEntity<?> releaseLease(@PathVariable String tenantId, @RequestParam String owner,
+                                          @RequestHeader(value = RemoteFormDataStore.TOKEN_HEADER, required = false) String token)
+            throws Exception {
+        ResponseEntity<?> rejected = rejectToken(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        tokenStore.releaseLease(tenantId, owner);
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<?> rejectToken(String token) {
+        if (!(tokenStore instanceof LocalFileTokenStore)) {
+            return ResponseEntity.status(503).body(Map.of("error", "Token storage is not served by this node"));
+        }
+        return reject(token);
+    }
+
+    private ResponseEntity<?> reject(String token) {
+        if (!serve || sharedToken.length == 0 || store instanceof RemoteFormDataStore) {
+            // 404 会被客户端当作文档不存在，这里用 503 表示本节点不提供存储
+            return ResponseEntity.status(503).body(Map.of("error", "Storage is not served by this node"));
+        }
+        if (token == null || !MessageDigest.isEqual(sharedToken, token.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(403).body(Map.of("error", "Invalid storage token"));
+        }
+        return null;
+    }
+}
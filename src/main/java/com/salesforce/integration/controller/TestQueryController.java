@@ -1,6 +1,8 @@
 package com.salesforce.integration.controller;
 
+import com.salesforce.integration.service.DiagnosticProbeRunner;
 import com.salesforce.integration.service.SalesforceOAuthClient;
+import com.salesforce.integration.service.SoqlTemplate;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -10,7 +12,9 @@ import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -18,9 +22,17 @@ import java.util.Map;
 public class TestQueryController {
     private static final Logger logger = LoggerFactory.getLogger(TestQueryController.class);
     
+    private static final SoqlTemplate ACCOUNT_BY_ID = SoqlTemplate.compile("SELECT Id, Name FROM Account WHERE Id = :id");
+    
     @Autowired
     private SalesforceOAuthClient oauthClient;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private DiagnosticProbeRunner probeRunner;
+    
     @GetMapping("/simple")
     public Map<String, Object> testSimpleQuery() {
         Map<String, Object> result = new HashMap<>();
@@ -48,8 +60,7 @@ public class TestQueryController {
             
             result.put("query_status", response.getStatusCode().value());
             
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode jsonResponse = mapper.readTree(response.getBody());
+            JsonNode jsonResponse = objectMapper.readTree(response.getBody());
             result.put("query_result", jsonResponse);
             
         } catch (Exception e) {
@@ -67,6 +78,9 @@ public class TestQueryController {
         return result;
     }
     
+    /**
+     * 并行用几个 API 版本查询同一个 Account，总耗时不超过探测截止时间
+     */
     @GetMapping("/account/{id}")
     public Map<String, Object> testAccountQuery(@PathVariable String id) {
         Map<String, Object> result = new HashMap<>();
@@ -74,40 +88,46 @@ public class TestQueryController {
         
         try {
             var token = oauthClient.getAccessToken();
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(token.getAccessToken());
+            HttpEntity<String> request = new HttpEntity<>(headers);
             
             // 使用不同的API版本试试
             String[] versions = {"v58.0", "v59.0", "v60.0"};
             result.put("tested_versions", versions);
             
+            Map<String, DiagnosticProbeRunner.Probe> probes = new LinkedHashMap<>();
             for (String version : versions) {
-                try {
-                    String soql = "SELECT Id, Name FROM Account WHERE Id = '" + id + "'";
-                    String url = token.getInstanceUrl() + "/services/data/" + version + "/query?q=" + 
-                                java.net.URLEncoder.encode(soql, "UTF-8");
-                    
-                    RestTemplate restTemplate = new RestTemplate();
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.setBearerAuth(token.getAccessToken());
-                    
-                    HttpEntity<String> request = new HttpEntity<>(headers);
-                    
+                URI url = ACCOUNT_BY_ID.bind(id).toUri(token.getInstanceUrl(), version);
+                probes.put(version, restTemplate -> {
                     ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, request, String.class);
-                    
-                    result.put("version_" + version + "_status", response.getStatusCode().value());
-                    
-                    ObjectMapper mapper = new ObjectMapper();
-                    JsonNode jsonResponse = mapper.readTree(response.getBody());
-                    result.put("version_" + version + "_result", jsonResponse);
-                    
-                } catch (Exception e) {
-                    result.put("version_" + version + "_error", e.getMessage());
+                    return Map.of("status", response.getStatusCode().value(),
+                            "result", objectMapper.readTree(response.getBody()));
+                });
+            }
+            
+            Map<String, Object> report = probeRunner.run(probes);
+            Map<?, ?> outcomes = (Map<?, ?>) report.get("results");
+            for (String version : versions) {
+                Map<?, ?> outcome = (Map<?, ?>) outcomes.get(version);
+                if (Boolean.TRUE.equals(outcome.get("success"))) {
+                    Map<?, ?> response = (Map<?, ?>) outcome.get("result");
+                    result.put("version_" + version + "_status", response.get("status"));
+                    result.put("version_" + version + "_result", response.get("result"));
+                } else {
+                    result.put("version_" + version + "_error",
+                            outcome.containsKey("error") ? outcome.get("error") : outcome.get("status"));
                 }
             }
+            result.put("complete", report.get("complete"));
+            result.put("elapsed_ms", report.get("elapsedMs"));
             
+        } catch (IllegalArgumentException e) {
+            result.put("error", e.getMessage());
         } catch (Exception e) {
             result.put("auth_error", e.getMessage());
         }
         
         return result;
     }
-}
\ No newline at end of file
+}
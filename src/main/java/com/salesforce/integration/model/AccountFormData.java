@@ -2,6 +2,11 @@ package com.salesforce.integration.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class AccountFormData {
     private String sfRecordId;
@@ -19,6 +24,74 @@ public class AccountFormData {
     private String ownerName;
     private String createdDate;
     private String lastModifiedDate;
+    private String billingStreet;
+    private String billingCity;
+    private String billingState;
+    private String billingPostalCode;
+    private String billingCountry;
+    
+    /**
+     * 创建所有字段为空字符串的表单数据（用于新建表单）
+     */
+    public static AccountFormData empty() {
+        AccountFormData formData = new AccountFormData();
+        formData.accountName = "";
+        formData.accountNumber = "";
+        formData.phone = "";
+        formData.address = "";
+        formData.industry = "";
+        formData.annualRevenue = "";
+        formData.numberOfEmployees = "";
+        formData.description = "";
+        formData.website = "";
+        formData.billingStreet = "";
+        formData.billingCity = "";
+        formData.billingState = "";
+        formData.billingPostalCode = "";
+        formData.billingCountry = "";
+        return formData;
+    }
+    
+    /**
+     * 转换为可写回 Salesforce 的 Account 字段（API 名称）
+     * 空值不写回，避免用空白覆盖 Salesforce 中的数据；数字字段无法解析时跳过。
+     * 只读或组合字段（地址汇总、所有者、创建/修改时间）不写回。
+     */
+    public Map<String, Object> toAccountFields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        putText(fields, "Name", accountName);
+        putText(fields, "AccountNumber", accountNumber);
+        putText(fields, "Phone", phone);
+        putText(fields, "Industry", industry);
+        putText(fields, "Website", website);
+        putText(fields, "Description", description);
+        putNumber(fields, "AnnualRevenue", annualRevenue, false);
+        putNumber(fields, "NumberOfEmployees", numberOfEmployees, true);
+        putText(fields, "BillingStreet", billingStreet);
+        putText(fields, "BillingCity", billingCity);
+        putText(fields, "BillingState", billingState);
+        putText(fields, "BillingPostalCode", billingPostalCode);
+        putText(fields, "BillingCountry", billingCountry);
+        return fields;
+    }
+    
+    private static void putText(Map<String, Object> fields, String name, String value) {
+        if (value != null && !value.isBlank()) {
+            fields.put(name, value.trim());
+        }
+    }
+    
+    private static void putNumber(Map<String, Object> fields, String name, String value, boolean integer) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        try {
+            BigDecimal number = new BigDecimal(value.replace(",", "").trim());
+            fields.put(name, integer ? number.intValueExact() : number);
+        } catch (NumberFormatException | ArithmeticException e) {
+            // 非数字输入只保存在表单中
+        }
+    }
     
     // Getters and Setters
     
@@ -141,4 +214,79 @@ public class AccountFormData {
     public void setLastModifiedDate(String lastModifiedDate) {
         this.lastModifiedDate = lastModifiedDate;
     }
-}
\ No newline at end of file
+    
+    public String getBillingStreet() {
+        return billingStreet;
+    }
+    
+    public void setBillingStreet(String billingStreet) {
+        this.billingStreet = billingStreet;
+    }
+    
+    public String getBillingCity() {
+        return billingCity;
+    }
+    
+    public void setBillingCity(String billingCity) {
+        this.billingCity = billingCity;
+    }
+    
+    public String getBillingState() {
+        return billingState;
+    }
+    
+    public void setBillingState(String billingState) {
+        this.billingState = billingState;
+    }
+    
+    public String getBillingPostalCode() {
+        return billingPostalCode;
+    }
+    
+    public void setBillingPostalCode(String billingPostalCode) {
+        this.billingPostalCode = billingPostalCode;
+    }
+    
+    public String getBillingCountry() {
+        return billingCountry;
+    }
+    
+    public void setBillingCountry(String billingCountry) {
+        this.billingCountry = billingCountry;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AccountFormData)) return false;
+        AccountFormData that = (AccountFormData) o;
+        return Objects.equals(sfRecordId, that.sfRecordId) &&
+               Objects.equals(accountName, that.accountName) &&
+               Objects.equals(accountNumber, that.accountNumber) &&
+               Objects.equals(phone, that.phone) &&
+               Objects.equals(address, that.address) &&
+               Objects.equals(industry, that.industry) &&
+               Objects.equals(annualRevenue, that.annualRevenue) &&
+               Objects.equals(numberOfEmployees, that.numberOfEmployees) &&
+               Objects.equals(description, that.description) &&
+               Objects.equals(website, that.website) &&
+               Objects.equals(billingAddress, that.billingAddress) &&
+               Objects.equals(shippingAddress, that.shippingAddress) &&
+               Objects.equals(ownerName, that.ownerName) &&
+               Objects.equals(createdDate, that.createdDate) &&
+               Objects.equals(lastModifiedDate, that.lastModifiedDate) &&
+               Objects.equals(billingStreet, that.billingStreet) &&
+               Objects.equals(billingCity, that.billingCity) &&
+               Objects.equals(billingState, that.billingState) &&
+               Objects.equals(billingPostalCode, that.billingPostalCode) &&
+               Objects.equals(billingCountry, that.billingCountry);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(sfRecordId, accountName, accountNumber, phone, address, industry, annualRevenue,
+                numberOfEmployees, description, website, billingAddress, shippingAddress, ownerName,
+                createdDate, lastModifiedDate, billingStreet, billingCity, billingState, billingPostalCode,
+                billingCountry);
+    }
+}
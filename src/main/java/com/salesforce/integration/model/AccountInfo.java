@@ -1,24 +1,38 @@
 package com.salesforce.integration.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.util.List;
 import java.util.Map;
 
-public class AccountInfo {
-    private String id;
-    private String name;
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AccountInfo extends SalesforceRecord {
+    @JsonProperty("Phone")
     private String phone;
+
+    @JsonProperty("Website")
     private String website;
+
+    @JsonProperty("Industry")
     private String industry;
+
+    @JsonProperty("Type")
+    private String type;
+
+    @JsonProperty("AnnualRevenue")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Double annualRevenue;
+
+    @JsonProperty("Description")
     private String description;
-    private String ownerName;
-    private List<Map<String, String>> contacts;
 
-    public String getId() { return id; }
-    public void setId(String id) { this.id = id; }
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String ownerName;
 
-    public String getName() { return name; }
-    public void setName(String name) { this.name = name; }
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Map<String, String>> contacts;
 
     public String getPhone() { return phone; }
     public void setPhone(String phone) { this.phone = phone; }
@@ -29,6 +43,9 @@ public class AccountInfo {
     public String getIndustry() { return industry; }
     public void setIndustry(String industry) { this.industry = industry; }
 
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
     public Double getAnnualRevenue() { return annualRevenue; }
     public void setAnnualRevenue(Double annualRevenue) { this.annualRevenue = annualRevenue; }
 
@@ -40,4 +57,4 @@ public class AccountInfo {
 
     public List<Map<String, String>> getContacts() { return contacts; }
     public void setContacts(List<Map<String, String>> contacts) { this.contacts = contacts; }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package com.salesforce.integration.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Salesforce 记录的公共字段，字段名与 Salesforce API 保持一致，
+ * 可以直接从查询结果流式反序列化
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SalesforceRecord {
+    @JsonProperty("Id")
+    private String id;
+
+    @JsonProperty("Name")
+    private String name;
+
+    @JsonProperty("ObjectType")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String objectType;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getObjectType() { return objectType; }
+    public void setObjectType(String objectType) { this.objectType = objectType; }
+}
@@ -0,0 +1,355 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.model.AccountInfo;
+import com.salesforce.integration.model.SalesforceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Account 本地只读副本
+ * 启动后全量加载一次，之后由 DeltaSyncService 增量更新；
+ * 在 Name 前缀、Industry、Type 上维护二级索引，用于本地搜索。
+ * 副本过期（未加载或长时间未同步）时回退到 Salesforce 查询。
+ * 副本只包含默认租户（增量同步所在的组织）的数据，其他租户的搜索直接查询 Salesforce。
+ */
+@Service
+public class AccountReplicaService implements RecordChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(AccountReplicaService.class);
+
+    private static final String ACCOUNT = "Account";
+    // 粗略估算：每个对象头 + 引用约 16 字节，每个字符 2 字节
+    private static final int OBJECT_OVERHEAD = 16;
+
+    private final SalesforceApiService salesforceApiService;
+
+    @Value("${salesforce.replica.enabled:false}")
+    private boolean enabled;
+
+    @Value("${salesforce.replica.max-staleness-ms:300000}")
+    private long maxStalenessMs;
+
+    @Value("${salesforce.replica.max-records:200000}")
+    private int maxRecords;
+
+    private volatile ReplicaIndex index = new ReplicaIndex();
+    private volatile long lastFullLoadAt;
+    private volatile long lastSyncAt;
+    private volatile boolean loaded;
+    private final Object writeLock = new Object();
+    // 全量加载期间收到的增量变更，换上新索引前在新索引上重放；非 null 表示正在加载，只在 writeLock 内修改
+    private volatile List<Consumer<ReplicaIndex>> changesDuringLoad;
+
+    public AccountReplicaService(SalesforceApiService salesforceApiService) {
+        this.salesforceApiService = salesforceApiService;
+    }
+
+    /**
+     * 定时全量加载（启动后首次加载，之后周期性校正增量同步可能遗漏的数据）
+     */
+    @Scheduled(initialDelayString = "${salesforce.replica.initial-delay-ms:5000}",
+               fixedDelayString = "${salesforce.replica.full-load-interval-ms:21600000}")
+    public void scheduledFullLoad() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            fullLoad();
+        } catch (Exception e) {
+            logger.error("Account replica full load failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 全量加载：在新索引上构建完成后整体替换，读请求不受影响；
+     * 分页期间的增量变更同时记下来，替换前在新索引上重放，不会被较早的分页快照覆盖
+     */
+    public int fullLoad() throws Exception {
+        long start = System.currentTimeMillis();
+        ReplicaIndex fresh = new ReplicaIndex();
+        AtomicInteger skipped = new AtomicInteger();
+
+        int count;
+        synchronized (writeLock) {
+            changesDuringLoad = new ArrayList<>();
+        }
+        try {
+            count = salesforceApiService.queryAllRecords(ACCOUNT, null, record -> {
+                if (fresh.size() < maxRecords) {
+                    fresh.upsert((AccountInfo) record);
+                } else {
+                    skipped.incrementAndGet();
+                }
+            });
+
+            synchronized (writeLock) {
+                // 重放的记录可能比之后读到的分页旧，但之后的修改会出现在下一次增量同步中
+                for (Consumer<ReplicaIndex> change : changesDuringLoad) {
+                    change.accept(fresh);
+                }
+                index = fresh;
+                lastFullLoadAt = System.currentTimeMillis();
+                lastSyncAt = lastFullLoadAt;
+                loaded = true;
+            }
+        } finally {
+            synchronized (writeLock) {
+                changesDuringLoad = null;
+            }
+        }
+        if (skipped.get() > 0) {
+            logger.warn("Account replica is capped at {} records, {} skipped", maxRecords, skipped.get());
+        }
+        logger.info("Account replica loaded {} records in {} ms", count - skipped.get(),
+                System.currentTimeMillis() - start);
+        return fresh.size();
+    }
+
+    @Override
+    public boolean isInterestedIn(String objectType) {
+        return enabled && (loaded || changesDuringLoad != null) && ACCOUNT.equals(objectType);
+    }
+
+    @Override
+    public void onSync(String objectType, List<SalesforceRecord> updatedRecords, List<String> deletedIds) {
+        if (!isInterestedIn(objectType)) {
+            return;
+        }
+        Consumer<ReplicaIndex> change = target -> {
+            for (SalesforceRecord record : updatedRecords) {
+                if (target.size() < maxRecords || target.contains(record.getId())) {
+                    target.upsert((AccountInfo) record);
+                }
+            }
+            for (String id : deletedIds) {
+                target.remove(id);
+            }
+        };
+        synchronized (writeLock) {
+            if (loaded) {
+                change.accept(index);
+            }
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(change);
+            }
+            lastSyncAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 副本是否可用
+     */
+    public boolean isFresh() {
+        return enabled && loaded && System.currentTimeMillis() - lastSyncAt <= maxStalenessMs;
+    }
+
+    /**
+     * 搜索 Account：副本新鲜时从本地索引返回，否则回退到 SOQL 查询
+     */
+    public Map<String, Object> search(String namePrefix, String industry, String type, int limit) throws Exception {
+        long start = System.nanoTime();
+        List<AccountInfo> records;
+        String source;
+
+        if (isFresh() && TenantContext.isDefault()) {
+            records = index.search(namePrefix, industry, type, limit);
+            source = "replica";
+        } else {
+            records = searchSalesforce(namePrefix, industry, type, limit);
+            source = "salesforce";
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("source", source);
+        result.put("count", records.size());
+        result.put("records", records);
+        result.put("tookMicros", (System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    private List<AccountInfo> searchSalesforce(String namePrefix, String industry, String type, int limit) throws Exception {
+        List<String> conditions = new ArrayList<>();
+        if (namePrefix != null && !namePrefix.isEmpty()) {
+            conditions.add("Name LIKE '" + escapeLike(namePrefix) + "%'");
+        }
+        if (industry != null && !industry.isEmpty()) {
+            conditions.add("Industry = '" + escapeSoql(industry) + "'");
+        }
+        if (type != null && !type.isEmpty()) {
+            conditions.add("Type = '" + escapeSoql(type) + "'");
+        }
+        String where = (conditions.isEmpty() ? "Id != null" : String.join(" AND ", conditions)) +
+                       " ORDER BY Name LIMIT " + limit;
+
+        List<AccountInfo> records = new ArrayList<>();
+        salesforceApiService.queryAllRecords(ACCOUNT, where, record -> records.add((AccountInfo) record));
+        return records;
+    }
+
+    private static String escapeSoql(String value) {
+        return value.replace("\\", "\\\\").replace("'", "\\'");
+    }
+
+    private static String escapeLike(String value) {
+        return escapeSoql(value).replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * 获取副本统计信息
+     */
+    public Map<String, Object> getStats() {
+        ReplicaIndex current = index;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("loaded", loaded);
+        stats.put("fresh", isFresh());
+        stats.put("records", current.size());
+        stats.put("industries", current.industryIndex.size());
+        stats.put("types", current.typeIndex.size());
+        stats.put("estimatedBytes", current.estimateBytes());
+        stats.put("lastFullLoadAt", lastFullLoadAt);
+        stats.put("lastSyncAt", lastSyncAt);
+        stats.put("maxStalenessMs", maxStalenessMs);
+        return stats;
+    }
+
+    /**
+     * 副本数据和二级索引；读操作无锁，写操作由外部串行化
+     */
+    static class ReplicaIndex {
+        private final ConcurrentHashMap<String, AccountInfo> byId = new ConcurrentHashMap<>();
+        // 键为 "小写名称\0Id"，天然按名称排序，前缀查询即为一次范围扫描
+        private final ConcurrentSkipListMap<String, String> nameIndex = new ConcurrentSkipListMap<>();
+        private final ConcurrentHashMap<String, Set<String>> industryIndex = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Set<String>> typeIndex = new ConcurrentHashMap<>();
+
+        int size() {
+            return byId.size();
+        }
+
+        boolean contains(String id) {
+            return byId.containsKey(id);
+        }
+
+        void upsert(AccountInfo record) {
+            String id = record.getId();
+            if (id == null) {
+                return;
+            }
+            remove(id);
+            byId.put(id, record);
+            nameIndex.put(nameKey(record), id);
+            addTo(industryIndex, record.getIndustry(), id);
+            addTo(typeIndex, record.getType(), id);
+        }
+
+        void remove(String id) {
+            AccountInfo previous = byId.remove(id);
+            if (previous == null) {
+                return;
+            }
+            nameIndex.remove(nameKey(previous));
+            removeFrom(industryIndex, previous.getIndustry(), id);
+            removeFrom(typeIndex, previous.getType(), id);
+        }
+
+        List<AccountInfo> search(String namePrefix, String industry, String type, int limit) {
+            List<AccountInfo> results = new ArrayList<>();
+            Iterable<String> candidates;
+
+            // 选择最有选择性的索引作为驱动，其余条件作为过滤
+            if (namePrefix != null && !namePrefix.isEmpty()) {
+                String prefix = normalize(namePrefix);
+                candidates = nameIndex.subMap(prefix, prefix + Character.MAX_VALUE).values();
+            } else if (industry != null && !industry.isEmpty()) {
+                candidates = industryIndex.getOrDefault(normalize(industry), Collections.emptySet());
+            } else if (type != null && !type.isEmpty()) {
+                candidates = typeIndex.getOrDefault(normalize(type), Collections.emptySet());
+            } else {
+                candidates = nameIndex.values();
+            }
+
+            for (String id : candidates) {
+                AccountInfo record = byId.get(id);
+                if (record == null || !matches(record.getIndustry(), industry) || !matches(record.getType(), type)) {
+                    continue;
+                }
+                results.add(record);
+                if (results.size() >= limit) {
+                    break;
+                }
+            }
+            return results;
+        }
+
+        long estimateBytes() {
+            long bytes = 0;
+            for (AccountInfo record : byId.values()) {
+                bytes += OBJECT_OVERHEAD * 4 + stringBytes(record.getId()) + stringBytes(record.getName()) +
+                         stringBytes(record.getPhone()) + stringBytes(record.getWebsite()) +
+                         stringBytes(record.getIndustry()) + stringBytes(record.getType()) +
+                         stringBytes(record.getDescription()) +
+                         (record.getAnnualRevenue() != null ? OBJECT_OVERHEAD : 0);
+            }
+            for (String key : nameIndex.keySet()) {
+                bytes += OBJECT_OVERHEAD * 3 + key.length() * 2L;
+            }
+            for (Set<String> ids : industryIndex.values()) {
+                bytes += OBJECT_OVERHEAD * 2L * (ids.size() + 1);
+            }
+            for (Set<String> ids : typeIndex.values()) {
+                bytes += OBJECT_OVERHEAD * 2L * (ids.size() + 1);
+            }
+            return bytes;
+        }
+
+        private static long stringBytes(String value) {
+            return value == null ? 0 : OBJECT_OVERHEAD + value.length() * 2L;
+        }
+
+        private static boolean matches(String value, String expected) {
+            if (expected == null || expected.isEmpty()) {
+                return true;
+            }
+            return value != null && normalize(value).equals(normalize(expected));
+        }
+
+        private static String nameKey(AccountInfo record) {
+            String name = record.getName();
+            return (name == null ? "" : normalize(name)) + '\0' + record.getId();
+        }
+
+        private static void addTo(ConcurrentHashMap<String, Set<String>> index, String value, String id) {
+            if (value != null && !value.isEmpty()) {
+                index.computeIfAbsent(normalize(value), k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+
+        private static void removeFrom(ConcurrentHashMap<String, Set<String>> index, String value, String id) {
+            if (value != null && !value.isEmpty()) {
+                index.computeIfPresent(normalize(value), (k, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+
+        private static String normalize(String value) {
+            return value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.salesforce.integration.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 入站请求的自适应并发限制（AIMD）
+ * 按窗口（至少 window-ms 且至少 min-samples 个请求）统计完成请求的平均耗时：
+ * 超过 latency-target-ms 或窗口内 Salesforce 返回过过载响应（429/503/504，由 SalesforceRequestExecutor 报告）时
+ * 把上限乘以 backoff-ratio，
+ * 否则在上限确实被用到一半以上时加上 √上限。
+ * 优先级越低可用的份额越小（critical 100%、normal normal-share、low low-share），
+ * 过载时诊断和调试请求最先被拒绝，用户页面最后。
+ */
+@Service
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    /**
+     * 请求优先级，按重要性从高到低
+     */
+    public enum Priority {
+        CRITICAL, NORMAL, LOW
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetMs;
+    private final double backoffRatio;
+    private final long windowMs;
+    private final int minSamples;
+    private final double[] shares;
+
+    private volatile double limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLongArray admitted = new AtomicLongArray(Priority.values().length);
+    private final AtomicLongArray rejected = new AtomicLongArray(Priority.values().length);
+    private final AtomicLong increases = new AtomicLong();
+    private final AtomicLong decreases = new AtomicLong();
+
+    // 当前窗口，在 this 锁内更新
+    private long windowStart = System.currentTimeMillis();
+    private long windowLatencySum;
+    private int windowSamples;
+    private int windowPeakInFlight;
+    private boolean windowOverloaded;
+    private volatile long lastWindowAvgMs;
+
+    public AdaptiveConcurrencyLimiter(@Value("${salesforce.admission.initial-limit:100}") int initialLimit,
+                                      @Value("${salesforce.admission.min-limit:10}") int minLimit,
+                                      @Value("${salesforce.admission.max-limit:200}") int maxLimit,
+                                      @Value("${salesforce.admission.latency-target-ms:2000}") long latencyTargetMs,
+                                      @Value("${salesforce.admission.backoff-ratio:0.8}") double backoffRatio,
+                                      @Value("${salesforce.admission.window-ms:1000}") long windowMs,
+                                      @Value("${salesforce.admission.min-samples:10}") int minSamples,
+                                      @Value("${salesforce.admission.normal-share:0.9}") double normalShare,
+                                      @Value("${salesforce.admission.low-share:0.5}") double lowShare) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.latencyTargetMs = latencyTargetMs;
+        this.backoffRatio = backoffRatio;
+        this.windowMs = windowMs;
+        this.minSamples = Math.max(1, minSamples);
+        this.shares = new double[] {1.0, normalShare, lowShare};
+    }
+
+    /**
+     * 尝试占用一个并发名额；成功后必须调用 release
+     */
+    public boolean tryAcquire(Priority priority) {
+        // 每个优先级至少保留一个名额，上限很低时也不会完全饿死
+        int allowed = Math.max(1, (int) (limit * shares[priority.ordinal()]));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                rejected.incrementAndGet(priority.ordinal());
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.incrementAndGet(priority.ordinal());
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Salesforce 返回 429/503/504：当前窗口结束时收缩上限。
+     * 不看本应用自己的响应码，连接数超限、存储节点未开启等自身拒绝不代表下游过载
+     */
+    public synchronized void onUpstreamOverload() {
+        windowOverloaded = true;
+    }
+
+    /**
+     * 释放名额并记录样本；sample 为 false 时（如异步请求只完成了开始阶段）不计入耗时
+     */
+    public void release(long latencyMs, boolean sample) {
+        int peak = inFlight.getAndDecrement();
+        if (!sample) {
+            return;
+        }
+        synchronized (this) {
+            windowLatencySum += latencyMs;
+            windowSamples++;
+            windowPeakInFlight = Math.max(windowPeakInFlight, peak);
+            long now = System.currentTimeMillis();
+            if (windowSamples < minSamples || now - windowStart < windowMs) {
+                return;
+            }
+            long average = windowLatencySum / windowSamples;
+            lastWindowAvgMs = average;
+            double current = limit;
+            if (windowOverloaded || average > latencyTargetMs) {
+                limit = Math.max(minLimit, current * backoffRatio);
+                decreases.incrementAndGet();
+                logger.info("Admission limit decreased {} -> {} (avg {} ms, overloaded={})",
+                        (int) current, (int) limit, average, windowOverloaded);
+            } else if (windowPeakInFlight * 2 >= current) {
+                limit = Math.min(maxLimit, current + Math.sqrt(current));
+                increases.incrementAndGet();
+            }
+            windowStart = now;
+            windowLatencySum = 0;
+            windowSamples = 0;
+            windowPeakInFlight = 0;
+            windowOverloaded = false;
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 获取并发限制统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("limit", (int) limit);
+        stats.put("minLimit", minLimit);
+        stats.put("maxLimit", maxLimit);
+        stats.put("inFlight", inFlight.get());
+        stats.put("latencyTargetMs", latencyTargetMs);
+        stats.put("lastWindowAvgMs", lastWindowAvgMs);
+        stats.put("increases", increases.get());
+        stats.put("decreases", decreases.get());
+        Map<String, Object> byPriority = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("share", shares[priority.ordinal()]);
+            counts.put("admitted", admitted.get(priority.ordinal()));
+            counts.put("rejected", rejected.get(priority.ordinal()));
+            byPriority.put(priority.name().toLowerCase(), counts);
+        }
+        stats.put("priorities", byPriority);
+        return stats;
+    }
+}
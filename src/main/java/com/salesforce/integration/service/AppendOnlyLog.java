@@ -0,0 +1,217 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 追加写入的 NDJSON 日志（每行一条记录），TaskQueueService 和 FormSyncOutbox 的持久化层
+ * 并发写入共用一次 fsync（组提交）；日志超过 compact-bytes（或上次压缩后大小的两倍）时由调用方用当前状态重写。
+ * 调用方负责保证重写时不会漏掉已写入但尚未登记的记录（在同一把锁内写入和登记）。
+ */
+final class AppendOnlyLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AppendOnlyLog.class);
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final boolean fsync;
+    private final long compactBytes;
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    // 已写入和已落盘的字节数（逻辑位置，重写后不重置）
+    private long appendedBytes;
+    private volatile long syncedBytes;
+    // 重写后保留的状态本身可能超过 compact-bytes，下一次重写至少等日志翻倍
+    private long compactThreshold;
+
+    AppendOnlyLog(Path file, ObjectMapper objectMapper, boolean fsync, long compactBytes) throws IOException {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+        this.compactBytes = compactBytes;
+        this.compactThreshold = compactBytes;
+        Files.createDirectories(file.getParent());
+        this.channel = open();
+    }
+
+    /**
+     * 按顺序读出全部记录；写了一半的行在打开日志时已被截掉，其余无法解析的行会被跳过
+     */
+    @SuppressWarnings("unchecked")
+    void replay(Consumer<Map<String, Object>> consumer) throws IOException {
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Map<String, Object> record;
+                try {
+                    record = objectMapper.readValue(line, Map.class);
+                } catch (IOException e) {
+                    logger.warn("Skipping unreadable line {} of {}", lineNumber, file);
+                    continue;
+                }
+                consumer.accept(record);
+            }
+        }
+    }
+
+    /**
+     * 追加记录，返回写入后的逻辑位置，配合 awaitDurable 使用
+     */
+    synchronized long append(List<Map<String, Object>> records) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Map<String, Object> record : records) {
+            lines.append(objectMapper.writeValueAsString(record)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        long start = channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // 写了一半（例如磁盘已满）：截回写入前的位置，否则下一条记录会接在残行后面，重放时一起被丢弃
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        appendedBytes += buffer.limit();
+        return appendedBytes;
+    }
+
+    /**
+     * 等待写到 position 的记录落盘；一次 fsync 覆盖此前所有并发写入
+     */
+    void awaitDurable(long position) throws IOException {
+        if (!fsync || syncedBytes >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedBytes >= position) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = appendedBytes;
+                current = channel;
+            }
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // 日志刚被重写替换，新文件在替换前已经落盘
+            }
+            syncedBytes = Math.max(syncedBytes, target);
+        }
+    }
+
+    synchronized boolean needsCompaction() throws IOException {
+        return channel.size() >= compactThreshold;
+    }
+
+    /**
+     * 用给定记录替换日志内容（写临时文件、落盘后原子替换）
+     */
+    synchronized void rewrite(Iterable<Map<String, Object>> records) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map<String, Object> record : records) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.write('\n');
+            }
+        }
+        try (FileChannel written = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            written.force(true);
+        }
+        channel.close();
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = open();
+        }
+        syncedBytes = appendedBytes;
+        compactThreshold = Math.max(compactBytes, channel.size() * 2);
+    }
+
+    synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * 打开日志并定位到末尾；崩溃留下的不完整末行（最后一个换行符之后的字节）被截掉，新记录从完整行之后开始写
+     */
+    private FileChannel open() throws IOException {
+        FileChannel opened = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = opened.size();
+            long end = endOfLastLine(opened, size);
+            if (end < size) {
+                logger.warn("Truncating {} incomplete trailing bytes of {}", size - end, file);
+                opened.truncate(end);
+                opened.force(false);
+            }
+            opened.position(end);
+            return opened;
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 最后一个换行符之后的位置，没有换行符时为 0
+     */
+    private static long endOfLastLine(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long end = size;
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of " + channel);
+                }
+            }
+            for (int i = buffer.limit() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,251 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.model.SalesforceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 增量同步服务
+ * 定时调用 sObject updated / deleted 接口，只拉取变更的 ID：
+ * 已缓存的记录按批刷新，已删除的记录从缓存淘汰。
+ * 同步水位持久化到文件，重启后从上次位置继续。只同步默认租户（默认 org）。
+ */
+@Service
+public class DeltaSyncService {
+    private static final Logger logger = LoggerFactory.getLogger(DeltaSyncService.class);
+
+    private static final DateTimeFormatter SF_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+    // Salesforce 返回的时间形如 2013-05-08T20:00:00.000+0000
+    private static final DateTimeFormatter SF_DATE_PARSER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss[.SSS][XXX][XX]");
+    // updated / deleted 接口只保留 30 天的数据
+    private static final long MAX_WINDOW_DAYS = 29;
+
+    private final SalesforceApiService salesforceApiService;
+    private final RecordCache recordCache;
+    private final ObjectMapper objectMapper;
+    private final Map<String, String> watermarks = new ConcurrentHashMap<>();
+    private final Map<String, Object> lastRun = new ConcurrentHashMap<>();
+
+    @Value("${salesforce.sync.enabled:false}")
+    private boolean enabled;
+
+    @Value("${salesforce.sync.object-types:Account,ffscpq__Estimate__c}")
+    private List<String> objectTypes;
+
+    @Value("${salesforce.sync.batch-size:200}")
+    private int batchSize;
+
+    private final Path stateFile;
+    private final ObjectProvider<RecordChangeListener> listeners;
+
+    public DeltaSyncService(SalesforceApiService salesforceApiService,
+                            RecordCache recordCache,
+                            ObjectProvider<RecordChangeListener> listeners,
+                            ObjectMapper objectMapper,
+                            @Value("${salesforce.sync.state-file:${java.io.tmpdir}/salesforce-sync/watermarks.json}") String stateFile) {
+        this.salesforceApiService = salesforceApiService;
+        this.recordCache = recordCache;
+        this.listeners = listeners;
+        this.objectMapper = objectMapper;
+        this.stateFile = Paths.get(stateFile);
+        loadWatermarks();
+    }
+
+    /**
+     * 定时执行增量同步
+     */
+    @Scheduled(fixedDelayString = "${salesforce.sync.interval-ms:60000}",
+               initialDelayString = "${salesforce.sync.initial-delay-ms:30000}")
+    public void scheduledSync() {
+        if (!enabled) {
+            return;
+        }
+        syncAll();
+    }
+
+    /**
+     * 同步所有配置的对象类型
+     * 水位只有一份，始终以默认租户执行，不受调用方（如 /org/{org}/diag/sync）的租户影响
+     */
+    public synchronized Map<String, Object> syncAll() {
+        try {
+            return TenantContext.callAs(TenantContext.DEFAULT_TENANT, this::syncDefaultTenant);
+        } catch (Exception e) {
+            // syncDefaultTenant 按对象类型捕获了异常，这里不会发生
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, Object> syncDefaultTenant() {
+        Map<String, Object> summary = new HashMap<>();
+        for (String objectType : objectTypes) {
+            try {
+                summary.put(objectType, syncObject(objectType));
+            } catch (Exception e) {
+                logger.error("Delta sync failed for {}: {}", objectType, e.getMessage(), e);
+                summary.put(objectType, Map.of("error", String.valueOf(e.getMessage())));
+            }
+        }
+        lastRun.clear();
+        lastRun.putAll(summary);
+        lastRun.put("finishedAt", System.currentTimeMillis());
+        return summary;
+    }
+
+    private Map<String, Object> syncObject(String objectType) throws Exception {
+        // 接口要求时间精确到分钟，且窗口至少 1 分钟
+        OffsetDateTime end = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MINUTES);
+        OffsetDateTime start = watermarks.containsKey(objectType)
+                ? OffsetDateTime.parse(watermarks.get(objectType), SF_DATE_PARSER)
+                : null;
+
+        if (start == null || start.isBefore(end.minusDays(MAX_WINDOW_DAYS))) {
+            // 首次运行或水位过旧：无法增量追赶，清空该类型缓存后从当前时间开始
+            recordCache.evictAll(objectType);
+            saveWatermark(objectType, end);
+            return Map.of("reset", true);
+        }
+        if (!start.isBefore(end)) {
+            return Map.of("updated", 0, "deleted", 0);
+        }
+
+        String startText = SF_DATE_FORMAT.format(start);
+        String endText = SF_DATE_FORMAT.format(end);
+
+        JsonNode updated = salesforceApiService.getChangedRecords(objectType, "updated", startText, endText);
+        JsonNode deleted = salesforceApiService.getChangedRecords(objectType, "deleted", startText, endText);
+
+        // 默认只刷新本地缓存中存在的记录，其余变更在下次读取时按需加载；
+        // 有监听器需要全部变更时才拉取全部变更记录
+        boolean fetchAll = listeners.stream().anyMatch(listener -> listener.isInterestedIn(objectType));
+        List<String> fetchIds = new ArrayList<>();
+        int updatedCount = 0;
+        for (JsonNode id : updated.path("ids")) {
+            updatedCount++;
+            // 新建的记录也出现在 updated 中，清除它之前的未找到记录
+            recordCache.evictMissing(objectType, id.asText());
+            if (fetchAll || recordCache.contains(objectType, id.asText())) {
+                fetchIds.add(id.asText());
+            }
+        }
+        List<SalesforceRecord> updatedRecords = fetchIds.isEmpty()
+                ? Collections.emptyList()
+                : salesforceApiService.getRecordsByIds(objectType, fetchIds, batchSize);
+        int refreshed = 0;
+        for (SalesforceRecord record : updatedRecords) {
+            String id = record.getId();
+            if (recordCache.contains(objectType, id)) {
+                recordCache.put(objectType, id, record);
+                refreshed++;
+            }
+        }
+
+        List<String> deletedIds = new ArrayList<>();
+        for (JsonNode record : deleted.path("deletedRecords")) {
+            String id = record.path("id").asText();
+            deletedIds.add(id);
+            recordCache.evict(objectType, id);
+        }
+        int deletedCount = deletedIds.size();
+
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onSync(objectType, updatedRecords, deletedIds);
+            } catch (Exception e) {
+                logger.error("Record change listener {} failed for {}", listener.getClass().getSimpleName(), objectType, e);
+            }
+        });
+
+        OffsetDateTime covered = coveredUntil(updated, deleted, end);
+        saveWatermark(objectType, covered.isAfter(start) ? covered : start);
+
+        if (updatedCount > 0 || deletedCount > 0) {
+            logger.info("Delta sync {}: {} updated ({} refreshed), {} deleted",
+                    objectType, updatedCount, refreshed, deletedCount);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("updated", updatedCount);
+        result.put("refreshed", refreshed);
+        result.put("deleted", deletedCount);
+        return result;
+    }
+
+    /**
+     * 下次同步的起点取两个接口 latestDateCovered 的较小值
+     */
+    private OffsetDateTime coveredUntil(JsonNode updated, JsonNode deleted, OffsetDateTime end) {
+        OffsetDateTime covered = end;
+        for (JsonNode response : List.of(updated, deleted)) {
+            String latest = response.path("latestDateCovered").asText(null);
+            if (latest != null) {
+                OffsetDateTime latestTime = OffsetDateTime.parse(latest, SF_DATE_PARSER)
+                        .truncatedTo(ChronoUnit.MINUTES);
+                if (latestTime.isBefore(covered)) {
+                    covered = latestTime;
+                }
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * 获取同步状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("objectTypes", objectTypes);
+        status.put("watermarks", new HashMap<>(watermarks));
+        status.put("lastRun", new HashMap<>(lastRun));
+        status.put("cache", recordCache.getStats());
+        return status;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadWatermarks() {
+        try {
+            if (Files.exists(stateFile)) {
+                watermarks.putAll(objectMapper.readValue(stateFile.toFile(), Map.class));
+                logger.info("Loaded delta sync watermarks: {}", watermarks);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to load delta sync watermarks from {}", stateFile, e);
+        }
+    }
+
+    private void saveWatermark(String objectType, OffsetDateTime watermark) {
+        watermarks.put(objectType, SF_DATE_FORMAT.format(watermark));
+        try {
+            Files.createDirectories(stateFile.getParent());
+            // 先写临时文件再原子替换，避免崩溃时留下半个文件
+            Path tempFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tempFile.toFile(), watermarks);
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to persist delta sync watermark for {}", objectType, e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.salesforce.integration.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 诊断探测执行器：把一组探测（不同对象名、API 版本等）并行提交到有界线程池，在一个总的截止时间内收集结果。
+ * 截止时间到达时取消未完成的探测并返回已有的部分结果，线程池满时直接标记为 rejected，
+ * org 响应很慢时诊断接口也不会长时间占用请求线程。
+ * 探测使用自己的 RestTemplate（连接和读取超时不超过截止时间），不占用租户的连接池。
+ */
+@Service
+public class DiagnosticProbeRunner {
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosticProbeRunner.class);
+
+    public static final String OK = "ok";
+    public static final String ERROR = "error";
+    public static final String TIMEOUT = "timeout";
+    public static final String REJECTED = "rejected";
+
+    /**
+     * 单个探测，返回值放入结果的 result 字段
+     */
+    @FunctionalInterface
+    public interface Probe {
+        Object run(RestTemplate restTemplate) throws Exception;
+    }
+
+    private final long deadlineMs;
+    private final RestTemplate restTemplate;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public DiagnosticProbeRunner(@Value("${salesforce.probes.deadline-ms:5000}") long deadlineMs,
+                                 @Value("${salesforce.probes.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                 @Value("${salesforce.probes.max-threads:8}") int maxThreads,
+                                 @Value("${salesforce.probes.queue-capacity:32}") int queueCapacity) {
+        this.deadlineMs = deadlineMs;
+        // 被取消的探测可能仍阻塞在 socket 读取上，读取超时保证线程最终被释放
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) Math.min(connectTimeoutMs, deadlineMs));
+        requestFactory.setReadTimeout((int) deadlineMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "diag-probe-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 使用默认截止时间执行
+     */
+    public Map<String, Object> run(Map<String, Probe> probeSet) {
+        return run(probeSet, deadlineMs);
+    }
+
+    /**
+     * 以当前租户并行执行探测，最多等待 timeoutMs；返回 results（按探测名，保持输入顺序）、
+     * complete（是否全部在截止前结束）、elapsedMs 和 deadlineMs
+     */
+    public Map<String, Object> run(Map<String, Probe> probeSet, long timeoutMs) {
+        runs.incrementAndGet();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        String tenantId = TenantContext.current();
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        Map<String, Future<Map<String, Object>>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Probe> probe : probeSet.entrySet()) {
+            probes.incrementAndGet();
+            try {
+                futures.put(probe.getKey(), executor.submit(() ->
+                        TenantContext.callAs(tenantId, () -> execute(probe.getValue()))));
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                results.put(probe.getKey(), outcome(REJECTED, 0));
+            }
+        }
+
+        // 有探测被拒绝时结果也不完整
+        boolean complete = results.isEmpty();
+        for (Map.Entry<String, Future<Map<String, Object>>> entry : futures.entrySet()) {
+            Future<Map<String, Object>> future = entry.getValue();
+            try {
+                results.put(entry.getKey(), future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                timedOut.incrementAndGet();
+                complete = false;
+                results.put(entry.getKey(), outcome(TIMEOUT, elapsedMs(start)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                complete = false;
+                results.put(entry.getKey(), outcome(TIMEOUT, elapsedMs(start)));
+            } catch (ExecutionException e) {
+                // execute 已经捕获了探测的异常，这里只会是意外的运行时错误
+                failed.incrementAndGet();
+                Map<String, Object> outcome = outcome(ERROR, elapsedMs(start));
+                outcome.put("error", String.valueOf(e.getCause()));
+                results.put(entry.getKey(), outcome);
+            }
+        }
+        // 按输入顺序返回（被拒绝的探测先放入了 results）
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        for (String name : probeSet.keySet()) {
+            ordered.put(name, results.get(name));
+        }
+        if (!complete) {
+            logger.warn("Diagnostic probes did not finish within {} ms: {}", timeoutMs, probeSet.keySet());
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("results", ordered);
+        report.put("complete", complete);
+        report.put("elapsedMs", elapsedMs(start));
+        report.put("deadlineMs", timeoutMs);
+        return report;
+    }
+
+    private Map<String, Object> execute(Probe probe) {
+        long start = System.nanoTime();
+        try {
+            Object result = probe.run(restTemplate);
+            Map<String, Object> outcome = outcome(OK, elapsedMs(start));
+            outcome.put("result", result);
+            return outcome;
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            Map<String, Object> outcome = outcome(ERROR, elapsedMs(start));
+            outcome.put("error", e.getMessage());
+            if (e instanceof HttpStatusCodeException) {
+                HttpStatusCodeException httpEx = (HttpStatusCodeException) e;
+                outcome.put("httpStatus", httpEx.getRawStatusCode());
+                outcome.put("responseBody", httpEx.getResponseBodyAsString());
+            }
+            return outcome;
+        }
+    }
+
+    private static Map<String, Object> outcome(String status, long elapsedMs) {
+        Map<String, Object> outcome = new LinkedHashMap<>();
+        outcome.put("status", status);
+        outcome.put("success", OK.equals(status));
+        outcome.put("elapsedMs", elapsedMs);
+        return outcome;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 获取探测统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("deadlineMs", deadlineMs);
+        stats.put("maxThreads", executor.getMaximumPoolSize());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("runs", runs.get());
+        stats.put("probes", probes.get());
+        stats.put("failed", failed.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
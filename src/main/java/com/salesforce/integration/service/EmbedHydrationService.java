@@ -0,0 +1,201 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.model.SalesforceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * /embed 页面的数据内联
+ * 渲染页面前在后台线程读取记录（通常命中 RecordCache），在限定时间内拿到则以 JSON 内联到页面，
+ * 客户端无需再请求 /api/{type}/{id}；超时或不支持的对象类型返回 null，由客户端照常请求。
+ * 同时汇总客户端上报的 time-to-data，用于对比内联前后的效果。
+ */
+@Service
+public class EmbedHydrationService {
+    private static final Logger logger = LoggerFactory.getLogger(EmbedHydrationService.class);
+
+    private final SalesforceApiService salesforceApiService;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+    private final boolean enabled;
+    private final long timeoutMs;
+
+    private final AtomicLong hydrated = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final Map<String, TimeToData> timeToData = new HashMap<>();
+
+    public EmbedHydrationService(SalesforceApiService salesforceApiService, ObjectMapper objectMapper,
+                                 @Value("${salesforce.embed.hydration-enabled:true}") boolean enabled,
+                                 @Value("${salesforce.embed.hydration-timeout-ms:1500}") long timeoutMs,
+                                 @Value("${salesforce.embed.hydration-threads:8}") int threads) {
+        this.salesforceApiService = salesforceApiService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(threads * 16), r -> {
+                    Thread t = new Thread(r, "embed-hydrate-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        timeToData.put("hydrated", new TimeToData());
+        timeToData.put("fetched", new TimeToData());
+    }
+
+    /**
+     * 开始读取记录；返回的 Future 结果为可直接内联的 JSON，不支持的记录类型结果为 null
+     */
+    public CompletableFuture<HydratedRecord> startHydration(String recordId) {
+        String objectType = enabled ? objectTypeFor(recordId) : null;
+        if (objectType == null) {
+            skipped.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            // 后台线程沿用当前请求的租户
+            return CompletableFuture.supplyAsync(() -> load(objectType, recordId),
+                    task -> executor.execute(TenantContext.wrap(RequestTiming.wrap(task))));
+        } catch (Exception e) {
+            // 线程池已满时不阻塞页面，交给客户端请求
+            skipped.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * 在超时时间内等待读取结果；超时后后台读取仍会继续并写入缓存，客户端随后的请求可以直接命中
+     */
+    public HydratedRecord await(CompletableFuture<HydratedRecord> future) {
+        try {
+            HydratedRecord record = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            if (record != null) {
+                hydrated.incrementAndGet();
+            }
+            return record;
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            logger.info("Embed hydration timed out after {} ms, client will fetch", timeoutMs);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            failures.incrementAndGet();
+            logger.warn("Embed hydration failed: {}", e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    private HydratedRecord load(String objectType, String recordId) {
+        try {
+            SalesforceRecord record = "Account".equals(objectType)
+                    ? salesforceApiService.getAccountById(recordId)
+                    : salesforceApiService.getEstimateById(recordId);
+            // 转义 '<'，内联到 <script> 中时不会被提前闭合
+            String json = objectMapper.writeValueAsString(record).replace("<", "\\u003c");
+            return new HydratedRecord(objectType, json);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 与 embed.html 中 fetchRecord() 的前缀映射保持一致，只内联有对应 API 的类型；
+     * 格式不合法的 ID 直接跳过，不发起查询，也不计为读取失败
+     */
+    static String objectTypeFor(String recordId) {
+        if (!SoqlTemplate.isRecordId(recordId)) {
+            return null;
+        }
+        switch (recordId.substring(0, 3)) {
+            case "001": return "Account";
+            case "a6W": return "ffscpq__Estimate__c";
+            default: return null;
+        }
+    }
+
+    /**
+     * 记录客户端上报的 time-to-data（从导航开始到数据显示）
+     */
+    public void recordTimeToData(boolean wasHydrated, long millis) {
+        if (millis < 0 || millis > TimeUnit.MINUTES.toMillis(5)) {
+            return;
+        }
+        timeToData.get(wasHydrated ? "hydrated" : "fetched").record(millis);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("timeoutMs", timeoutMs);
+        stats.put("hydrated", hydrated.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("failures", failures.get());
+        stats.put("skipped", skipped.get());
+        Map<String, Object> ttd = new HashMap<>();
+        timeToData.forEach((mode, samples) -> ttd.put(mode, samples.toMap()));
+        stats.put("timeToData", ttd);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 内联到页面的记录
+     */
+    public static class HydratedRecord {
+        private final String objectType;
+        private final String json;
+
+        HydratedRecord(String objectType, String json) {
+            this.objectType = objectType;
+            this.json = json;
+        }
+
+        public String getObjectType() { return objectType; }
+        public String getJson() { return json; }
+    }
+
+    private static class TimeToData {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+
+        void record(long millis) {
+            count.incrementAndGet();
+            totalMs.addAndGet(millis);
+            maxMs.accumulateAndGet(millis, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.get();
+            Map<String, Object> map = new HashMap<>();
+            map.put("count", n);
+            map.put("avgMs", n == 0 ? 0 : totalMs.get() / n);
+            map.put("maxMs", maxMs.get());
+            return map;
+        }
+    }
+}
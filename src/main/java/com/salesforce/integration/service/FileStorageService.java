@@ -3,103 +3,145 @@ package com.salesforce.integration.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 
+/**
+ * 表单数据存储
+ * 数据保存在 FormDataStore 后端（本地目录或共享存储节点）；本节点维护一份读缓存，
+ * 读取前用后端版本号校验缓存是否仍然有效，其他副本保存的数据在下一次校验时即可见。
+ * revalidate-ms 大于 0 时，在该时间窗口内直接信任缓存，以有限的陈旧换取更少的后端请求。
+ * 启用发件箱时，每次保存先在发件箱日志中登记，由 FormSyncOutbox 异步写回 Salesforce；
+ * 保存成功后推送给该记录的 SSE 订阅者，并更新本节点的全文索引（FormSearchIndex）。
+ */
 @Service
 public class FileStorageService {
     private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
-    
-    private static final String STORAGE_DIR = System.getProperty("java.io.tmpdir") + "/salesforce-form-data";
+
     private final ObjectMapper objectMapper;
-    
-    public FileStorageService() {
-        this.objectMapper = new ObjectMapper();
-        initializeStorageDirectory();
-    }
-    
-    /**
-     * 初始化存储目录
-     */
-    private void initializeStorageDirectory() {
-        try {
-            Path storagePath = Paths.get(STORAGE_DIR);
-            if (!Files.exists(storagePath)) {
-                Files.createDirectories(storagePath);
-                logger.info("Created storage directory: {}", STORAGE_DIR);
-            }
-        } catch (IOException e) {
-            logger.error("Failed to create storage directory", e);
-        }
+    private final FormDataStore store;
+    private final FormSyncOutbox outbox;
+    private final RecordEventHub events;
+    private final FormSearchIndex searchIndex;
+    private final long revalidateMs;
+    private final int maxCachedEntries;
+    private final ConcurrentHashMap<String, CachedDocument> readCache = new ConcurrentHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    public FileStorageService(ObjectMapper objectMapper,
+                              FormDataStore store,
+                              FormSyncOutbox outbox,
+                              RecordEventHub events,
+                              FormSearchIndex searchIndex,
+                              @Value("${salesforce.storage.cache.revalidate-ms:0}") long revalidateMs,
+                              @Value("${salesforce.storage.cache.max-entries:1000}") int maxCachedEntries) {
+        this.objectMapper = objectMapper;
+        this.store = store;
+        this.outbox = outbox;
+        this.events = events;
+        this.searchIndex = searchIndex;
+        this.revalidateMs = revalidateMs;
+        this.maxCachedEntries = maxCachedEntries;
     }
-    
+
     /**
-     * 保存账户表单数据到文件
+     * 保存账户表单数据
      * @param recordId Salesforce Record ID
      * @param formData 表单数据
      * @return 是否保存成功
      */
     public boolean saveAccountData(String recordId, Map<String, Object> formData) {
         try {
-            String fileName = getFileName(recordId);
-            Path filePath = Paths.get(fileName);
-            
             // 转换为 JSON 并保存
-            String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(formData);
-            Files.writeString(filePath, json);
-            
-            logger.info("Saved account data for recordId: {} to {}", recordId, fileName);
+            byte[] json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(formData);
+            outbox.beforeSave(recordId);
+            long version;
+            try {
+                version = timed("write", recordId, () -> store.write(recordId, json), v -> json.length);
+            } finally {
+                outbox.afterSave(recordId);
+            }
+            cache(recordId, new FormDataStore.StoredDocument(version, json));
+            events.formSaved(recordId, formData);
+            searchIndex.update(recordId, version, formData);
+
+            logger.debug("Saved account data for recordId: {} (version {})", recordId, version);
             return true;
         } catch (IOException e) {
             logger.error("Failed to save account data for recordId: {}", recordId, e);
             return false;
         }
     }
-    
+
     /**
-     * 从文件读取账户表单数据
+     * 写入批量导入的文档：直接写入存储后端，不登记发件箱、不推送 SSE（迁移和恢复不应触发写回 Salesforce）
+     * @param content 已校验的 JSON 文档
+     * @return 新版本号
+     */
+    public long importAccountData(String recordId, byte[] content) throws IOException {
+        long version = timed("import", recordId, () -> store.write(recordId, content), v -> content.length);
+        cache(recordId, new FormDataStore.StoredDocument(version, content));
+        searchIndex.update(recordId, version, content);
+        return version;
+    }
+
+    /**
+     * 读取账户表单数据
      * @param recordId Salesforce Record ID
      * @return 表单数据，如果不存在返回 null
      */
     @SuppressWarnings("unchecked")
     public Map<String, Object> loadAccountData(String recordId) {
         try {
-            String fileName = getFileName(recordId);
-            Path filePath = Paths.get(fileName);
-            
-            if (Files.exists(filePath)) {
-                String json = Files.readString(filePath);
-                Map<String, Object> data = objectMapper.readValue(json, Map.class);
-                logger.info("Loaded account data for recordId: {} from {}", recordId, fileName);
-                return data;
-            } else {
-                logger.info("No saved data found for recordId: {}", recordId);
+            FormDataStore.StoredDocument document = currentDocument(recordId);
+            if (document == null) {
+                logger.debug("No saved data found for recordId: {}", recordId);
                 return null;
             }
+            // 每次返回新的 Map，调用方可以修改
+            Map<String, Object> data = objectMapper.readValue(document.getContent(), Map.class);
+            logger.debug("Loaded account data for recordId: {} (version {})", recordId, document.getVersion());
+            return data;
         } catch (IOException e) {
             logger.error("Failed to load account data for recordId: {}", recordId, e);
             return null;
         }
     }
-    
+
     /**
      * 检查是否存在已保存的数据
      * @param recordId Salesforce Record ID
      * @return true 如果存在已保存的数据
      */
     public boolean hasSavedData(String recordId) {
-        String fileName = getFileName(recordId);
-        Path filePath = Paths.get(fileName);
-        return Files.exists(filePath);
+        return getDataVersion(recordId) != null;
     }
-    
+
+    /**
+     * 获取已保存数据的版本号，用于判断页面缓存是否过期
+     * @param recordId Salesforce Record ID
+     * @return 版本字符串，如果不存在返回 null
+     */
+    public String getDataVersion(String recordId) {
+        try {
+            Long version = currentVersion(recordId);
+            return version != null ? Long.toString(version) : null;
+        } catch (IOException e) {
+            logger.error("Failed to read data version for recordId: {}", recordId, e);
+            return null;
+        }
+    }
+
     /**
      * 删除已保存的数据
      * @param recordId Salesforce Record ID
@@ -107,64 +149,167 @@ public class FileStorageService {
      */
     public boolean deleteAccountData(String recordId) {
         try {
-            String fileName = getFileName(recordId);
-            Path filePath = Paths.get(fileName);
-            
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
+            boolean deleted = timed("delete", recordId, () -> store.delete(recordId), d -> 0);
+            readCache.remove(recordId);
+            if (deleted) {
+                searchIndex.remove(recordId);
                 logger.info("Deleted account data for recordId: {}", recordId);
-                return true;
             } else {
                 logger.warn("Attempted to delete non-existent data for recordId: {}", recordId);
-                return false;
             }
+            return deleted;
         } catch (IOException e) {
             logger.error("Failed to delete account data for recordId: {}", recordId, e);
             return false;
         }
     }
-    
+
     /**
-     * 获取所有已保存的记录 ID
-     * @return 记录 ID 列表
+     * 获取所有已保存的记录 ID（来自存储清单，不扫描目录）；记录较多时使用 listSavedRecords 分页
+     * @return 记录 ID 到版本号（保存时间）的映射
      */
     public Map<String, Long> getAllSavedRecords() {
-        Map<String, Long> records = new HashMap<>();
         try {
-            Path storagePath = Paths.get(STORAGE_DIR);
-            if (Files.exists(storagePath) && Files.isDirectory(storagePath)) {
-                Files.list(storagePath)
-                    .filter(path -> path.toString().endsWith(".json"))
-                    .forEach(path -> {
-                        String fileName = path.getFileName().toString();
-                        String recordId = fileName.replace(".json", "");
-                        try {
-                            long lastModified = Files.getLastModifiedTime(path).toMillis();
-                            records.put(recordId, lastModified);
-                        } catch (IOException e) {
-                            logger.error("Failed to get last modified time for {}", path, e);
-                        }
-                    });
-            }
+            return timed("list", null, store::list, records -> 0);
         } catch (IOException e) {
             logger.error("Failed to list saved records", e);
+            return new HashMap<>();
         }
-        return records;
     }
-    
+
     /**
-     * 根据 Record ID 生成文件名
+     * 按修改时间分页列出已保存的记录，只读取存储清单中本页的条目
+     * @param cursor 上一页返回的 nextCursor，第一页为 null
+     * @param since 只包含在此时间（毫秒）之后修改的记录
+     * @param newestFirst true 时最近保存的在前
      */
-    private String getFileName(String recordId) {
-        // 清理 recordId 中的特殊字符，确保文件名安全
-        String cleanRecordId = recordId.replaceAll("[^a-zA-Z0-9]", "_");
-        return STORAGE_DIR + "/account_" + cleanRecordId + ".json";
+    public FormDataStore.Page listSavedRecords(String cursor, long since, boolean newestFirst, int limit)
+            throws IOException {
+        return timed("list-page", null, () -> store.listPage(cursor, since, newestFirst, limit), page -> 0);
     }
-    
+
     /**
-     * 获取存储目录路径
+     * 获取存储后端描述
      */
     public String getStorageDirectory() {
-        return STORAGE_DIR;
+        return store.describe();
+    }
+
+    /**
+     * 获取读缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("backend", store.describe());
+        stats.put("cachedEntries", readCache.size());
+        stats.put("maxCachedEntries", maxCachedEntries);
+        stats.put("revalidateMs", revalidateMs);
+        stats.put("hits", cacheHits.get());
+        stats.put("misses", cacheMisses.get());
+        stats.put("revalidations", revalidations.get());
+        return stats;
+    }
+
+    /**
+     * 返回当前版本：校验窗口内直接使用缓存版本，否则向后端查询版本（不传输内容）
+     */
+    private Long currentVersion(String recordId) throws IOException {
+        CachedDocument cached = readCache.get(recordId);
+        if (cached != null && cached.isTrusted(revalidateMs)) {
+            return cached.document.getVersion();
+        }
+        Long version = timed("version", recordId, () -> store.version(recordId), v -> 0);
+        revalidations.incrementAndGet();
+        if (cached != null) {
+            if (version != null && version == cached.document.getVersion()) {
+                readCache.replace(recordId, cached, new CachedDocument(cached.document));
+            } else {
+                // 其他副本修改或删除了数据
+                readCache.remove(recordId, cached);
+            }
+        }
+        return version;
+    }
+
+    /**
+     * 返回当前文档：缓存版本与后端一致时直接使用缓存内容
+     */
+    private FormDataStore.StoredDocument currentDocument(String recordId) throws IOException {
+        Long version = currentVersion(recordId);
+        if (version == null) {
+            return null;
+        }
+        CachedDocument cached = readCache.get(recordId);
+        if (cached != null && cached.document.getVersion() == version) {
+            cacheHits.incrementAndGet();
+            return cached.document;
+        }
+        cacheMisses.incrementAndGet();
+        FormDataStore.StoredDocument document = timed("read", recordId, () -> store.read(recordId),
+                d -> d != null ? d.getContent().length : 0);
+        if (document != null) {
+            cache(recordId, document);
+        }
+        return document;
+    }
+
+    /**
+     * 调用存储后端：耗时计入请求的 storage 阶段，JFR 开启 StorageIo 事件时同时记录事件
+     */
+    private <T> T timed(String operation, String recordId, StoreCall<T> call, ToLongFunction<T> bytesOf)
+            throws IOException {
+        StorageIoEvent event = new StorageIoEvent();
+        event.begin();
+        long start = RequestTiming.begin();
+        T result = null;
+        try {
+            result = call.call();
+            event.success = true;
+            return result;
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.STORAGE, start);
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.recordId = recordId;
+                event.backend = store.describe();
+                event.bytes = event.success ? bytesOf.applyAsLong(result) : 0;
+                event.commit();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface StoreCall<T> {
+        T call() throws IOException;
+    }
+
+    private void cache(String recordId, FormDataStore.StoredDocument document) {
+        if (maxCachedEntries <= 0) {
+            return;
+        }
+        if (readCache.size() >= maxCachedEntries && !readCache.containsKey(recordId)) {
+            // 容量满时随意淘汰一个条目；未命中只会多一次后端读取
+            Iterator<String> iterator = readCache.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        // 只用更新的版本覆盖缓存，避免并发读取把旧内容写回
+        readCache.merge(recordId, new CachedDocument(document), (existing, fresh) ->
+                fresh.document.getVersion() >= existing.document.getVersion() ? fresh : existing);
+    }
+
+    private static class CachedDocument {
+        private final FormDataStore.StoredDocument document;
+        private final long validatedAt = System.currentTimeMillis();
+
+        CachedDocument(FormDataStore.StoredDocument document) {
+            this.document = document;
+        }
+
+        boolean isTrusted(long revalidateMs) {
+            return revalidateMs > 0 && System.currentTimeMillis() - validatedAt < revalidateMs;
+        }
     }
-}
\ No newline at end of file
+}
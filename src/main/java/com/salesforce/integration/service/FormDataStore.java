@@ -0,0 +1,125 @@
+package com.salesforce.integration.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表单数据存储后端
+ * 以记录 ID 为键保存 JSON 文档；每次写入都会得到一个单调递增的版本号，
+ * 各节点通过比较版本号判断本地读缓存是否仍然有效。
+ */
+public interface FormDataStore {
+
+    /**
+     * 读取文档当前版本（不传输内容），不存在返回 null
+     */
+    Long version(String key) throws IOException;
+
+    /**
+     * 读取文档内容和版本，不存在返回 null
+     */
+    StoredDocument read(String key) throws IOException;
+
+    /**
+     * 写入文档，返回新版本号
+     */
+    long write(String key, byte[] content) throws IOException;
+
+    /**
+     * 删除文档，不存在返回 false
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * 列出全部文档的键和版本号
+     */
+    Map<String, Long> list() throws IOException;
+
+    /**
+     * 按修改时间分页列出文档，只包含修改时间不早于 since 的文档
+     * @param cursor 上一页返回的 nextCursor，第一页传 null
+     * @param newestFirst true 时新修改的在前
+     */
+    Page listPage(String cursor, long since, boolean newestFirst, int limit) throws IOException;
+
+    /**
+     * 后端描述，用于日志和诊断
+     */
+    String describe();
+
+    /**
+     * 文档内容和版本；内容数组是共享实例，读取后不应修改
+     */
+    final class StoredDocument {
+        private final long version;
+        private final byte[] content;
+
+        public StoredDocument(long version, byte[] content) {
+            this.version = version;
+            this.content = content;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+    }
+
+    /**
+     * 清单中的一条文档信息
+     */
+    final class Entry {
+        private final String key;
+        private final long size;
+        private final long lastModified;
+        private final long version;
+
+        public Entry(String key, long size, long lastModified, long version) {
+            this.key = key;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.version = version;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * 一页清单；nextCursor 为 null 表示没有更多
+     */
+    final class Page {
+        private final List<Entry> entries;
+        private final String nextCursor;
+
+        public Page(List<Entry> entries, String nextCursor) {
+            this.entries = entries;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+}
@@ -0,0 +1,614 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 表单数据批量导出/导入
+ * 导出按存储清单（修改时间升序、分页）逐条写出，不把整个目录读入内存：
+ * tar 格式每条记录一个 {key}.json 条目，本地存储时文件内容用 FileChannel.transferTo 直接写到输出通道；
+ * ndjson 格式每行 {"key","version","data"}。导出期间被修改的记录会移到清单末尾再导出一次，不会遗漏。
+ * 导入单线程解析输入流，校验和写入交给 import-threads 个线程并行完成，
+ * 已读入但未写完的内容不超过 max-in-flight-bytes，内存占用与总记录数无关。
+ * 导入直接写存储后端，不登记发件箱也不推送 SSE；版本号由存储重新分配。
+ */
+@Service
+public class FormDataTransferService {
+    private static final Logger logger = LoggerFactory.getLogger(FormDataTransferService.class);
+
+    public static final String TAR = "tar";
+    public static final String NDJSON = "ndjson";
+
+    private static final int BLOCK = 512;
+    private static final int PAGE_SIZE = 1000;
+    private static final int PROGRESS_LOG_INTERVAL = 10000;
+    private static final int MAX_HISTORY = 10;
+    private static final String ENTRY_SUFFIX = ".json";
+    private static final String STORE_PREFIX = "account_";
+
+    private final FormDataStore store;
+    private final FileStorageService fileStorageService;
+    private final ObjectMapper objectMapper;
+    private final int importThreads;
+    private final int maxInFlightBytes;
+    private final int maxRecordBytes;
+    private final ExecutorService importExecutor;
+
+    private final AtomicLong transferIds = new AtomicLong();
+    private final Map<Long, Progress> running = new LinkedHashMap<>();
+    private final Deque<Progress> finished = new ArrayDeque<>();
+
+    public FormDataTransferService(FormDataStore store,
+                                   FileStorageService fileStorageService,
+                                   ObjectMapper objectMapper,
+                                   @Value("${salesforce.transfer.import-threads:4}") int importThreads,
+                                   @Value("${salesforce.transfer.max-in-flight-bytes:16777216}") int maxInFlightBytes,
+                                   @Value("${salesforce.transfer.max-record-bytes:1048576}") int maxRecordBytes) {
+        this.store = store;
+        this.fileStorageService = fileStorageService;
+        this.objectMapper = objectMapper;
+        this.importThreads = Math.max(1, importThreads);
+        this.maxRecordBytes = maxRecordBytes;
+        // 单条记录必须能放进在途额度
+        this.maxInFlightBytes = Math.max(maxInFlightBytes, maxRecordBytes);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.importExecutor = Executors.newFixedThreadPool(this.importThreads, runnable -> {
+            Thread thread = new Thread(runnable, "form-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 导出全部已保存的记录
+     * @return 本次导出的统计
+     */
+    public Map<String, Object> export(String format, OutputStream out) throws IOException {
+        Progress progress = start("export", format, store.list().size());
+        try {
+            WritableByteChannel channel = Channels.newChannel(out);
+            String cursor = null;
+            do {
+                FormDataStore.Page page = store.listPage(cursor, 0, false, PAGE_SIZE);
+                for (FormDataStore.Entry entry : page.getEntries()) {
+                    if (TAR.equals(format)) {
+                        exportTarEntry(entry, channel, progress);
+                    } else {
+                        exportNdjsonLine(entry, channel, progress);
+                    }
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            if (TAR.equals(format)) {
+                // 归档结束标记：两个全零块
+                writeFully(channel, ByteBuffer.allocate(BLOCK * 2));
+            }
+            out.flush();
+            return finish(progress, null);
+        } catch (IOException | RuntimeException e) {
+            finish(progress, e);
+            throw e;
+        }
+    }
+
+    private void exportTarEntry(FormDataStore.Entry entry, WritableByteChannel out, Progress progress)
+            throws IOException {
+        String name = entry.getKey() + ENTRY_SUFFIX;
+        if (name.getBytes(StandardCharsets.UTF_8).length > 100) {
+            progress.failed.incrementAndGet();
+            logger.warn("Skipping {}: key too long for a tar entry", entry.getKey());
+            return;
+        }
+        if (store instanceof LocalFileFormDataStore) {
+            try (FileChannel file = ((LocalFileFormDataStore) store).openChannel(entry.getKey())) {
+                if (file == null) {
+                    // 导出期间被删除
+                    return;
+                }
+                long size = file.size();
+                writeFully(out, tarHeader(name, size, entry.getLastModified()));
+                long position = 0;
+                while (position < size) {
+                    position += file.transferTo(position, size - position, out);
+                }
+                writeFully(out, ByteBuffer.allocate(padding(size)));
+                progress.record(BLOCK + size + padding(size));
+            }
+            return;
+        }
+        FormDataStore.StoredDocument document = store.read(entry.getKey());
+        if (document == null) {
+            return;
+        }
+        byte[] content = document.getContent();
+        writeFully(out, tarHeader(name, content.length, entry.getLastModified()));
+        writeFully(out, ByteBuffer.wrap(content));
+        writeFully(out, ByteBuffer.allocate(padding(content.length)));
+        progress.record(BLOCK + content.length + padding(content.length));
+    }
+
+    private void exportNdjsonLine(FormDataStore.Entry entry, WritableByteChannel out, Progress progress)
+            throws IOException {
+        FormDataStore.StoredDocument document = store.read(entry.getKey());
+        if (document == null) {
+            return;
+        }
+        byte[] content = document.getContent().clone();
+        // JSON 字符串里不会出现未转义的换行，把格式化用的换行换成空格即可放进一行，不需要重新解析
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n' || content[i] == '\r') {
+                content[i] = ' ';
+            }
+        }
+        byte[] prefix = ("{\"key\":" + objectMapper.writeValueAsString(entry.getKey())
+                + ",\"version\":" + document.getVersion() + ",\"data\":").getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = {'}', '\n'};
+        writeFully(out, ByteBuffer.wrap(prefix));
+        writeFully(out, ByteBuffer.wrap(content));
+        writeFully(out, ByteBuffer.wrap(suffix));
+        progress.record(prefix.length + content.length + suffix.length);
+    }
+
+    /**
+     * 从 tar 或 ndjson 流导入记录，同名记录被覆盖
+     * @return 本次导入的统计（imported、failed 等）
+     */
+    public Map<String, Object> importFrom(String format, InputStream in) throws IOException {
+        Progress progress = start("import", format, -1);
+        Semaphore inFlight = new Semaphore(maxInFlightBytes);
+        List<String> errors = new ArrayList<>();
+        try {
+            if (TAR.equals(format)) {
+                readTar(in, progress, inFlight, errors);
+            } else {
+                readNdjson(in, progress, inFlight, errors);
+            }
+            // 等待已提交的写入全部完成
+            inFlight.acquire(maxInFlightBytes);
+            inFlight.release(maxInFlightBytes);
+            Map<String, Object> result = finish(progress, null);
+            synchronized (errors) {
+                if (!errors.isEmpty()) {
+                    result.put("errors", new ArrayList<>(errors));
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            IOException interrupted = new IOException("Import interrupted");
+            finish(progress, interrupted);
+            throw interrupted;
+        } catch (IOException | RuntimeException e) {
+            finish(progress, e);
+            throw e;
+        }
+    }
+
+    private void readTar(InputStream in, Progress progress, Semaphore inFlight, List<String> errors)
+            throws IOException, InterruptedException {
+        byte[] header = new byte[BLOCK];
+        while (true) {
+            if (!readBlock(in, header)) {
+                return;
+            }
+            if (isZero(header)) {
+                return;
+            }
+            String name = tarString(header, 0, 100);
+            String prefix = tarString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+            long size = tarNumber(header, 124, 12);
+            byte type = header[156];
+            long padded = size + padding(size);
+            String key = keyOf(name);
+            if ((type != '0' && type != 0) || key == null) {
+                // 目录、pax 扩展头等非普通文件条目
+                skipFully(in, padded);
+                continue;
+            }
+            if (size > maxRecordBytes) {
+                skipFully(in, padded);
+                fail(progress, errors, key, "record larger than " + maxRecordBytes + " bytes");
+                continue;
+            }
+            inFlight.acquire((int) size);
+            byte[] content;
+            try {
+                content = readFully(in, (int) size);
+                skipFully(in, padding(size));
+            } catch (IOException e) {
+                inFlight.release((int) size);
+                throw e;
+            }
+            progress.bytes.addAndGet(BLOCK + padded);
+            submit(key, content, (int) size, false, progress, inFlight, errors);
+        }
+    }
+
+    private void readNdjson(InputStream in, Progress progress, Semaphore inFlight, List<String> errors)
+            throws IOException, InterruptedException {
+        LineReader reader = new LineReader(in, maxRecordBytes);
+        while (reader.next()) {
+            progress.bytes.addAndGet(reader.consumed);
+            if (reader.oversized) {
+                fail(progress, errors, null, "line larger than " + maxRecordBytes + " bytes");
+                continue;
+            }
+            byte[] line = reader.line;
+            if (isBlank(line)) {
+                continue;
+            }
+            // 按字节数预留额度，解析和写入在工作线程中完成
+            inFlight.acquire(line.length);
+            submit(null, line, line.length, true, progress, inFlight, errors);
+        }
+    }
+
+    private void submit(String key, byte[] content, int permits, boolean ndjson, Progress progress,
+                        Semaphore inFlight, List<String> errors) {
+        importExecutor.execute(() -> {
+            String recordKey = key;
+            try {
+                byte[] document = content;
+                if (ndjson) {
+                    JsonNode line = objectMapper.readTree(content);
+                    recordKey = line.path("key").asText(null);
+                    JsonNode data = line.get("data");
+                    if (recordKey == null || data == null || !data.isObject()) {
+                        fail(progress, errors, recordKey, "line needs a key and an object in data");
+                        return;
+                    }
+                    // 与 FileStorageService 保存的格式一致
+                    document = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(data);
+                } else if (!objectMapper.readTree(content).isObject()) {
+                    fail(progress, errors, recordKey, "content is not a JSON object");
+                    return;
+                }
+                fileStorageService.importAccountData(recordKey, document);
+                progress.record(0);
+            } catch (IOException | RuntimeException e) {
+                fail(progress, errors, recordKey, e.getMessage());
+            } finally {
+                inFlight.release(permits);
+            }
+        });
+    }
+
+    private void fail(Progress progress, List<String> errors, String key, String reason) {
+        progress.failed.incrementAndGet();
+        synchronized (errors) {
+            // 只保留前几条错误，避免坏输入撑大响应
+            if (errors.size() < 20) {
+                errors.add((key != null ? key + ": " : "") + reason);
+            }
+        }
+    }
+
+    /**
+     * tar 条目名去掉目录，支持本服务导出的 {key}.json 和直接打包存储目录得到的 account_{key}.json
+     */
+    static String keyOf(String name) {
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        if (!fileName.endsWith(ENTRY_SUFFIX) || fileName.length() == ENTRY_SUFFIX.length()) {
+            return null;
+        }
+        String key = fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length());
+        return key.startsWith(STORE_PREFIX) ? key.substring(STORE_PREFIX.length()) : key;
+    }
+
+    /**
+     * POSIX ustar 文件头
+     */
+    static ByteBuffer tarHeader(String name, long size, long modifiedMillis) {
+        byte[] header = new byte[BLOCK];
+        put(header, 0, name.getBytes(StandardCharsets.UTF_8));
+        put(header, 100, "0000644\0".getBytes(StandardCharsets.US_ASCII));
+        put(header, 108, "0000000\0".getBytes(StandardCharsets.US_ASCII));
+        put(header, 116, "0000000\0".getBytes(StandardCharsets.US_ASCII));
+        put(header, 124, octal(size, 12));
+        put(header, 136, octal(modifiedMillis / 1000, 12));
+        header[156] = '0';
+        put(header, 257, "ustar\0".getBytes(StandardCharsets.US_ASCII));
+        put(header, 263, "00".getBytes(StandardCharsets.US_ASCII));
+        // 校验和按校验和字段为 8 个空格计算
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        put(header, 148, String.format("%06o\0 ", checksum).getBytes(StandardCharsets.US_ASCII));
+        return ByteBuffer.wrap(header);
+    }
+
+    private static byte[] octal(long value, int length) {
+        String digits = Long.toOctalString(value);
+        StringBuilder field = new StringBuilder(length);
+        for (int i = digits.length(); i < length - 1; i++) {
+            field.append('0');
+        }
+        return field.append(digits).append('\0').toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void put(byte[] header, int offset, byte[] value) {
+        System.arraycopy(value, 0, header, offset, value.length);
+    }
+
+    private static String tarString(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long tarNumber(byte[] header, int offset, int length) throws IOException {
+        String value = tarString(header, offset, length).trim();
+        try {
+            return value.isEmpty() ? 0 : Long.parseLong(value, 8);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid tar header field: " + value);
+        }
+    }
+
+    private static int padding(long size) {
+        return (int) ((BLOCK - size % BLOCK) % BLOCK);
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读满一个块；流在块开始处结束返回 false
+     */
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int read = in.readNBytes(block, 0, block.length);
+        if (read == 0) {
+            return false;
+        }
+        if (read < block.length) {
+            throw new EOFException("Truncated tar archive");
+        }
+        return true;
+    }
+
+    private static byte[] readFully(InputStream in, int size) throws IOException {
+        byte[] content = in.readNBytes(size);
+        if (content.length < size) {
+            throw new EOFException("Truncated tar archive");
+        }
+        return content;
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Truncated tar archive");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static boolean isBlank(byte[] line) {
+        for (byte b : line) {
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Progress start(String type, String format, long total) {
+        Progress progress = new Progress(transferIds.incrementAndGet(), type, format, total);
+        synchronized (running) {
+            running.put(progress.id, progress);
+        }
+        logger.info("Form data {} #{} started ({})", type, progress.id, format);
+        return progress;
+    }
+
+    private Map<String, Object> finish(Progress progress, Exception error) {
+        progress.finishedAt = System.currentTimeMillis();
+        progress.error = error != null ? String.valueOf(error.getMessage()) : null;
+        synchronized (running) {
+            running.remove(progress.id);
+            finished.addFirst(progress);
+            while (finished.size() > MAX_HISTORY) {
+                finished.removeLast();
+            }
+        }
+        Map<String, Object> summary = progress.toMap();
+        logger.info("Form data {} #{} {}: {} records, {} failed, {} bytes in {} ms", progress.type, progress.id,
+                error == null ? "finished" : "failed", progress.records.get(), progress.failed.get(),
+                progress.bytes.get(), summary.get("elapsedMs"));
+        return summary;
+    }
+
+    /**
+     * 进行中和最近完成的导出/导入
+     */
+    public Map<String, Object> getProgress() {
+        List<Map<String, Object>> current = new ArrayList<>();
+        List<Map<String, Object>> recent = new ArrayList<>();
+        synchronized (running) {
+            for (Progress progress : running.values()) {
+                current.add(progress.toMap());
+            }
+            for (Progress progress : finished) {
+                recent.add(progress.toMap());
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", current);
+        result.put("recent", recent);
+        result.put("importThreads", importThreads);
+        result.put("maxInFlightBytes", maxInFlightBytes);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        importExecutor.shutdown();
+        importExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 按 '\n' 切分字节流，每行最多缓存 limit 字节；超长的行不再缓存，丢弃到下一个换行为止
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final int limit;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int end;
+        /** 最近一行的内容（不含换行），超长时为 null */
+        private byte[] line;
+        /** 最近一行在流中占用的字节数（含换行） */
+        private long consumed;
+        private boolean oversized;
+
+        LineReader(InputStream in, int limit) {
+            this.in = in;
+            this.limit = limit;
+        }
+
+        /**
+         * 读入下一行；流已结束返回 false
+         */
+        boolean next() throws IOException {
+            ByteArrayOutputStream current = new ByteArrayOutputStream();
+            consumed = 0;
+            oversized = false;
+            while (true) {
+                if (position == end) {
+                    position = 0;
+                    end = Math.max(in.read(buffer), 0);
+                    if (end == 0) {
+                        if (consumed == 0) {
+                            return false;
+                        }
+                        break;
+                    }
+                }
+                int newline = position;
+                while (newline < end && buffer[newline] != '\n') {
+                    newline++;
+                }
+                int length = newline - position;
+                consumed += length;
+                if (!oversized && current.size() + length > limit) {
+                    oversized = true;
+                    current = null;
+                }
+                if (!oversized) {
+                    current.write(buffer, position, length);
+                }
+                position = newline;
+                if (newline < end) {
+                    position++;
+                    consumed++;
+                    break;
+                }
+            }
+            line = oversized ? null : current.toByteArray();
+            return true;
+        }
+    }
+
+    private static final class Progress {
+        private final long id;
+        private final String type;
+        private final String format;
+        private final long total;
+        private final long startedAt = System.currentTimeMillis();
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile long finishedAt;
+        private volatile String error;
+
+        Progress(long id, String type, String format, long total) {
+            this.id = id;
+            this.type = type;
+            this.format = format;
+            this.total = total;
+        }
+
+        void record(long recordBytes) {
+            bytes.addAndGet(recordBytes);
+            long count = records.incrementAndGet();
+            if (count % PROGRESS_LOG_INTERVAL == 0) {
+                logger.info("Form data {} #{}: {} records", type, id, count);
+            }
+        }
+
+        Map<String, Object> toMap() {
+            long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+            long elapsedMs = Math.max(1, end - startedAt);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("type", type);
+            map.put("format", format);
+            map.put("state", finishedAt == 0 ? "running" : error == null ? "finished" : "failed");
+            map.put("records", records.get());
+            if (total >= 0) {
+                map.put("total", total);
+            }
+            map.put("failed", failed.get());
+            map.put("bytes", bytes.get());
+            map.put("elapsedMs", elapsedMs);
+            map.put("recordsPerSecond", records.get() * 1000 / elapsedMs);
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+    }
+}
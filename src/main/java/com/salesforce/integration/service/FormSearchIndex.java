@@ -0,0 +1,632 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 已保存表单数据的全文索引（倒排索引，仅在本进程内）
+ * 索引账户名称、电话、网站和描述四个字段：按字母数字切词并转小写，电话另外索引去掉分隔符的纯数字串。
+ * 词典是有序 TreeMap，查询词按前缀匹配；倒排表是按文档编号排序的 int 数组，每项为 文档编号 << 4 | 字段位，
+ * 每个词每个文档只占 4 字节。每次保存、导入和删除时增量更新，启动时由 rebuild-threads 个线程并行读取存储重建。
+ * 多个查询词之间是“与”关系，得分按命中字段加权（名称最高），完整匹配的词得分加倍。
+ * 只包含本节点看到的保存：使用远程存储时，其他副本的保存要到本节点下次启动重建后才能搜到。
+ */
+@Service
+public class FormSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(FormSearchIndex.class);
+
+    private static final String[] FIELDS = {"accountName", "website", "phone", "description"};
+    private static final int[] FIELD_WEIGHTS = {8, 4, 4, 1};
+    private static final int FIELD_BITS = 4;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+    private static final int PHONE_FIELD = 2;
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final int MAX_TERMS_PER_DOCUMENT = 2000;
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int REBUILD_BATCH = 500;
+
+    private final FormDataStore store;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int rebuildThreads;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 以下字段只在持有 lock 时访问 */
+    private final TreeMap<String, Postings> dictionary = new TreeMap<>();
+    private final Map<String, Document> documents = new HashMap<>();
+    private Document[] documentsById = new Document[1024];
+    private int[] freeIds = new int[16];
+    private int freeIdCount;
+    private int nextId;
+    private long postingCount;
+    private Set<String> deletedDuringRebuild;
+
+    private volatile String status = "pending";
+    private volatile long rebuildMs;
+    private final AtomicLong rebuildFailures = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong searches = new AtomicLong();
+
+    public FormSearchIndex(FormDataStore store,
+                           ObjectMapper objectMapper,
+                           @Value("${salesforce.search.enabled:true}") boolean enabled,
+                           @Value("${salesforce.search.rebuild-threads:4}") int rebuildThreads) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.rebuildThreads = Math.max(1, rebuildThreads);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            status = "disabled";
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "search-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 从存储重建索引：按键分片并行读取、解析和切词，再分批加入索引。
+     * 重建期间的保存和删除照常更新索引，版本较新的文档和重建开始后删除的键不会被覆盖
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        status = "rebuilding";
+        lock.writeLock().lock();
+        try {
+            deletedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads, runnable -> {
+            Thread thread = new Thread(runnable, "search-index-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<String> keys = new ArrayList<>(store.list().keySet());
+            int chunk = (keys.size() + rebuildThreads - 1) / rebuildThreads;
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int from = 0; from < keys.size(); from += chunk) {
+                List<String> slice = keys.subList(from, Math.min(keys.size(), from + chunk));
+                futures.add(executor.submit(() -> indexSlice(slice)));
+            }
+            int indexed = 0;
+            for (Future<Integer> future : futures) {
+                indexed += future.get();
+            }
+            rebuildMs = System.currentTimeMillis() - start;
+            status = "ready";
+            logger.info("Search index rebuilt: {} of {} records in {} ms ({} threads)",
+                    indexed, keys.size(), rebuildMs, rebuildThreads);
+        } catch (Exception e) {
+            status = "failed";
+            logger.error("Search index rebuild failed", e);
+        } finally {
+            executor.shutdownNow();
+            lock.writeLock().lock();
+            try {
+                deletedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private int indexSlice(List<String> keys) {
+        List<Prepared> batch = new ArrayList<>(REBUILD_BATCH);
+        int indexed = 0;
+        for (String key : keys) {
+            try {
+                FormDataStore.StoredDocument document = store.read(key);
+                if (document != null) {
+                    batch.add(prepare(key, document.getVersion(), parse(document.getContent())));
+                }
+            } catch (Exception e) {
+                rebuildFailures.incrementAndGet();
+                logger.warn("Could not index saved form {}: {}", key, e.getMessage());
+            }
+            if (batch.size() == REBUILD_BATCH) {
+                indexed += apply(batch, true);
+                batch.clear();
+            }
+        }
+        return indexed + apply(batch, true);
+    }
+
+    /**
+     * 保存后更新文档；比索引中已有版本旧的更新被忽略
+     */
+    public void update(String key, long version, Map<String, Object> formData) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            apply(List.of(prepare(key, version, formData)), false);
+            updates.incrementAndGet();
+        } catch (RuntimeException e) {
+            // 索引出错不能影响保存
+            logger.warn("Could not index saved form {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 导入后更新文档
+     */
+    public void update(String key, long version, byte[] content) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            update(key, version, parse(content));
+        } catch (Exception e) {
+            logger.warn("Could not index imported form {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除文档
+     */
+    public void remove(String key) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Document document = documents.remove(key);
+            if (document != null) {
+                unlink(document);
+            }
+            if (deletedDuringRebuild != null) {
+                deletedDuringRebuild.add(key);
+            }
+            updates.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索，返回按得分降序的前 limit 条，每条包含 recordId、score 和命中的字段
+     */
+    public List<Map<String, Object>> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Query has no searchable terms");
+        }
+        searches.incrementAndGet();
+        lock.readLock().lock();
+        try {
+            List<TermMatch> matches = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                matches.add(match(term));
+            }
+            // 先处理命中最少的查询词：候选文档只来自它的倒排表，后面的词只在候选中累计得分，
+            // 查询开销与查询词的命中数成正比，与索引中的文档总数无关
+            matches.sort(Comparator.comparingLong(match -> match.postings));
+            Map<Integer, Hit> candidates = new HashMap<>();
+            for (Postings postings : matches.get(0).entries) {
+                boolean exact = postings.term.length() == matches.get(0).term.length();
+                for (int i = 0; i < postings.size; i++) {
+                    int item = postings.items[i];
+                    accumulate(candidates.computeIfAbsent(item >>> FIELD_BITS, Hit::new), 0, item, exact);
+                }
+            }
+            for (int t = 1; t < matches.size() && !candidates.isEmpty(); t++) {
+                TermMatch match = matches.get(t);
+                if ((long) candidates.size() * match.entries.size() < match.postings) {
+                    // 候选很少：在每个倒排表中二分查找候选文档
+                    for (Postings postings : match.entries) {
+                        boolean exact = postings.term.length() == match.term.length();
+                        for (Hit hit : candidates.values()) {
+                            int index = postings.find(hit.id);
+                            if (index >= 0) {
+                                accumulate(hit, t, postings.items[index], exact);
+                            }
+                        }
+                    }
+                } else {
+                    for (Postings postings : match.entries) {
+                        boolean exact = postings.term.length() == match.term.length();
+                        for (int i = 0; i < postings.size; i++) {
+                            Hit hit = candidates.get(postings.items[i] >>> FIELD_BITS);
+                            if (hit != null) {
+                                accumulate(hit, t, postings.items[i], exact);
+                            }
+                        }
+                    }
+                }
+                int matchedTerms = t + 1;
+                candidates.values().removeIf(hit -> hit.matchedTerms < matchedTerms);
+            }
+
+            // 得分相同按记录 ID 排序，结果稳定
+            Comparator<Hit> order = Comparator.<Hit>comparingInt(h -> h.score)
+                    .thenComparing(h -> documentsById[h.id].key, Comparator.reverseOrder());
+            PriorityQueue<Hit> top = new PriorityQueue<>(order);
+            for (Hit hit : candidates.values()) {
+                if (top.size() < limit || order.compare(hit, top.peek()) > 0) {
+                    top.add(hit);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            List<Map<String, Object>> results = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Hit hit = top.poll();
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("recordId", documentsById[hit.id].key);
+                result.put("score", hit.score);
+                result.put("matchedFields", fieldNames(hit.fields));
+                results.add(0, result);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 词典中以查询词为前缀的所有词
+     */
+    private TermMatch match(String term) {
+        TermMatch match = new TermMatch(term);
+        for (Map.Entry<String, Postings> entry : dictionary.tailMap(term, true).entrySet()) {
+            if (!entry.getKey().startsWith(term)) {
+                break;
+            }
+            match.entries.add(entry.getValue());
+            match.postings += entry.getValue().size;
+        }
+        return match;
+    }
+
+    private int apply(List<Prepared> batch, boolean fromRebuild) {
+        int applied = 0;
+        lock.writeLock().lock();
+        try {
+            for (Prepared prepared : batch) {
+                Document existing = documents.get(prepared.key);
+                if (existing != null && existing.version > prepared.version) {
+                    continue;
+                }
+                if (fromRebuild && (existing != null
+                        || (deletedDuringRebuild != null && deletedDuringRebuild.contains(prepared.key)))) {
+                    // 重建开始后已被保存或删除，以增量更新为准
+                    continue;
+                }
+                if (!fromRebuild && deletedDuringRebuild != null) {
+                    deletedDuringRebuild.remove(prepared.key);
+                }
+                Document document = existing;
+                if (document == null) {
+                    document = new Document(prepared.key, allocateId());
+                    documents.put(prepared.key, document);
+                    documentsById[document.id] = document;
+                } else {
+                    unlinkPostings(document);
+                }
+                document.version = prepared.version;
+                document.terms = new Postings[prepared.terms.length];
+                for (int i = 0; i < prepared.terms.length; i++) {
+                    Postings postings = dictionary.computeIfAbsent(prepared.terms[i], Postings::new);
+                    postings.add(document.id << FIELD_BITS | prepared.fields[i]);
+                    document.terms[i] = postings;
+                }
+                postingCount += prepared.terms.length;
+                applied++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return applied;
+    }
+
+    private void unlink(Document document) {
+        unlinkPostings(document);
+        documentsById[document.id] = null;
+        if (freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeIdCount++] = document.id;
+    }
+
+    private void unlinkPostings(Document document) {
+        for (Postings postings : document.terms) {
+            postings.remove(document.id);
+            if (postings.size == 0) {
+                dictionary.remove(postings.term);
+            }
+        }
+        postingCount -= document.terms.length;
+        document.terms = new Postings[0];
+    }
+
+    private int allocateId() {
+        if (freeIdCount > 0) {
+            return freeIds[--freeIdCount];
+        }
+        if (nextId == documentsById.length) {
+            documentsById = Arrays.copyOf(documentsById, documentsById.length * 2);
+        }
+        return nextId++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parse(byte[] content) throws java.io.IOException {
+        return objectMapper.readValue(content, Map.class);
+    }
+
+    /**
+     * 切词并合并同一个词在各字段的字段位
+     */
+    private static Prepared prepare(String key, long version, Map<String, Object> formData) {
+        Map<String, Integer> fieldsByTerm = new LinkedHashMap<>();
+        for (int field = 0; field < FIELDS.length; field++) {
+            Object value = formData != null ? formData.get(FIELDS[field]) : null;
+            if (value == null) {
+                continue;
+            }
+            String text = value.toString();
+            List<String> terms = tokenize(text);
+            if (field == PHONE_FIELD) {
+                // 电话另外索引纯数字形式，"5550100" 能搜到 "555-0100"
+                String digits = text.replaceAll("[^0-9]", "");
+                if (digits.length() >= 4) {
+                    terms.add(digits);
+                }
+            }
+            for (String term : terms) {
+                if (fieldsByTerm.size() >= MAX_TERMS_PER_DOCUMENT && !fieldsByTerm.containsKey(term)) {
+                    break;
+                }
+                fieldsByTerm.merge(term, 1 << field, (a, b) -> a | b);
+            }
+        }
+        String[] terms = fieldsByTerm.keySet().toArray(new String[0]);
+        int[] fields = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            fields[i] = fieldsByTerm.get(terms[i]);
+        }
+        return new Prepared(key, version, terms, fields);
+    }
+
+    /**
+     * 按字母和数字连续段切词并转小写，过长的词截断
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)).toLowerCase());
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 第 term 个查询词命中文档的一个倒排项；同一查询词匹配多个词时只计最高分
+     */
+    private static void accumulate(Hit hit, int term, int item, boolean exact) {
+        int fieldBits = item & FIELD_MASK;
+        int score = weight(fieldBits) * (exact ? 2 : 1);
+        hit.fields |= fieldBits;
+        if (hit.matchedTerms == term) {
+            hit.matchedTerms = term + 1;
+            hit.best = score;
+            hit.score += score;
+        } else if (score > hit.best) {
+            hit.score += score - hit.best;
+            hit.best = score;
+        }
+    }
+
+    private static int weight(int fields) {
+        int weight = 0;
+        for (int field = 0; field < FIELDS.length; field++) {
+            if ((fields & (1 << field)) != 0) {
+                weight += FIELD_WEIGHTS[field];
+            }
+        }
+        return weight;
+    }
+
+    private static List<String> fieldNames(int fields) {
+        List<String> names = new ArrayList<>();
+        for (int field = 0; field < FIELDS.length; field++) {
+            if ((fields & (1 << field)) != 0) {
+                names.add(FIELDS[field]);
+            }
+        }
+        return names;
+    }
+
+    public boolean isReady() {
+        return "ready".equals(status);
+    }
+
+    /**
+     * 索引统计，内存占用为估算值（按 64 位 JVM 开启压缩指针计算对象头和引用）
+     */
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            long postingsBytes = 0;
+            long termBytes = 0;
+            for (Map.Entry<String, Postings> entry : dictionary.entrySet()) {
+                // int[] 16 字节头，Postings 对象 24 字节；词：TreeMap.Entry 40 字节，String 24 字节加 byte[]
+                postingsBytes += 16 + 24 + 4L * entry.getValue().items.length;
+                termBytes += 40 + 24 + 16 + entry.getKey().length();
+            }
+            long documentBytes = 4L * documentsById.length + 4L * freeIds.length;
+            for (Document document : documents.values()) {
+                // Document 对象 32 字节、Postings[] 数组、HashMap 节点 32 字节
+                documentBytes += 32 + 16 + 4L * document.terms.length + 32;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", enabled);
+            stats.put("status", status);
+            stats.put("documents", documents.size());
+            stats.put("terms", dictionary.size());
+            stats.put("postings", postingCount);
+            stats.put("postingsBytes", postingsBytes);
+            stats.put("dictionaryBytes", termBytes);
+            stats.put("documentBytes", documentBytes);
+            stats.put("estimatedBytes", postingsBytes + termBytes + documentBytes);
+            stats.put("rebuildMs", rebuildMs);
+            stats.put("rebuildThreads", rebuildThreads);
+            stats.put("rebuildFailures", rebuildFailures.get());
+            stats.put("updates", updates.get());
+            stats.put("searches", searches.get());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 一个词的倒排表：按文档编号升序的 (文档编号 << 4 | 字段位)
+     */
+    private static final class Postings {
+        /** 与词典键是同一个字符串对象，只多一个引用 */
+        private final String term;
+        private int[] items = new int[2];
+        private int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int item) {
+            int index = find(item >>> FIELD_BITS);
+            if (index >= 0) {
+                items[index] = item;
+                return;
+            }
+            int insertAt = -index - 1;
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size + (size >> 1) + 1);
+            }
+            System.arraycopy(items, insertAt, items, insertAt + 1, size - insertAt);
+            items[insertAt] = item;
+            size++;
+        }
+
+        void remove(int id) {
+            int index = find(id);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(items, index + 1, items, index, size - index - 1);
+            size--;
+            if (size < items.length / 4) {
+                items = Arrays.copyOf(items, Math.max(2, size * 2));
+            }
+        }
+
+        private int find(int id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midId = items[mid] >>> FIELD_BITS;
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    private static final class Document {
+        private final String key;
+        private final int id;
+        private long version;
+        private Postings[] terms = new Postings[0];
+
+        Document(String key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    private static final class Prepared {
+        private final String key;
+        private final long version;
+        private final String[] terms;
+        private final int[] fields;
+
+        Prepared(String key, long version, String[] terms, int[] fields) {
+            this.key = key;
+            this.version = version;
+            this.terms = terms;
+            this.fields = fields;
+        }
+    }
+
+    private static final class TermMatch {
+        private final String term;
+        private final List<Postings> entries = new ArrayList<>();
+        private long postings;
+
+        TermMatch(String term) {
+            this.term = term;
+        }
+    }
+
+    private static final class Hit {
+        private final int id;
+        private int score;
+        private int fields;
+        /** 已命中的查询词个数，以及当前查询词的最高分 */
+        private int matchedTerms;
+        private int best;
+
+        Hit(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.model.AccountFormData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 表单保存的发件箱：把保存过的表单数据异步写回 Salesforce Account
+ * 每次保存在写入表单数据之前先向本地日志追加一条 save 记录并落盘（写前日志），保存本身不等待 Salesforce。
+ * 后台发布器只看每条记录的最新文档：coalesce-ms 内的多次保存合并为一次更新，
+ * 按租户每 batch-size 条通过 sObject Collections 批量更新，每轮最多 max-batches-per-run 批；
+ * 整批失败时暂停发布并指数退避（不计入记录的重试次数），逐条失败的记录单独重试，超过 max-attempts 后进入死信。
+ * 重启时重放日志恢复未发布的记录（重试次数从零开始）；投递语义是至少一次。
+ */
+@Service
+public class FormSyncOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(FormSyncOutbox.class);
+
+    private static final int COLLECTION_LIMIT = 200;
+    private static final long MAX_BACKOFF_MS = 300_000;
+
+    private final FormDataStore store;
+    private final SalesforceApiService salesforceApiService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final AppendOnlyLog log;
+    private final int batchSize;
+    private final long coalesceMs;
+    private final int maxBatchesPerRun;
+    private final long retryBackoffMs;
+    private final int maxAttempts;
+
+    // 未发布的记录，增删和字段修改都在 this 锁内
+    private final ConcurrentHashMap<String, Change> pending = new ConcurrentHashMap<>();
+    private long sequence;
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private volatile int consecutiveFailures;
+    private volatile long pausedUntil;
+    private volatile long lastPublishedAt;
+    private volatile String lastError;
+
+    public FormSyncOutbox(FormDataStore store,
+                          SalesforceApiService salesforceApiService,
+                          ObjectMapper objectMapper,
+                          @Value("${salesforce.outbox.enabled:false}") boolean enabled,
+                          @Value("${salesforce.outbox.dir:${java.io.tmpdir}/salesforce-outbox}") String dir,
+                          @Value("${salesforce.outbox.batch-size:200}") int batchSize,
+                          @Value("${salesforce.outbox.coalesce-ms:2000}") long coalesceMs,
+                          @Value("${salesforce.outbox.max-batches-per-run:5}") int maxBatchesPerRun,
+                          @Value("${salesforce.outbox.retry-backoff-ms:5000}") long retryBackoffMs,
+                          @Value("${salesforce.outbox.max-attempts:5}") int maxAttempts,
+                          @Value("${salesforce.outbox.fsync:true}") boolean fsync,
+                          @Value("${salesforce.outbox.compact-bytes:16777216}") long compactBytes) throws IOException {
+        this.store = store;
+        this.salesforceApiService = salesforceApiService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, Math.min(COLLECTION_LIMIT, batchSize));
+        this.coalesceMs = coalesceMs;
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.log = enabled ? new AppendOnlyLog(Paths.get(dir).resolve("outbox.log"), objectMapper, fsync, compactBytes)
+                : null;
+        if (enabled) {
+            replay();
+        }
+    }
+
+    /**
+     * 保存前调用：记录落盘后才允许写入表单数据，失败时保存也应失败。成功后必须调用 afterSave
+     */
+    public void beforeSave(String recordId) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String tenant = TenantContext.current();
+        long position;
+        synchronized (this) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("op", "save");
+            record.put("seq", sequence + 1);
+            record.put("record", recordId);
+            record.put("tenant", tenant);
+            record.put("ts", now);
+            position = log.append(List.of(record));
+            sequence++;
+            Change change = pending.get(recordId);
+            if (change == null) {
+                change = new Change(tenant, now, sequence);
+                pending.put(recordId, change);
+            } else {
+                coalesced.incrementAndGet();
+                change.saved(tenant, now, sequence);
+            }
+            change.writers++;
+        }
+        saves.incrementAndGet();
+        log.awaitDurable(position);
+    }
+
+    /**
+     * 保存结束（无论成功与否）后调用；写入期间的记录不会被发布，避免读到写入前的文档
+     */
+    public void afterSave(String recordId) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            Change change = pending.get(recordId);
+            if (change != null && change.writers > 0) {
+                change.writers--;
+            }
+        }
+    }
+
+    /**
+     * 发布到期的记录；整批失败后暂停到 pausedUntil
+     */
+    @Scheduled(fixedDelayString = "${salesforce.outbox.publish-interval-ms:1000}")
+    public void publish() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now < pausedUntil) {
+            return;
+        }
+        Map<String, List<Candidate>> byTenant = new LinkedHashMap<>();
+        synchronized (this) {
+            List<Map.Entry<String, Change>> due = new ArrayList<>();
+            for (Map.Entry<String, Change> entry : pending.entrySet()) {
+                Change change = entry.getValue();
+                if (change.writers == 0 && now - change.firstSavedAt >= coalesceMs && change.nextAttemptAt <= now) {
+                    due.add(entry);
+                }
+            }
+            due.sort(Comparator.comparingLong(entry -> entry.getValue().firstSavedAt));
+            for (Map.Entry<String, Change> entry : due.subList(0, Math.min(due.size(), batchSize * maxBatchesPerRun))) {
+                byTenant.computeIfAbsent(entry.getValue().tenant, t -> new ArrayList<>())
+                        .add(new Candidate(entry.getKey(), entry.getValue().lastSeq));
+            }
+        }
+        for (Map.Entry<String, List<Candidate>> group : byTenant.entrySet()) {
+            List<Candidate> candidates = group.getValue();
+            for (int from = 0; from < candidates.size(); from += batchSize) {
+                if (!publishBatch(group.getKey(), candidates.subList(from, Math.min(candidates.size(), from + batchSize)))) {
+                    compactIfNeeded();
+                    return;
+                }
+            }
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * 发布一批记录，整批失败返回 false
+     */
+    private boolean publishBatch(String tenant, List<Candidate> candidates) {
+        List<Map<String, Object>> outcomes = new ArrayList<>();
+        List<Map<String, Object>> records = new ArrayList<>(candidates.size());
+        List<Candidate> sent = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            Map<String, Object> fields;
+            try {
+                fields = accountFields(candidate.recordId);
+            } catch (IOException e) {
+                // 存储暂时不可读：留到下一轮
+                logger.warn("Could not read form data for {}: {}", candidate.recordId, e.getMessage());
+                continue;
+            }
+            if (fields == null || fields.isEmpty()) {
+                // 表单已删除或没有可写回的字段
+                outcomes.add(complete(candidate, "published", null));
+            } else if (!SoqlTemplate.isRecordId(candidate.recordId)) {
+                outcomes.add(complete(candidate, "dead", "Invalid record ID"));
+            } else {
+                fields.put("Id", candidate.recordId);
+                records.add(fields);
+                sent.add(candidate);
+            }
+        }
+        boolean batchFailed = false;
+        if (!records.isEmpty()) {
+            batches.incrementAndGet();
+            List<Map<String, Object>> results;
+            try {
+                results = TenantContext.callAs(tenant,
+                        () -> salesforceApiService.updateAccounts(records, false, false));
+            } catch (Exception e) {
+                results = null;
+                lastError = String.valueOf(e.getMessage());
+            }
+            Map<Candidate, String> failures = new LinkedHashMap<>();
+            for (int i = 0; i < sent.size(); i++) {
+                Map<String, Object> result = results != null ? results.get(i) : null;
+                if (result != null && Boolean.TRUE.equals(result.get("success"))) {
+                    outcomes.add(complete(sent.get(i), "published", null));
+                } else {
+                    String error = result != null ? String.valueOf(result.get("errors")) : lastError;
+                    lastError = error;
+                    failures.put(sent.get(i), error);
+                }
+            }
+            batchFailed = failures.size() == sent.size();
+            if (batchFailed) {
+                // 整批失败多半是 Salesforce 不可用或凭据失效：只暂停发布，不消耗每条记录的重试次数
+                failedBatches.incrementAndGet();
+                consecutiveFailures++;
+                pausedUntil = System.currentTimeMillis() + backoff(consecutiveFailures);
+                logger.warn("Outbox batch of {} accounts for org {} failed, pausing publisher until {}: {}",
+                        sent.size(), tenant, pausedUntil, lastError);
+            } else {
+                // 只有 Salesforce 单独拒绝的记录计入重试次数
+                failures.forEach((candidate, error) -> {
+                    Map<String, Object> dead = fail(candidate, error);
+                    if (dead != null) {
+                        outcomes.add(dead);
+                    }
+                });
+                consecutiveFailures = 0;
+                lastPublishedAt = System.currentTimeMillis();
+            }
+        }
+        if (!outcomes.isEmpty()) {
+            try {
+                log.awaitDurable(log.append(outcomes));
+            } catch (IOException e) {
+                // 结果未落盘：重启后这些记录会再次发布
+                logger.error("Failed to record outbox results for {} accounts", outcomes.size(), e);
+            }
+        }
+        return !batchFailed;
+    }
+
+    private Map<String, Object> accountFields(String recordId) throws IOException {
+        FormDataStore.StoredDocument document = store.read(recordId);
+        if (document == null) {
+            return null;
+        }
+        return objectMapper.readValue(document.getContent(), AccountFormData.class).toAccountFields();
+    }
+
+    /**
+     * 记录已发布（或放弃）到 candidate.seq；期间又有新的保存时保留记录，等待下一次发布
+     */
+    private synchronized Map<String, Object> complete(Candidate candidate, String op, String error) {
+        Change change = pending.get(candidate.recordId);
+        if (change != null) {
+            if (change.lastSeq <= candidate.seq) {
+                pending.remove(candidate.recordId);
+            } else {
+                change.republish();
+            }
+        }
+        ("published".equals(op) ? published : deadLettered).incrementAndGet();
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("op", op);
+        record.put("record", candidate.recordId);
+        record.put("seq", candidate.seq);
+        if (error != null) {
+            logger.warn("Outbox gave up on account {}: {}", candidate.recordId, error);
+            record.put("error", error);
+        }
+        return record;
+    }
+
+    /**
+     * 单条失败：安排重试，超过 max-attempts 时返回死信记录
+     */
+    private synchronized Map<String, Object> fail(Candidate candidate, String error) {
+        Change change = pending.get(candidate.recordId);
+        if (change == null) {
+            return null;
+        }
+        change.attempts++;
+        if (change.attempts >= maxAttempts) {
+            return complete(candidate, "dead", error);
+        }
+        change.nextAttemptAt = System.currentTimeMillis() + backoff(change.attempts);
+        return null;
+    }
+
+    private long backoff(int attempts) {
+        return Math.min(MAX_BACKOFF_MS, retryBackoffMs << Math.min(20, attempts - 1));
+    }
+
+    /**
+     * 获取发件箱统计信息；oldestPendingAgeMs 即写回 Salesforce 的同步延迟
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        long now = System.currentTimeMillis();
+        long oldest = 0;
+        int writing = 0;
+        synchronized (this) {
+            for (Change change : pending.values()) {
+                oldest = Math.max(oldest, now - change.firstSavedAt);
+                if (change.writers > 0) {
+                    writing++;
+                }
+            }
+        }
+        stats.put("pending", pending.size());
+        stats.put("writing", writing);
+        stats.put("oldestPendingAgeMs", oldest);
+        stats.put("saves", saves.get());
+        stats.put("coalescedSaves", coalesced.get());
+        stats.put("published", published.get());
+        stats.put("deadLettered", deadLettered.get());
+        stats.put("batches", batches.get());
+        stats.put("failedBatches", failedBatches.get());
+        stats.put("pausedUntil", pausedUntil > now ? pausedUntil : 0);
+        stats.put("lastPublishedAt", lastPublishedAt);
+        stats.put("lastError", lastError);
+        stats.put("coalesceMs", coalesceMs);
+        stats.put("batchSize", batchSize);
+        stats.put("logFile", log.getFile().toString());
+        try {
+            stats.put("logBytes", log.size());
+        } catch (IOException e) {
+            stats.put("logBytes", -1);
+        }
+        return stats;
+    }
+
+    /**
+     * 日志需要压缩时每条未发布的记录只保留一条 save
+     */
+    private synchronized void compactIfNeeded() {
+        try {
+            if (!log.needsCompaction()) {
+                return;
+            }
+            List<Map<String, Object>> records = new ArrayList<>(pending.size());
+            for (Map.Entry<String, Change> entry : pending.entrySet()) {
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("op", "save");
+                record.put("seq", entry.getValue().lastSeq);
+                record.put("record", entry.getKey());
+                record.put("tenant", entry.getValue().tenant);
+                record.put("ts", entry.getValue().firstSavedAt);
+                records.add(record);
+            }
+            log.rewrite(records);
+            logger.info("Compacted outbox log to {} bytes ({} pending accounts)", log.size(), pending.size());
+        } catch (IOException e) {
+            logger.error("Failed to compact outbox log", e);
+        }
+    }
+
+    private void replay() throws IOException {
+        log.replay(record -> {
+            String recordId = (String) record.get("record");
+            long seq = ((Number) record.get("seq")).longValue();
+            sequence = Math.max(sequence, seq);
+            Change change = pending.get(recordId);
+            if ("save".equals(record.get("op"))) {
+                String tenant = (String) record.get("tenant");
+                long ts = ((Number) record.get("ts")).longValue();
+                if (change == null) {
+                    pending.put(recordId, new Change(tenant, ts, seq));
+                } else {
+                    change.saved(tenant, ts, seq);
+                }
+            } else if (change != null && change.lastSeq <= seq) {
+                pending.remove(recordId);
+            }
+        });
+        logger.info("Recovered form sync outbox: {} accounts pending", pending.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    private static final class Change {
+        private String tenant;
+        private long firstSavedAt;
+        private long lastSavedAt;
+        private long lastSeq;
+        private int writers;
+        private int attempts;
+        private long nextAttemptAt;
+
+        Change(String tenant, long savedAt, long seq) {
+            this.tenant = tenant;
+            this.firstSavedAt = savedAt;
+            this.lastSavedAt = savedAt;
+            this.lastSeq = seq;
+        }
+
+        void saved(String tenant, long savedAt, long seq) {
+            this.tenant = tenant;
+            this.lastSavedAt = savedAt;
+            this.lastSeq = seq;
+        }
+
+        /**
+         * 发布期间又有新的保存：从最近一次保存开始计算合并窗口和重试
+         */
+        void republish() {
+            firstSavedAt = lastSavedAt;
+            attempts = 0;
+            nextAttemptAt = 0;
+        }
+    }
+
+    private static final class Candidate {
+        private final String recordId;
+        private final long seq;
+
+        Candidate(String recordId, long seq) {
+            this.recordId = recordId;
+            this.seq = seq;
+        }
+    }
+}
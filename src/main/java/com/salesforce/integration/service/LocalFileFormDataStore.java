@@ -0,0 +1,348 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * 本地目录存储：每条记录一个 account_{id}.json 文件，文件修改时间即版本号
+ * 写入先落临时文件再原子替换，读方不会看到写了一半的文件；
+ * 版本号保证单调递增（同一毫秒内的多次写入依次加一）。
+ * 目录中的文档另有一份清单（键、大小、修改时间、版本），保存和删除时追加到 .manifest.log，
+ * 内存中按修改时间排序，列出和分页不再扫描目录、逐个读取文件属性。
+ * 正常关闭时在清单末尾写入 clean 标记，启动后写入前追加 open 记录；启动时清单不以 clean 结尾（首次启动或异常退出）则扫描目录重建。
+ */
+public class LocalFileFormDataStore implements FormDataStore, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileFormDataStore.class);
+
+    private static final String FILE_PREFIX = "account_";
+    private static final String FILE_SUFFIX = ".json";
+    private static final String MANIFEST_FILE = ".manifest.log";
+    private static final long MANIFEST_COMPACT_BYTES = 4L * 1024 * 1024;
+    private static final Comparator<Entry> BY_MODIFIED =
+            Comparator.comparingLong(Entry::getLastModified).thenComparing(Entry::getKey);
+
+    private final Path directory;
+    // 文件名中的键 -> 清单条目；byModified 与之同步更新（在 this 锁内）
+    private final ConcurrentHashMap<String, Entry> manifest = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> byModified = new ConcurrentSkipListSet<>(BY_MODIFIED);
+    private final AppendOnlyLog manifestLog;
+    private long lastVersion;
+    // 清单追加失败后不再写 clean 标记，下次启动时重建
+    private boolean manifestDirty;
+
+    public LocalFileFormDataStore(String directory) throws IOException {
+        this.directory = Paths.get(directory);
+        if (!Files.exists(this.directory)) {
+            Files.createDirectories(this.directory);
+            logger.info("Created storage directory: {}", directory);
+        }
+        // 清单可以从目录重建，不需要每次 fsync
+        this.manifestLog = new AppendOnlyLog(this.directory.resolve(MANIFEST_FILE), new ObjectMapper(),
+                false, MANIFEST_COMPACT_BYTES);
+        if (loadManifest()) {
+            // clean 标记只代表上次正常关闭；在本次任何写入之前追加 open 记录，
+            // 否则本次在替换文件之后、追加清单之前崩溃时，下次启动仍会看到 clean 而信任缺少该文档的清单
+            manifestLog.append(List.of(Map.of("op", "open")));
+        } else {
+            rebuildManifest();
+        }
+        // 从清单中恢复最大版本，重启后版本号仍然递增
+        for (Entry entry : manifest.values()) {
+            lastVersion = Math.max(lastVersion, entry.getVersion());
+        }
+    }
+
+    @Override
+    public Long version(String key) throws IOException {
+        try {
+            return Files.getLastModifiedTime(pathFor(key)).toMillis();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public StoredDocument read(String key) throws IOException {
+        Path path = pathFor(key);
+        try {
+            // 先取版本再读内容：并发写入时得到的版本只会偏旧，下次校验会重新读取，不会把旧内容当作新版本缓存
+            long version = Files.getLastModifiedTime(path).toMillis();
+            return new StoredDocument(version, Files.readAllBytes(path));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public long write(String key, byte[] content) throws IOException {
+        Path target = pathFor(key);
+        Path temp = Files.createTempFile(directory, FILE_PREFIX, ".tmp");
+        try {
+            // 内容写入临时文件不需要加锁，并发保存（如批量导入）可以并行写入；
+            // 分配版本、替换文件和更新清单在锁内按顺序完成，版本号与替换顺序一致
+            Files.write(temp, content);
+            synchronized (this) {
+                long version = nextVersion();
+                Files.setLastModifiedTime(temp, FileTime.fromMillis(version));
+                try {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Entry entry = new Entry(key, content.length, version, version);
+                index(sanitize(key), entry);
+                appendManifest(putRecord(entry));
+                return version;
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 以只读方式打开文档文件，不存在返回 null
+     * 文件总是整体原子替换，打开的通道读到的是打开时的完整版本，适合 FileChannel.transferTo 直接发送
+     */
+    public FileChannel openChannel(String key) throws IOException {
+        try {
+            return FileChannel.open(pathFor(key), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized boolean delete(String key) throws IOException {
+        boolean deleted = Files.deleteIfExists(pathFor(key));
+        if (unindex(sanitize(key))) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("op", "delete");
+            record.put("key", sanitize(key));
+            appendManifest(record);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Map<String, Long> list() {
+        Map<String, Long> documents = new HashMap<>();
+        for (Entry entry : manifest.values()) {
+            documents.put(entry.getKey(), entry.getVersion());
+        }
+        return documents;
+    }
+
+    /**
+     * 从有序清单中取一页，只访问本页的条目
+     */
+    @Override
+    public Page listPage(String cursor, long since, boolean newestFirst, int limit) {
+        Entry after = cursor != null ? decodeCursor(cursor) : null;
+        NavigableSet<Entry> view;
+        if (newestFirst) {
+            view = (after != null ? byModified.headSet(after, false) : byModified).descendingSet();
+        } else {
+            view = after != null ? byModified.tailSet(after, false)
+                    : byModified.tailSet(new Entry("", 0, since, 0), true);
+        }
+        List<Entry> entries = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Entry> iterator = view.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.getLastModified() < since) {
+                // 新的在前时，遇到早于 since 的条目后面都更早
+                if (newestFirst) {
+                    break;
+                }
+                continue;
+            }
+            if (entries.size() == limit) {
+                return new Page(entries, encodeCursor(entries.get(entries.size() - 1)));
+            }
+            entries.add(entry);
+        }
+        return new Page(entries, null);
+    }
+
+    @Override
+    public String describe() {
+        return "local:" + directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 写入 clean 标记，下次启动时直接使用清单
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!manifestDirty) {
+            manifestLog.append(List.of(Map.of("op", "clean")));
+        }
+        manifestLog.close();
+    }
+
+    private long nextVersion() {
+        lastVersion = Math.max(System.currentTimeMillis(), lastVersion + 1);
+        return lastVersion;
+    }
+
+    private void index(String fileKey, Entry entry) {
+        Entry previous = manifest.put(fileKey, entry);
+        if (previous != null) {
+            byModified.remove(previous);
+        }
+        byModified.add(entry);
+    }
+
+    private boolean unindex(String fileKey) {
+        Entry previous = manifest.remove(fileKey);
+        if (previous != null) {
+            byModified.remove(previous);
+        }
+        return previous != null;
+    }
+
+    /**
+     * 重放清单；以 clean 标记结尾（上次打开后正常关闭）时返回 true
+     */
+    private boolean loadManifest() throws IOException {
+        if (manifestLog.size() == 0) {
+            return false;
+        }
+        String[] lastOp = {null};
+        manifestLog.replay(record -> {
+            String op = (String) record.get("op");
+            lastOp[0] = op;
+            if ("put".equals(op)) {
+                Entry entry = new Entry((String) record.get("key"), ((Number) record.get("size")).longValue(),
+                        ((Number) record.get("lastModified")).longValue(), ((Number) record.get("version")).longValue());
+                index(sanitize(entry.getKey()), entry);
+            } else if ("delete".equals(op)) {
+                unindex((String) record.get("key"));
+            }
+        });
+        if (!"clean".equals(lastOp[0])) {
+            logger.warn("Storage manifest {} was not closed cleanly, rebuilding from directory", manifestLog.getFile());
+            manifest.clear();
+            byModified.clear();
+            return false;
+        }
+        logger.info("Loaded storage manifest with {} documents", manifest.size());
+        return true;
+    }
+
+    /**
+     * 扫描目录重建清单并重写清单文件；文件名中的键是清理过的，原始键要等下次保存才能恢复
+     */
+    private void rebuildManifest() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                String fileName = path.getFileName().toString();
+                if (!fileName.startsWith(FILE_PREFIX) || !fileName.endsWith(FILE_SUFFIX)) {
+                    return;
+                }
+                String key = fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length());
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    long modified = attributes.lastModifiedTime().toMillis();
+                    index(key, new Entry(key, attributes.size(), modified, modified));
+                } catch (IOException e) {
+                    // 扫描期间被删除
+                    logger.debug("Skipping {}: {}", path, e.getMessage());
+                }
+            });
+        }
+        rewriteManifest();
+        logger.info("Rebuilt storage manifest from {} documents in {}", manifest.size(), directory);
+    }
+
+    private void appendManifest(Map<String, Object> record) {
+        try {
+            manifestLog.append(List.of(record));
+            if (manifestLog.needsCompaction()) {
+                rewriteManifest();
+            }
+        } catch (IOException e) {
+            // 文档本身已经写入；清单落后的部分在下次启动时重建
+            manifestDirty = true;
+            logger.warn("Failed to update storage manifest: {}", e.getMessage());
+        }
+    }
+
+    private void rewriteManifest() throws IOException {
+        List<Map<String, Object>> records = new ArrayList<>(manifest.size());
+        for (Entry entry : byModified) {
+            records.add(putRecord(entry));
+        }
+        manifestLog.rewrite(records);
+    }
+
+    private static Map<String, Object> putRecord(Entry entry) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("op", "put");
+        record.put("key", entry.getKey());
+        record.put("size", entry.getSize());
+        record.put("lastModified", entry.getLastModified());
+        record.put("version", entry.getVersion());
+        return record;
+    }
+
+    /**
+     * 游标是上一页最后一条的 (修改时间, 键)，编码为 URL 安全的 Base64
+     */
+    static String encodeCursor(Entry entry) {
+        String position = entry.getLastModified() + ":" + entry.getKey();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Entry decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(':');
+            return new Entry(position.substring(separator + 1), 0, Long.parseLong(position.substring(0, separator)), 0);
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * 根据 Record ID 生成文件路径，清理特殊字符确保文件名安全
+     */
+    private Path pathFor(String key) {
+        return directory.resolve(FILE_PREFIX + sanitize(key) + FILE_SUFFIX);
+    }
+
+    static String sanitize(String key) {
+        return key.replaceAll("[^a-zA-Z0-9]", "_");
+    }
+}
@@ -0,0 +1,114 @@
+package com.salesforce.integration.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 本地目录令牌存储：token_{租户}.bin 保存密文，lease_{租户} 记录租约持有者和到期时间
+ * 租约的读改写由文件锁保护，同一台机器（或共享卷）上的多个进程之间也是互斥的。
+ */
+public class LocalFileTokenStore implements TokenStore {
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileTokenStore.class);
+
+    private final Path directory;
+
+    public LocalFileTokenStore(String directory) throws IOException {
+        this.directory = Paths.get(directory);
+        if (!Files.exists(this.directory)) {
+            Files.createDirectories(this.directory);
+            logger.info("Created token store directory: {}", directory);
+        }
+    }
+
+    @Override
+    public byte[] load(String tenantId) throws IOException {
+        try {
+            return Files.readAllBytes(tokenPath(tenantId));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void save(String tenantId, byte[] encrypted) throws IOException {
+        Path temp = Files.createTempFile(directory, "token_", ".tmp");
+        try {
+            Files.write(temp, encrypted);
+            try {
+                Files.move(temp, tokenPath(tenantId), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, tokenPath(tenantId), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public synchronized boolean tryAcquireLease(String tenantId, String owner, long ttlMs) throws IOException {
+        Path leasePath = leasePath(tenantId);
+        try (FileChannel channel = FileChannel.open(lockPath(tenantId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // 关闭通道时文件锁随之释放
+            channel.lock();
+            String[] lease = readLease(leasePath);
+            long now = System.currentTimeMillis();
+            if (lease != null && !lease[0].equals(owner) && Long.parseLong(lease[1]) > now) {
+                return false;
+            }
+            Files.writeString(leasePath, owner + "\n" + (now + ttlMs));
+            return true;
+        }
+    }
+
+    @Override
+    public synchronized void releaseLease(String tenantId, String owner) throws IOException {
+        Path leasePath = leasePath(tenantId);
+        try (FileChannel channel = FileChannel.open(lockPath(tenantId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // 关闭通道时文件锁随之释放
+            channel.lock();
+            String[] lease = readLease(leasePath);
+            if (lease != null && lease[0].equals(owner)) {
+                Files.deleteIfExists(leasePath);
+            }
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "local:" + directory;
+    }
+
+    private static String[] readLease(Path leasePath) throws IOException {
+        try {
+            String[] lease = new String(Files.readAllBytes(leasePath), StandardCharsets.UTF_8).split("\n");
+            return lease.length == 2 ? lease : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private Path tokenPath(String tenantId) {
+        return directory.resolve("token_" + LocalFileFormDataStore.sanitize(tenantId) + ".bin");
+    }
+
+    private Path leasePath(String tenantId) {
+        return directory.resolve("lease_" + LocalFileFormDataStore.sanitize(tenantId));
+    }
+
+    private Path lockPath(String tenantId) {
+        return directory.resolve("lease_" + LocalFileFormDataStore.sanitize(tenantId) + ".lock");
+    }
+}
@@ -0,0 +1,154 @@
+package com.salesforce.integration.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * 页面渲染结果缓存
+ * 以 (租户, 模板, 页面键) 缓存渲染好的 HTML，并记录生成它的数据版本；版本变化时重新渲染并替换旧结果。
+ * 模板本身的解析结果由 Thymeleaf 模板缓存负责（spring.thymeleaf.cache），这里只省掉每次请求的渲染。
+ */
+@Component
+public class PageRenderCache {
+    private static final Logger logger = LoggerFactory.getLogger(PageRenderCache.class);
+
+    private final ITemplateEngine templateEngine;
+    private final ConcurrentHashMap<String, RenderedPage> pages = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+    private final AtomicLong maxRenderNanos = new AtomicLong();
+
+    public PageRenderCache(ITemplateEngine templateEngine,
+                           @Value("${salesforce.page-cache.enabled:true}") boolean enabled,
+                           @Value("${salesforce.page-cache.max-entries:2000}") int maxEntries) {
+        this.templateEngine = templateEngine;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 获取渲染结果；缓存中的版本与 version 一致时直接返回，否则调用 model 取数据重新渲染
+     */
+    public RenderedPage render(String template, String pageKey, String version,
+                               Supplier<Map<String, Object>> model) {
+        String key = TenantContext.current() + ":" + template + ":" + pageKey;
+        RenderedPage cached = enabled ? pages.get(key) : null;
+        if (cached != null && cached.version.equals(version)) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        RenderedPage page = new RenderedPage(version, renderNow(template, model.get()));
+        if (enabled) {
+            if (cached == null && pages.size() >= maxEntries) {
+                evictOne();
+            }
+            pages.put(key, page);
+        }
+        return page;
+    }
+
+    /**
+     * 直接渲染，不经过缓存（用于错误页等一次性内容）
+     */
+    public String renderNow(String template, Map<String, Object> variables) {
+        long start = System.nanoTime();
+        String html = templateEngine.process(template, new Context(Locale.getDefault(), variables));
+        long elapsed = System.nanoTime() - start;
+        RequestTiming.record(RequestTiming.Phase.RENDER, start);
+
+        renders.incrementAndGet();
+        renderNanos.addAndGet(elapsed);
+        maxRenderNanos.accumulateAndGet(elapsed, Math::max);
+        logger.debug("Rendered template {} in {} us", template, elapsed / 1000);
+        return html;
+    }
+
+    /**
+     * 清空缓存（模板更新后使用）
+     */
+    public void clear() {
+        pages.clear();
+        logger.info("Page render cache cleared");
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long renderCount = renders.get();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", pages.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("renders", renderCount);
+        stats.put("avgRenderMicros", renderCount == 0 ? 0 : renderNanos.get() / renderCount / 1000);
+        stats.put("maxRenderMicros", maxRenderNanos.get() / 1000);
+        return stats;
+    }
+
+    private void evictOne() {
+        // 与 RecordCache 相同的近似淘汰：在前 64 个条目中淘汰最早渲染的一个
+        Iterator<Map.Entry<String, RenderedPage>> iterator = pages.entrySet().iterator();
+        String oldestKey = null;
+        long oldestAt = Long.MAX_VALUE;
+        for (int i = 0; i < 64 && iterator.hasNext(); i++) {
+            Map.Entry<String, RenderedPage> candidate = iterator.next();
+            if (candidate.getValue().renderedAt < oldestAt) {
+                oldestAt = candidate.getValue().renderedAt;
+                oldestKey = candidate.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            pages.remove(oldestKey);
+        }
+    }
+
+    /**
+     * 一次渲染结果；ETag 由 HTML 内容计算，内容不变则 ETag 不变
+     */
+    public static class RenderedPage {
+        private final String version;
+        private final String html;
+        private final String etag;
+        private final long renderedAt = System.currentTimeMillis();
+
+        RenderedPage(String version, String html) {
+            this.version = version;
+            this.html = html;
+            CRC32 crc = new CRC32();
+            crc.update(html.getBytes(StandardCharsets.UTF_8));
+            this.etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(html.length()) + "\"";
+        }
+
+        public String getVersion() { return version; }
+        public String getHtml() { return html; }
+        public String getEtag() { return etag; }
+    }
+}
@@ -0,0 +1,63 @@
+package com.salesforce.integration.service;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 热路径上的载荷日志（SOQL、请求体、表单数据）
+ * 只在 DEBUG 开启时按比例采样输出；载荷以占位对象传给日志框架，
+ * 只有真正输出时才调用 toString 渲染并截断，未采样的调用没有字符串拼接开销。
+ */
+public final class PayloadLog {
+
+    private static volatile double sampleRate = 0.01;
+    private static volatile int maxLength = 512;
+
+    private PayloadLog() {
+    }
+
+    /**
+     * 设置采样比例（0~1）和载荷最大长度，由 LoggingConfig 在启动时调用
+     */
+    public static void configure(double rate, int length) {
+        sampleRate = rate;
+        maxLength = length;
+    }
+
+    /**
+     * 本次调用是否输出载荷日志
+     */
+    public static boolean sampled(Logger logger) {
+        if (!logger.isDebugEnabled()) {
+            return false;
+        }
+        double rate = sampleRate;
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * 延迟渲染的截断载荷
+     */
+    public static Object truncated(Object value) {
+        return new Truncated(value);
+    }
+
+    private static final class Truncated {
+        private final Object value;
+
+        Truncated(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            String text = String.valueOf(value);
+            int limit = maxLength;
+            if (text.length() <= limit) {
+                return text;
+            }
+            return text.substring(0, limit) + "...(" + text.length() + " chars)";
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.model.SalesforceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Salesforce 记录本地缓存
+ * 以 (租户, objectType, id) 为键缓存查询结果；开启增量同步后 TTL 可以设得较长，
+ * 变更和删除由 DeltaSyncService 负责刷新或淘汰；写入的记录同时推送给该记录的 SSE 订阅者。
+ * 查询不到的记录和 Salesforce 不支持的对象类型记在独立的负缓存中（TTL 较短、容量单独计算），
+ * 不会挤占真实记录；记录写入缓存、通过 API 创建或增量同步看到更新时清除对应的负缓存条目。
+ */
+@Component
+public class RecordCache {
+    private static final Logger logger = LoggerFactory.getLogger(RecordCache.class);
+
+    private final ConcurrentHashMap<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    private final RecordEventHub events;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // 负缓存：记录键 -> 未找到；"租户:objectType:" -> 对象类型查询失败的原因
+    private final ConcurrentHashMap<String, CacheEntry> negativeEntries = new ConcurrentHashMap<>();
+    private final long negativeTtlMs;
+    private final int negativeMaxEntries;
+    private final AtomicLong negativeHits = new AtomicLong();
+
+    public RecordCache(RecordEventHub events,
+                       @Value("${salesforce.cache.ttl-seconds:300}") long ttlSeconds,
+                       @Value("${salesforce.cache.max-entries:10000}") int maxEntries,
+                       @Value("${salesforce.cache.negative-ttl-seconds:30}") long negativeTtlSeconds,
+                       @Value("${salesforce.cache.negative-max-entries:10000}") int negativeMaxEntries) {
+        this.events = events;
+        this.ttlMs = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.negativeTtlMs = negativeTtlSeconds * 1000;
+        this.negativeMaxEntries = negativeMaxEntries;
+    }
+
+    /**
+     * 读取缓存记录，未命中或已过期返回 null
+     */
+    public SalesforceRecord get(String objectType, String id) {
+        String key = key(objectType, id);
+        CacheEntry entry = entries.get(key);
+        if (entry == null || entry.isExpired(ttlMs)) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.record;
+    }
+
+    /**
+     * 写入缓存；缓存的记录是共享实例，写入后不应再修改
+     */
+    public void put(String objectType, String id, SalesforceRecord record) {
+        if (entries.size() >= maxEntries) {
+            evictOne(entries, ttlMs);
+        }
+        String key = key(objectType, id);
+        entries.put(key, new CacheEntry(record, null));
+        negativeEntries.remove(key);
+        events.recordChanged(id, record);
+    }
+
+    /**
+     * 是否缓存了该记录（不计入命中率）
+     */
+    public boolean contains(String objectType, String id) {
+        CacheEntry entry = entries.get(key(objectType, id));
+        return entry != null && !entry.isExpired(ttlMs);
+    }
+
+    public void evict(String objectType, String id) {
+        entries.remove(key(objectType, id));
+    }
+
+    /**
+     * 该记录最近查询过且不存在（负缓存命中）
+     */
+    public boolean isKnownMissing(String objectType, String id) {
+        if (negativeTtlMs <= 0) {
+            return false;
+        }
+        String key = key(objectType, id);
+        CacheEntry entry = negativeEntries.get(key);
+        if (entry == null || entry.isExpired(negativeTtlMs)) {
+            if (entry != null) {
+                negativeEntries.remove(key, entry);
+            }
+            return false;
+        }
+        negativeHits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 记录查询结果为空
+     */
+    public void putMissing(String objectType, String id) {
+        putNegative(key(objectType, id), "");
+    }
+
+    /**
+     * 记录已存在（刚创建或增量同步看到了更新），清除负缓存
+     */
+    public void evictMissing(String objectType, String id) {
+        negativeEntries.remove(key(objectType, id));
+    }
+
+    /**
+     * 最近对该对象类型的查询失败原因（如 INVALID_TYPE），没有则返回 null
+     */
+    public String getTypeFailure(String objectType) {
+        if (negativeTtlMs <= 0) {
+            return null;
+        }
+        String key = key(objectType, "");
+        CacheEntry entry = negativeEntries.get(key);
+        if (entry == null || entry.isExpired(negativeTtlMs)) {
+            if (entry != null) {
+                negativeEntries.remove(key, entry);
+            }
+            return null;
+        }
+        negativeHits.incrementAndGet();
+        return entry.reason;
+    }
+
+    /**
+     * 记录对象类型查询失败（该租户的 Salesforce 不支持此对象类型）
+     */
+    public void putTypeFailure(String objectType, String reason) {
+        putNegative(key(objectType, ""), reason);
+    }
+
+    private void putNegative(String key, String reason) {
+        if (negativeTtlMs <= 0) {
+            return;
+        }
+        if (negativeEntries.size() >= negativeMaxEntries) {
+            evictOne(negativeEntries, negativeTtlMs);
+        }
+        negativeEntries.put(key, new CacheEntry(null, reason));
+    }
+
+    /**
+     * 淘汰当前租户某个对象类型的全部缓存
+     */
+    public int evictAll(String objectType) {
+        String prefix = key(objectType, "");
+        int removed = 0;
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        logger.info("Evicted {} cached {} records", removed, objectType);
+        return removed;
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlMs / 1000);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("negativeSize", negativeEntries.size());
+        stats.put("negativeMaxEntries", negativeMaxEntries);
+        stats.put("negativeTtlSeconds", negativeTtlMs / 1000);
+        stats.put("negativeHits", negativeHits.get());
+        return stats;
+    }
+
+    private static void evictOne(Map<String, CacheEntry> entries, long ttlMs) {
+        // 容量满时近似淘汰：在前 64 个条目中优先清理过期条目，否则淘汰最早写入的一个
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        String oldestKey = null;
+        long oldestAt = Long.MAX_VALUE;
+        for (int i = 0; i < 64 && iterator.hasNext(); i++) {
+            Map.Entry<String, CacheEntry> candidate = iterator.next();
+            if (candidate.getValue().isExpired(ttlMs)) {
+                iterator.remove();
+                return;
+            }
+            if (candidate.getValue().cachedAt < oldestAt) {
+                oldestAt = candidate.getValue().cachedAt;
+                oldestKey = candidate.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            entries.remove(oldestKey);
+        }
+    }
+
+    private static String key(String objectType, String id) {
+        return TenantContext.current() + ":" + objectType + ":" + id;
+    }
+
+    private static class CacheEntry {
+        private final SalesforceRecord record;
+        // 负缓存条目的失败原因，记录未找到时为空字符串
+        private final String reason;
+        private final long cachedAt = System.currentTimeMillis();
+
+        CacheEntry(SalesforceRecord record, String reason) {
+            this.record = record;
+            this.reason = reason;
+        }
+
+        boolean isExpired(long ttlMs) {
+            return System.currentTimeMillis() - cachedAt > ttlMs;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.model.SalesforceRecord;
+
+import java.util.List;
+
+/**
+ * 增量同步的变更监听器
+ * DeltaSyncService 每完成一次对象类型的同步都会回调（即使没有变更），
+ * 便于监听方记录数据的新鲜度
+ */
+public interface RecordChangeListener {
+
+    /**
+     * 是否需要该对象类型的全部变更记录；返回 false 时只会收到本地缓存中已有的记录
+     */
+    boolean isInterestedIn(String objectType);
+
+    /**
+     * @param updatedRecords 变更后的记录（类型与 SalesforceApiService 单条查询一致）
+     * @param deletedIds 已删除的记录 ID
+     */
+    void onSync(String objectType, List<SalesforceRecord> updatedRecords, List<String> deletedIds);
+}
@@ -0,0 +1,425 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.model.SalesforceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录变更的 Server-Sent Events 推送中心
+ * 嵌入页面按 (租户, 记录 ID) 订阅；记录缓存写入、增量同步和本地表单保存都会通知这里。
+ * 订阅连接使用 Servlet 异步请求，空闲时不占用线程；一个分发线程按顺序计算变化并放入每个订阅者的有界队列，
+ * 每个记录只保存最近一次推送的状态，推送时只发送变化的字段（首次推送为全部字段，被删除的字段值为 null）。
+ * 写出由 sender-threads 个写线程完成，同一订阅者的事件按顺序逐条写出；队列满或一次写出超过 send-timeout-ms 的
+ * 慢客户端会被断开，阻塞的写入最多占住一个写线程，不影响分发和其他连接。
+ * 定时发送心跳注释，及时发现断开的连接并防止代理关闭空闲连接。
+ */
+@Service
+public class RecordEventHub implements RecordChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(RecordEventHub.class);
+
+    public static final String RECORD = "record";
+    public static final String FORM = "form";
+    public static final String DELETED = "deleted";
+
+    private final ObjectMapper objectMapper;
+    private final int maxConnections;
+    private final long timeoutMs;
+    private final int subscriberQueue;
+    private final long sendTimeoutMs;
+    private final ThreadPoolExecutor sender;
+    private final ThreadPoolExecutor writers;
+
+    private final ConcurrentHashMap<String, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger peakConnections = new AtomicInteger();
+    private final AtomicLong rejectedConnections = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failedSends = new AtomicLong();
+    private final AtomicLong slowConsumers = new AtomicLong();
+    private final AtomicLong heartbeats = new AtomicLong();
+
+    public RecordEventHub(ObjectMapper objectMapper,
+                          @Value("${salesforce.events.max-connections:10000}") int maxConnections,
+                          @Value("${salesforce.events.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${salesforce.events.queue-capacity:10000}") int queueCapacity,
+                          @Value("${salesforce.events.subscriber-queue:32}") int subscriberQueue,
+                          @Value("${salesforce.events.sender-threads:4}") int senderThreads,
+                          @Value("${salesforce.events.send-timeout-ms:5000}") long sendTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.maxConnections = maxConnections;
+        this.timeoutMs = timeoutMs;
+        this.subscriberQueue = Math.max(1, subscriberQueue);
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.sender = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "record-events");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        // 每个订阅者同时最多一个写出任务，队列长度不超过连接数
+        AtomicInteger writerNumber = new AtomicInteger();
+        this.writers = new ThreadPoolExecutor(Math.max(1, senderThreads), Math.max(1, senderThreads),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "record-events-writer-" + writerNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 订阅当前租户下某条记录的变更；连接数达到上限时返回 null
+     */
+    public SseEmitter subscribe(String recordId) {
+        return subscribe(recordId, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(String recordId, SseEmitter emitter) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            rejectedConnections.incrementAndGet();
+            return null;
+        }
+        peakConnections.accumulateAndGet(connections.get(), Math::max);
+        String key = key(TenantContext.current(), recordId);
+        Subscriber subscriber = new Subscriber(key, emitter);
+        topics.compute(key, (k, topic) -> {
+            Topic target = topic != null ? topic : new Topic(recordId);
+            target.subscribers.add(subscriber);
+            return target;
+        });
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        try {
+            // 告诉浏览器断线后多久重连
+            emitter.send(SseEmitter.event().name("subscribed").reconnectTime(3000)
+                    .data(Map.of("recordId", recordId), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * 记录缓存写入了新的记录
+     */
+    @SuppressWarnings("unchecked")
+    public void recordChanged(String recordId, SalesforceRecord record) {
+        String key = key(TenantContext.current(), recordId);
+        if (topics.containsKey(key)) {
+            dispatch(key, RECORD, objectMapper.convertValue(record, Map.class));
+        }
+    }
+
+    /**
+     * 本地保存了表单数据
+     */
+    public void formSaved(String recordId, Map<String, Object> formData) {
+        String key = key(TenantContext.current(), recordId);
+        if (topics.containsKey(key)) {
+            dispatch(key, FORM, new LinkedHashMap<>(formData));
+        }
+    }
+
+    /**
+     * 有订阅时让增量同步拉取全部变更，未缓存的已订阅记录也能收到推送；增量同步只同步默认租户
+     */
+    @Override
+    public boolean isInterestedIn(String objectType) {
+        String prefix = key(TenantContext.DEFAULT_TENANT, "");
+        return topics.keySet().stream().anyMatch(key -> key.startsWith(prefix));
+    }
+
+    @Override
+    public void onSync(String objectType, List<SalesforceRecord> updatedRecords, List<String> deletedIds) {
+        // 已缓存的记录在写入缓存时已经推送过，重复推送会因状态相同而被忽略
+        for (SalesforceRecord record : updatedRecords) {
+            recordChanged(record.getId(), record);
+        }
+        for (String id : deletedIds) {
+            String key = key(TenantContext.current(), id);
+            if (topics.containsKey(key)) {
+                dispatch(key, DELETED, null);
+            }
+        }
+    }
+
+    private void dispatch(String key, String kind, Map<String, Object> state) {
+        published.incrementAndGet();
+        try {
+            sender.execute(() -> deliver(key, kind, state));
+        } catch (RejectedExecutionException e) {
+            // 发送队列已满：丢弃推送，页面仍可手动刷新
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * 在分发线程中执行：计算变化的字段，序列化一次后放入该记录所有订阅者的队列，不等待写出
+     */
+    private void deliver(String key, String kind, Map<String, Object> state) {
+        Topic topic = topics.get(key);
+        if (topic == null) {
+            return;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("recordId", topic.recordId);
+        if (state != null) {
+            Map<String, Object> changed = topic.diff(kind, state);
+            if (changed.isEmpty()) {
+                return;
+            }
+            payload.put("fields", changed);
+        } else {
+            topic.lastState.clear();
+        }
+        payload.put("ts", System.currentTimeMillis());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize {} event for {}: {}", kind, topic.recordId, e.getMessage());
+            return;
+        }
+        for (Subscriber subscriber : topic.subscribers) {
+            subscriber.offer(SseEmitter.event().name(kind).data(json, MediaType.APPLICATION_JSON), true);
+        }
+    }
+
+    /**
+     * 向所有空闲连接发送心跳注释（有待发事件的连接不需要心跳）；写入失败和写出卡住的连接会被移除
+     */
+    @Scheduled(fixedDelayString = "${salesforce.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (connections.get() == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Topic topic : topics.values()) {
+            for (Subscriber subscriber : topic.subscribers) {
+                long sendingSince = subscriber.sendingSince;
+                if (sendingSince > 0 && now - sendingSince > sendTimeoutMs) {
+                    disconnectSlow(subscriber, "write blocked for " + (now - sendingSince) + " ms");
+                } else {
+                    subscriber.offer(SseEmitter.event().comment("heartbeat"), false);
+                }
+            }
+        }
+        heartbeats.incrementAndGet();
+    }
+
+    private void disconnectSlow(Subscriber subscriber, String reason) {
+        if (subscriber.close()) {
+            slowConsumers.incrementAndGet();
+            logger.debug("Disconnecting slow event subscriber: {}", reason);
+            unsubscribe(subscriber);
+            // 写出卡住时这里不会阻塞，连接由 Tomcat 写超时最终关闭
+            writers.execute(() -> subscriber.emitter.completeWithError(new IOException("Slow consumer: " + reason)));
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.close();
+        Topic topic = topics.get(subscriber.key);
+        if (topic != null && topic.subscribers.remove(subscriber)) {
+            connections.decrementAndGet();
+            topics.computeIfPresent(subscriber.key, (k, current) -> current.subscribers.isEmpty() ? null : current);
+        }
+    }
+
+    /**
+     * 获取推送统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("connections", connections.get());
+        stats.put("peakConnections", peakConnections.get());
+        stats.put("maxConnections", maxConnections);
+        stats.put("rejectedConnections", rejectedConnections.get());
+        stats.put("subscribedRecords", topics.size());
+        stats.put("published", published.get());
+        stats.put("delivered", delivered.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failedSends", failedSends.get());
+        stats.put("slowConsumers", slowConsumers.get());
+        stats.put("heartbeats", heartbeats.get());
+        stats.put("queued", sender.getQueue().size());
+        stats.put("activeWriters", writers.getActiveCount());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        writers.shutdownNow();
+        for (Topic topic : topics.values()) {
+            for (Subscriber subscriber : topic.subscribers) {
+                subscriber.close();
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private static String key(String tenant, String recordId) {
+        return tenant + "\n" + recordId;
+    }
+
+    private static final class Topic {
+        private final String recordId;
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        // 最近一次推送的状态，只在发送线程中访问
+        private final Map<String, Map<String, Object>> lastState = new HashMap<>();
+
+        Topic(String recordId) {
+            this.recordId = recordId;
+        }
+
+        /**
+         * 返回相对上次推送变化的字段并记住新状态
+         */
+        Map<String, Object> diff(String kind, Map<String, Object> state) {
+            Map<String, Object> previous = lastState.put(kind, state);
+            if (previous == null) {
+                return state;
+            }
+            Map<String, Object> changed = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> field : state.entrySet()) {
+                if (!Objects.equals(previous.get(field.getKey()), field.getValue())) {
+                    changed.put(field.getKey(), field.getValue());
+                }
+            }
+            for (String removed : previous.keySet()) {
+                if (!state.containsKey(removed)) {
+                    changed.put(removed, null);
+                }
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * 一个订阅连接和它的有界待发队列；同时最多有一个写线程在为它写出
+     */
+    private final class Subscriber implements Runnable {
+        private final String key;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Outgoing> queue = new ArrayDeque<>();
+        // 以下两个字段在 this 锁内修改
+        private boolean draining;
+        private boolean closed;
+        // 当前写出开始的时间，空闲时为 0
+        private volatile long sendingSince;
+
+        Subscriber(String key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event, boolean data) {
+            boolean full;
+            synchronized (this) {
+                if (closed || (!data && !queue.isEmpty())) {
+                    return;
+                }
+                full = queue.size() >= subscriberQueue;
+                if (!full) {
+                    queue.add(new Outgoing(event, data));
+                    if (!draining) {
+                        draining = true;
+                        try {
+                            writers.execute(this);
+                        } catch (RejectedExecutionException e) {
+                            // 正在关闭
+                            draining = false;
+                        }
+                    }
+                }
+            }
+            if (full) {
+                dropped.incrementAndGet();
+                disconnectSlow(this, "queue full");
+            }
+        }
+
+        /**
+         * 写线程中执行：按顺序写出队列中的事件，队列空时退出
+         */
+        @Override
+        public void run() {
+            while (true) {
+                Outgoing next;
+                synchronized (this) {
+                    next = closed ? null : queue.poll();
+                    if (next == null) {
+                        queue.clear();
+                        draining = false;
+                        return;
+                    }
+                }
+                sendingSince = System.currentTimeMillis();
+                try {
+                    emitter.send(next.event);
+                    if (next.data) {
+                        delivered.incrementAndGet();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // 客户端已断开
+                    failedSends.incrementAndGet();
+                    unsubscribe(this);
+                    emitter.completeWithError(e);
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+
+        /**
+         * 不再接收和写出事件；返回是否由本次调用关闭
+         */
+        synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            queue.clear();
+            return true;
+        }
+    }
+
+    private static final class Outgoing {
+        private final SseEmitter.SseEventBuilder event;
+        private final boolean data;
+
+        Outgoing(SseEmitter.SseEventBuilder event, boolean data) {
+            this.event = event;
+            this.data = data;
+        }
+    }
+}
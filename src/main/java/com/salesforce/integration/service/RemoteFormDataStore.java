@@ -0,0 +1,177 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享存储客户端：通过 HTTP 访问存储节点（开启 salesforce.storage.serve 的实例，见 StorageNodeController）
+ * 所有副本指向同一个存储节点，保存的数据在任一副本上都可见，容器重启也不会丢失。
+ */
+public class RemoteFormDataStore implements FormDataStore {
+
+    public static final String VERSION_HEADER = "X-Storage-Version";
+    public static final String TOKEN_HEADER = "X-Storage-Token";
+
+    private final String baseUrl;
+    private final String token;
+    private final ObjectMapper objectMapper;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+
+    public RemoteFormDataStore(String baseUrl, String token, ObjectMapper objectMapper,
+                               int connectTimeoutMs, int readTimeoutMs, int maxConnections) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.token = token;
+        this.objectMapper = objectMapper;
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeoutMs)
+                        .setSocketTimeout(readTimeoutMs)
+                        .setConnectionRequestTimeout(connectTimeoutMs)
+                        .build())
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    @Override
+    public Long version(String key) throws IOException {
+        try {
+            ResponseEntity<Void> response = exchange(HttpMethod.HEAD, documentUrl(key), null, Void.class);
+            return parseVersion(response);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+
+    @Override
+    public StoredDocument read(String key) throws IOException {
+        try {
+            ResponseEntity<byte[]> response = exchange(HttpMethod.GET, documentUrl(key), null, byte[].class);
+            byte[] body = response.getBody();
+            return new StoredDocument(parseVersion(response), body != null ? body : new byte[0]);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+
+    @Override
+    public long write(String key, byte[] content) throws IOException {
+        ResponseEntity<Void> response = exchange(HttpMethod.PUT, documentUrl(key), content, Void.class);
+        return parseVersion(response);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        try {
+            exchange(HttpMethod.DELETE, documentUrl(key), null, Void.class);
+            return true;
+        } catch (HttpClientErrorException.NotFound e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, Long> list() throws IOException {
+        ResponseEntity<String> response = exchange(HttpMethod.GET, baseUrl, null, String.class);
+        return objectMapper.readValue(response.getBody(), new TypeReference<Map<String, Long>>() {});
+    }
+
+    @Override
+    public Page listPage(String cursor, long since, boolean newestFirst, int limit) throws IOException {
+        String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .queryParam("limit", limit)
+                .queryParam("since", since)
+                .queryParam("order", newestFirst ? "desc" : "asc")
+                .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
+                .toUriString();
+        ResponseEntity<String> response;
+        try {
+            response = exchange(HttpMethod.GET, url, null, String.class);
+        } catch (IOException e) {
+            if (e.getCause() instanceof HttpClientErrorException.BadRequest) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            throw e;
+        }
+        JsonNode page = objectMapper.readTree(response.getBody());
+        List<Entry> entries = new ArrayList<>();
+        for (JsonNode entry : page.path("entries")) {
+            entries.add(new Entry(entry.path("key").asText(), entry.path("size").asLong(),
+                    entry.path("lastModified").asLong(), entry.path("version").asLong()));
+        }
+        JsonNode nextCursor = page.path("nextCursor");
+        return new Page(entries, nextCursor.isTextual() ? nextCursor.asText() : null);
+    }
+
+    @Override
+    public String describe() {
+        return "remote:" + baseUrl;
+    }
+
+    public void shutdown() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            // 关闭时忽略
+        }
+    }
+
+    private <T> ResponseEntity<T> exchange(HttpMethod method, String url, byte[] body, Class<T> responseType)
+            throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TOKEN_HEADER, token);
+        if (body != null) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        try {
+            return restTemplate.exchange(url, method, new HttpEntity<>(body, headers), responseType);
+        } catch (HttpClientErrorException.NotFound e) {
+            throw e;
+        } catch (RestClientException e) {
+            // 统一为 IOException，调用方按存储故障处理
+            throw new IOException("Storage request " + method + " " + url + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private String documentUrl(String key) {
+        return baseUrl + "/" + LocalFileFormDataStore.sanitize(key);
+    }
+
+    private static long parseVersion(ResponseEntity<?> response) throws IOException {
+        String version = response.getHeaders().getFirst(VERSION_HEADER);
+        if (response.getStatusCode() != HttpStatus.OK || version == null) {
+            throw new IOException("Storage response missing " + VERSION_HEADER + " (status " +
+                    response.getStatusCode() + ")");
+        }
+        return Long.parseLong(version);
+    }
+}
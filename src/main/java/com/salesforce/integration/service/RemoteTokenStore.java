@@ -0,0 +1,89 @@
+package com.salesforce.integration.service;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 共享令牌存储客户端：通过存储节点（StorageNodeController）的 /tokens 接口读写密文和租约
+ */
+public class RemoteTokenStore implements TokenStore {
+
+    private final String baseUrl;
+    private final String token;
+    private final RestTemplate restTemplate;
+
+    public RemoteTokenStore(String storageUrl, String token, int connectTimeoutMs, int readTimeoutMs) {
+        String base = storageUrl.endsWith("/") ? storageUrl.substring(0, storageUrl.length() - 1) : storageUrl;
+        this.baseUrl = base + "/tokens/";
+        this.token = token;
+        // 令牌请求很少，不需要单独的连接池配置
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public byte[] load(String tenantId) throws IOException {
+        try {
+            return exchange(HttpMethod.GET, tokenUrl(tenantId), null, byte[].class);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void save(String tenantId, byte[] encrypted) throws IOException {
+        exchange(HttpMethod.PUT, tokenUrl(tenantId), encrypted, Void.class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAcquireLease(String tenantId, String owner, long ttlMs) throws IOException {
+        Map<String, Object> result = exchange(HttpMethod.POST,
+                leaseUrl(tenantId, owner) + "&ttlMs=" + ttlMs, null, Map.class);
+        return result != null && Boolean.TRUE.equals(result.get("granted"));
+    }
+
+    @Override
+    public void releaseLease(String tenantId, String owner) throws IOException {
+        exchange(HttpMethod.DELETE, leaseUrl(tenantId, owner), null, Void.class);
+    }
+
+    @Override
+    public String describe() {
+        return "remote:" + baseUrl;
+    }
+
+    private <T> T exchange(HttpMethod method, String url, byte[] body, Class<T> responseType) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(RemoteFormDataStore.TOKEN_HEADER, token);
+        if (body != null) {
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        }
+        try {
+            return restTemplate.exchange(url, method, new HttpEntity<>(body, headers), responseType).getBody();
+        } catch (HttpClientErrorException.NotFound e) {
+            throw e;
+        } catch (RestClientException e) {
+            throw new IOException("Token store request " + method + " " + url + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private String tokenUrl(String tenantId) {
+        return baseUrl + LocalFileFormDataStore.sanitize(tenantId);
+    }
+
+    private String leaseUrl(String tenantId, String owner) {
+        return tokenUrl(tenantId) + "/lease?owner=" + LocalFileFormDataStore.sanitize(owner);
+    }
+}
@@ -0,0 +1,144 @@
+package com.salesforce.integration.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 请求级耗时记录：按阶段累计当前请求在令牌、存储、上游 HTTP、JSON 解析和模板渲染上花费的时间
+ * 由 RequestTimingFilter 在请求开始时创建；没有记录器的线程（后台任务）调用 record 不做任何事。
+ * 每个阶段只是一次 ThreadLocal 读取和两次 System.nanoTime()，可以在生产环境常开。
+ * 同一阶段的多次调用累加；异步任务通过 wrap 记录到发起请求的记录器上，因此各阶段之和可能超过总耗时。
+ */
+public final class RequestTiming {
+
+    public enum Phase {
+        TOKEN("token"),
+        STORAGE("storage"),
+        UPSTREAM("upstream"),
+        PARSE("parse"),
+        RENDER("render");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray nanos = new AtomicLongArray(PHASES.length);
+    private final AtomicLongArray counts = new AtomicLongArray(PHASES.length);
+
+    /**
+     * 为当前线程开始一个新的请求记录
+     */
+    public static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 阶段开始时间；与 record 配对使用
+     */
+    public static long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 把从 beginNanos 到现在的耗时记到当前请求的阶段上
+     */
+    public static void record(Phase phase, long beginNanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(phase, System.nanoTime() - beginNanos);
+        }
+    }
+
+    /**
+     * 捕获当前请求的记录器，返回在其他线程中记录到同一请求上的任务
+     */
+    public static Runnable wrap(Runnable task) {
+        RequestTiming timing = CURRENT.get();
+        if (timing == null) {
+            return task;
+        }
+        return () -> {
+            RequestTiming previous = CURRENT.get();
+            CURRENT.set(timing);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    public void add(Phase phase, long elapsedNanos) {
+        nanos.addAndGet(phase.ordinal(), elapsedNanos);
+        counts.incrementAndGet(phase.ordinal());
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * 各阶段耗时（毫秒），只包含实际发生的阶段
+     */
+    public Map<String, Double> phaseMillis() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Phase phase : PHASES) {
+            if (counts.get(phase.ordinal()) > 0) {
+                result.put(phase.getMetricName(), nanos.get(phase.ordinal()) / 1_000_000.0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Server-Timing 响应头，例如 token;dur=0.8, upstream;dur=120.4, render;dur=3.1, total;dur=130.2
+     */
+    public String toServerTimingHeader() {
+        StringBuilder header = new StringBuilder(128);
+        for (Phase phase : PHASES) {
+            long count = counts.get(phase.ordinal());
+            if (count > 0) {
+                appendMetric(header, phase.getMetricName(), nanos.get(phase.ordinal()));
+                if (count > 1) {
+                    header.append(";desc=\"").append(count).append(" calls\"");
+                }
+            }
+        }
+        appendMetric(header, "total", elapsedNanos());
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        header.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0));
+    }
+}
@@ -1,68 +1,116 @@
 package com.salesforce.integration.service;
 
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.model.AccountInfo;
+import com.salesforce.integration.model.SalesforceRecord;
 import com.salesforce.integration.model.TokenInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class SalesforceApiService {
     private static final Logger logger = LoggerFactory.getLogger(SalesforceApiService.class);
     
-    private final SalesforceOAuthClient oauthClient;
-    private final RestTemplate restTemplate;
+    private static final String ESTIMATE_OBJECT = "ffscpq__Estimate__c";
+    private static final String ACCOUNT_FIELDS = "Id, Name, Phone, Website, Industry, Type, Description, AnnualRevenue";
+    private static final String DEFAULT_FIELDS = "Id, Name";
+    // sObject Collections 每次请求最多 200 条记录
+    private static final int COLLECTION_LIMIT = 200;
+    
+    private final SalesforceRequestExecutor requestExecutor;
+    private final RecordCache recordCache;
+    private final TenantRegistry tenantRegistry;
+    private final SalesforceJsonCodec jsonCodec;
     private final ObjectMapper objectMapper;
+    // 按对象类型编译一次的查询语句
+    private final ConcurrentHashMap<String, SoqlTemplate> byIdTemplates = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SoqlTemplate> byIdsTemplates = new ConcurrentHashMap<>();
+    // 正在执行的按 ID 查询（租户 + 编码后的查询），并发的相同查询共用一次请求
+    private final ConcurrentHashMap<String, CompletableFuture<SalesforceRecord>> inFlightLoads = new ConcurrentHashMap<>();
     
     @Value("${salesforce.oauth.api-version:v59.0}")
     private String apiVersion;
     
-    public SalesforceApiService(SalesforceOAuthClient oauthClient) {
-        this.oauthClient = oauthClient;
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    @Value("${salesforce.batch.max-records:2000}")
+    private int maxBatchRecords;
+    
+    public SalesforceApiService(SalesforceRequestExecutor requestExecutor,
+                                RecordCache recordCache,
+                                SalesforceJsonCodec jsonCodec,
+                                TenantRegistry tenantRegistry) {
+        this.requestExecutor = requestExecutor;
+        this.recordCache = recordCache;
+        this.tenantRegistry = tenantRegistry;
+        this.jsonCodec = jsonCodec;
+        this.objectMapper = jsonCodec.getObjectMapper();
+    }
+    
+    /**
+     * 当前租户的 RestTemplate（独立连接池，超时见 salesforce.http.*）
+     */
+    private RestTemplate restTemplate() throws Exception {
+        return tenantRegistry.current().getRestTemplate();
+    }
+    
+    /**
+     * 预热连接：请求版本资源列表（开销很小），提前完成 DNS、TLS 握手并建立可复用的连接
+     */
+    public void warmUpConnection() throws Exception {
+        requestExecutor.executeIdempotent("warm-up", tokenInfo -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(tokenInfo.getAccessToken());
+            restTemplate().exchange(tokenInfo.getInstanceUrl() + "/services/data/" + apiVersion + "/",
+                    HttpMethod.GET, new HttpEntity<>(headers), String.class);
+            return null;
+        });
     }
     
     /**
-     * 执行SOQL查询 - 使用 UriComponentsBuilder 避免编码问题
+     * 执行SOQL查询（调试接口使用的任意语句，只做一次编码）
      */
     public JsonNode executeQuery(String soql) throws Exception {
-        TokenInfo tokenInfo = oauthClient.getAccessToken();
-        
-        // 使用 UriComponentsBuilder 构建 URL，它会自动处理编码
-        String url = UriComponentsBuilder.fromHttpUrl(tokenInfo.getInstanceUrl())
-                .path("/services/data/" + apiVersion + "/query")
-                .queryParam("q", soql)
-                .build()
-                .toUriString();
-        
-        logger.info("Original SOQL: {}", soql);
-        logger.info("Encoded URL: {}", url);
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(tokenInfo.getAccessToken());
-        
-        HttpEntity<String> request = new HttpEntity<>(headers);
+        if (PayloadLog.sampled(logger)) {
+            logger.debug("SOQL: {}", PayloadLog.truncated(soql));
+        }
+        SoqlTemplate.Query query = SoqlTemplate.literal(soql);
         
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, request, String.class);
-            
-            if (response.getStatusCode().is2xxSuccessful()) {
-                return objectMapper.readTree(response.getBody());
-            } else {
-                throw new Exception("Query failed: " + response.getStatusCode() + " - " + response.getBody());
-            }
+            return requestExecutor.executeIdempotent("query", tokenInfo -> {
+                URI uri = query.toUri(tokenInfo.getInstanceUrl(), apiVersion);
+                
+                HttpHeaders headers = new HttpHeaders();
+                headers.setBearerAuth(tokenInfo.getAccessToken());
+                
+                HttpEntity<String> request = new HttpEntity<>(headers);
+                ResponseEntity<String> response = restTemplate().exchange(uri, HttpMethod.GET, request, String.class);
+                
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    return jsonCodec.readTree(response.getBody());
+                } else {
+                    throw new Exception("Query failed: " + response.getStatusCode() + " - " + response.getBody());
+                }
+            });
         } catch (Exception e) {
             logger.error("Query execution failed", e);
             throw e;
@@ -70,149 +118,422 @@ public class SalesforceApiService {
     }
     
     /**
-     * 获取Account记录
+     * 通过 sObject REST 接口读取单条记录
      */
-    public Map<String, Object> getAccountById(String accountId) throws Exception {
-        logger.info("Getting account info for: {}", accountId);
-        
-        String soql = "SELECT Id, Name, Phone, Website, Industry, Type, Description, AnnualRevenue " +
-                     "FROM Account WHERE Id = '" + accountId + "'";
-        
-        JsonNode result = executeQuery(soql);
-        
-        if (result != null && result.has("records") && result.get("records").size() > 0) {
-            JsonNode record = result.get("records").get(0);
+    public JsonNode getSObject(String objectName, String id) throws Exception {
+        return requestExecutor.executeIdempotent("sobject-get", tokenInfo -> {
+            String url = tokenInfo.getInstanceUrl() + "/services/data/" + apiVersion + "/sobjects/" + objectName + "/" + id;
             
-            Map<String, Object> account = new HashMap<>();
-            account.put("Id", getJsonProperty(record, "Id"));
-            account.put("Name", getJsonProperty(record, "Name"));
-            account.put("Phone", getJsonProperty(record, "Phone"));
-            account.put("Website", getJsonProperty(record, "Website"));
-            account.put("Industry", getJsonProperty(record, "Industry"));
-            account.put("Type", getJsonProperty(record, "Type"));
-            account.put("Description", getJsonProperty(record, "Description"));
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(tokenInfo.getAccessToken());
             
-            if (record.has("AnnualRevenue") && !record.get("AnnualRevenue").isNull()) {
-                account.put("AnnualRevenue", record.get("AnnualRevenue").asDouble());
-            }
+            HttpEntity<String> request = new HttpEntity<>(headers);
+            ResponseEntity<String> response = restTemplate().exchange(url, HttpMethod.GET, request, String.class);
             
-            return account;
-        } else {
+            return jsonCodec.readTree(response.getBody());
+        });
+    }
+    
+    /**
+     * 查询时间窗口内变更或删除的记录（sObject updated / deleted 接口）
+     * @param changeType "updated" 或 "deleted"
+     */
+    public JsonNode getChangedRecords(String objectType, String changeType, String start, String end) throws Exception {
+        return requestExecutor.executeIdempotent("sobject-" + changeType, tokenInfo -> {
+            // 时间中的 "+" 需要编码，直接构造 URI 避免 RestTemplate 二次编码
+            URI uri = URI.create(tokenInfo.getInstanceUrl() + "/services/data/" + apiVersion +
+                    "/sobjects/" + objectType + "/" + changeType + "/" +
+                    "?start=" + URLEncoder.encode(start, StandardCharsets.UTF_8) +
+                    "&end=" + URLEncoder.encode(end, StandardCharsets.UTF_8));
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(tokenInfo.getAccessToken());
+
+            HttpEntity<String> request = new HttpEntity<>(headers);
+            ResponseEntity<String> response = restTemplate().exchange(uri, HttpMethod.GET, request, String.class);
+
+            return jsonCodec.readTree(response.getBody());
+        });
+    }
+
+    /**
+     * 获取Account记录
+     */
+    public AccountInfo getAccountById(String accountId) throws Exception {
+        logger.debug("Getting account info for: {}", accountId);
+        
+        AccountInfo account = (AccountInfo) loadRecord("Account", accountId);
+        if (account == null) {
             throw new Exception("Account not found: " + accountId);
         }
+        return account;
     }
     
     /**
      * 获取Estimate记录
      */
-    public Map<String, Object> getEstimateById(String estimateId) throws Exception {
-        logger.info("Getting estimate info for: {}", estimateId);
-        
-        String soql = "SELECT Id, Name FROM ffscpq__Estimate__c WHERE Id = '" + estimateId + "'";
+    public SalesforceRecord getEstimateById(String estimateId) throws Exception {
+        logger.debug("Getting estimate info for: {}", estimateId);
         
-        JsonNode result = executeQuery(soql);
-        
-        if (result != null && result.has("records") && result.get("records").size() > 0) {
-            JsonNode record = result.get("records").get(0);
-            
-            Map<String, Object> estimate = new HashMap<>();
-            estimate.put("Id", getJsonProperty(record, "Id"));
-            estimate.put("Name", getJsonProperty(record, "Name"));
-            
-            return estimate;
-        } else {
+        SalesforceRecord estimate = loadRecord(ESTIMATE_OBJECT, estimateId);
+        if (estimate == null) {
             throw new Exception("Estimate not found: " + estimateId);
         }
+        return estimate;
     }
     
     /**
      * 通用记录查询
      */
-    public Map<String, Object> getRecordById(String objectType, String recordId) throws Exception {
-        logger.info("Getting {} record: {}", objectType, recordId);
-        
-        String soql = "SELECT Id, Name FROM " + objectType + " WHERE Id = '" + recordId + "'";
+    public SalesforceRecord getRecordById(String objectType, String recordId) throws Exception {
+        logger.debug("Getting {} record: {}", objectType, recordId);
         
-        JsonNode result = executeQuery(soql);
-        
-        if (result != null && result.has("records") && result.get("records").size() > 0) {
-            JsonNode record = result.get("records").get(0);
-            
-            Map<String, Object> resultMap = new HashMap<>();
-            resultMap.put("Id", getJsonProperty(record, "Id"));
-            resultMap.put("Name", getJsonProperty(record, "Name"));
-            resultMap.put("ObjectType", objectType);
-            
-            return resultMap;
-        } else {
+        SalesforceRecord record = loadRecord(objectType, recordId);
+        if (record == null) {
             throw new Exception("Record not found: " + recordId + " in object " + objectType);
         }
+        
+        SalesforceRecord result = new SalesforceRecord();
+        result.setId(record.getId());
+        result.setName(record.getName());
+        result.setObjectType(objectType);
+        
+        return result;
     }
     
     /**
-     * 创建记录
+     * 按 ID 批量查询记录（每批最多 batchSize 个 ID），返回的字段与单条查询一致
      */
-    public JsonNode createRecord(String objectType, Map<String, Object> fields) throws Exception {
-        TokenInfo tokenInfo = oauthClient.getAccessToken();
-        
-        String url = tokenInfo.getInstanceUrl() + "/services/data/" + apiVersion + "/sobjects/" + objectType;
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(tokenInfo.getAccessToken());
-        headers.setContentType(MediaType.APPLICATION_JSON);
+    public List<SalesforceRecord> getRecordsByIds(String objectType, List<String> ids, int batchSize) throws Exception {
+        List<SalesforceRecord> records = new ArrayList<>();
+        SoqlTemplate template = byIdsTemplates.computeIfAbsent(objectType,
+                type -> SoqlTemplate.selectByIds(fieldsFor(type), type));
         
-        String jsonBody = objectMapper.writeValueAsString(fields);
-        HttpEntity<String> request = new HttpEntity<>(jsonBody, headers);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            queryAllRecords(template.bind(batch), recordTypeFor(objectType), records::add);
+        }
+        return records;
+    }
+    
+    /**
+     * 分页读取查询结果（跟随 nextRecordsUrl），逐条回调，返回记录总数
+     * whereClause 由调用方负责转义
+     */
+    public int queryAllRecords(String objectType, String whereClause, Consumer<SalesforceRecord> consumer) throws Exception {
+        String soql = "SELECT " + fieldsFor(objectType) + " FROM " + SoqlTemplate.identifier(objectType) +
+                     (whereClause == null ? "" : " WHERE " + whereClause);
         
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, request, String.class);
+        return queryAllRecords(SoqlTemplate.literal(soql), recordTypeFor(objectType), consumer);
+    }
+    
+    private <T> int queryAllRecords(SoqlTemplate.Query query, Class<T> recordType, Consumer<? super T> consumer) throws Exception {
+        if (PayloadLog.sampled(logger)) {
+            logger.debug("SOQL: {}", PayloadLog.truncated(query));
+        }
         
-        if (response.getStatusCode().is2xxSuccessful()) {
-            return objectMapper.readTree(response.getBody());
-        } else {
-            throw new Exception("Create failed: " + response.getStatusCode() + " - " + response.getBody());
+        SalesforceJsonCodec.QueryPage<T> page = queryPage(tokenInfo ->
+                query.toUri(tokenInfo.getInstanceUrl(), apiVersion), recordType);
+        int count = 0;
+        while (true) {
+            for (T record : page.getRecords()) {
+                consumer.accept(record);
+                count++;
+            }
+            String nextRecordsUrl = page.getNextRecordsUrl();
+            if (nextRecordsUrl == null) {
+                return count;
+            }
+            page = queryPage(tokenInfo -> URI.create(tokenInfo.getInstanceUrl() + nextRecordsUrl), recordType);
         }
     }
     
     /**
-     * 更新Account记录
+     * 读取一页查询结果，响应体直接从输入流解析为类型化记录
      */
-    public Map<String, Object> updateAccount(String accountId, Map<String, Object> updates) throws Exception {
-        logger.info("Updating account {} with: {}", accountId, updates);
+    private <T> SalesforceJsonCodec.QueryPage<T> queryPage(Function<TokenInfo, URI> uriBuilder, Class<T> recordType) throws Exception {
+        try {
+            return requestExecutor.executeIdempotent("query", tokenInfo -> {
+                URI uri = uriBuilder.apply(tokenInfo);
+                
+                return restTemplate().execute(uri, HttpMethod.GET,
+                        request -> request.getHeaders().setBearerAuth(tokenInfo.getAccessToken()),
+                        response -> jsonCodec.readQueryPage(response.getBody(), recordType));
+            });
+        } catch (Exception e) {
+            logger.error("Query execution failed", e);
+            throw e;
+        }
+    }
+    
+    /**
+     * 读取记录的完整字段，优先使用本地缓存；记录不存在时返回 null
+     * 缓存中的记录是共享实例，调用方不应修改。
+     * 查询为空或 ID 无效时写入负缓存，对象类型不存在（INVALID_TYPE）时记录该类型的失败，
+     * 在负缓存 TTL 内重复请求同一个失效链接不再访问 Salesforce
+     */
+    private SalesforceRecord loadRecord(String objectType, String recordId) throws Exception {
+        SalesforceRecord cached = recordCache.get(objectType, recordId);
+        if (cached != null) {
+            return cached;
+        }
+        if (recordCache.isKnownMissing(objectType, recordId)) {
+            return null;
+        }
+        String typeFailure = recordCache.getTypeFailure(objectType);
+        if (typeFailure != null) {
+            throw new Exception(typeFailure);
+        }
         
-        TokenInfo tokenInfo = oauthClient.getAccessToken();
+        SoqlTemplate template = byIdTemplates.computeIfAbsent(objectType,
+                type -> SoqlTemplate.selectById(fieldsFor(type), type));
+        SoqlTemplate.Query query = template.bind(recordId);
         
-        String url = tokenInfo.getInstanceUrl() + "/services/data/" + apiVersion + "/sobjects/Account/" + accountId;
+        String key = TenantContext.current() + "\n" + query.getEncodedQuery();
+        CompletableFuture<SalesforceRecord> load = new CompletableFuture<>();
+        CompletableFuture<SalesforceRecord> running = inFlightLoads.putIfAbsent(key, load);
+        if (running != null) {
+            return awaitLoad(running);
+        }
+        try {
+            List<SalesforceRecord> records = new ArrayList<>();
+            queryAllRecords(query, recordTypeFor(objectType), records::add);
+            
+            SalesforceRecord record = records.isEmpty() ? null : records.get(0);
+            if (record != null) {
+                recordCache.put(objectType, recordId, record);
+            } else {
+                recordCache.putMissing(objectType, recordId);
+            }
+            load.complete(record);
+            return record;
+        } catch (HttpClientErrorException e) {
+            String body = e.getResponseBodyAsString();
+            if (body.contains("INVALID_TYPE")) {
+                recordCache.putTypeFailure(objectType, "Unsupported object type " + objectType + ": " + body);
+            } else if (body.contains("INVALID_QUERY_FILTER_OPERATOR") || body.contains("MALFORMED_ID")) {
+                // Salesforce 不接受的 ID 不可能查到记录，按未找到处理
+                recordCache.putMissing(objectType, recordId);
+                load.complete(null);
+                return null;
+            }
+            load.completeExceptionally(e);
+            throw e;
+        } catch (Exception e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, load);
+        }
+    }
+    
+    private SalesforceRecord awaitLoad(CompletableFuture<SalesforceRecord> running) throws Exception {
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    private String fieldsFor(String objectType) {
+        return "Account".equals(objectType) ? ACCOUNT_FIELDS : DEFAULT_FIELDS;
+    }
+    
+    private Class<? extends SalesforceRecord> recordTypeFor(String objectType) {
+        return "Account".equals(objectType) ? AccountInfo.class : SalesforceRecord.class;
+    }
+    
+    /**
+     * 创建记录
+     */
+    public JsonNode createRecord(String objectType, Map<String, Object> fields) throws Exception {
+        String jsonBody = objectMapper.writeValueAsString(fields);
         
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(tokenInfo.getAccessToken());
-        headers.setContentType(MediaType.APPLICATION_JSON);
+        return requestExecutor.execute("create", tokenInfo -> {
+            String url = tokenInfo.getInstanceUrl() + "/services/data/" + apiVersion + "/sobjects/" + objectType;
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(tokenInfo.getAccessToken());
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            
+            HttpEntity<String> request = new HttpEntity<>(jsonBody, headers);
+            ResponseEntity<String> response = restTemplate().exchange(url, HttpMethod.POST, request, String.class);
+            
+            if (response.getStatusCode().is2xxSuccessful()) {
+                JsonNode created = jsonCodec.readTree(response.getBody());
+                // 之前查询不到的链接现在应能读到新记录
+                recordCache.evictMissing(objectType, created.path("id").asText());
+                return created;
+            } else {
+                throw new Exception("Create failed: " + response.getStatusCode() + " - " + response.getBody());
+            }
+        });
+    }
+    
+    /**
+     * 更新Account记录
+     * 不再回读记录：返回本地缓存记录合并更新字段后的结果；缓存中没有该记录时只包含 Id 和更新的字段
+     */
+    public AccountInfo updateAccount(String accountId, Map<String, Object> updates) throws Exception {
+        logger.info("Updating account {} ({} fields)", accountId, updates.size());
+        if (PayloadLog.sampled(logger)) {
+            logger.debug("Account {} update payload: {}", accountId, PayloadLog.truncated(updates));
+        }
+        if (!SoqlTemplate.isRecordId(accountId)) {
+            throw new IllegalArgumentException("Invalid account ID: " + accountId);
+        }
         
         String jsonBody = objectMapper.writeValueAsString(updates);
-        HttpEntity<String> request = new HttpEntity<>(jsonBody, headers);
         
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.PATCH, request, String.class);
+        ResponseEntity<String> response = requestExecutor.execute("update", tokenInfo -> {
+            String url = tokenInfo.getInstanceUrl() + "/services/data/" + apiVersion + "/sobjects/Account/" + accountId;
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(tokenInfo.getAccessToken());
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            
+            HttpEntity<String> request = new HttpEntity<>(jsonBody, headers);
+            return restTemplate().exchange(url, HttpMethod.PATCH, request, String.class);
+        });
         
         if (response.getStatusCode().is2xxSuccessful()) {
-            // 返回更新后的Account
-            return getAccountById(accountId);
+            return mergeUpdate(accountId, updates);
         } else {
             throw new Exception("Update failed: " + response.getStatusCode() + " - " + response.getBody());
         }
     }
     
     /**
-     * 获取JSON属性
+     * 批量更新Account记录（sObject Collections），每 200 条一次请求
+     * allOrNone 只作用于同一次请求内的记录；某一批请求失败时该批记录都标记为失败，其余批次照常执行
+     * @param records 每条记录必须包含 Id
+     * @param returnMerged 成功的记录是否附带合并后的记录（同 updateAccount）
+     * @return 与输入顺序一致的逐条结果
      */
-    private String getJsonProperty(JsonNode node, String property) {
-        if (node != null && node.has(property) && !node.get(property).isNull()) {
-            JsonNode value = node.get(property);
-            if (value.isTextual()) {
-                return value.asText();
-            } else {
-                return value.toString();
+    public List<Map<String, Object>> updateAccounts(List<Map<String, Object>> records, boolean allOrNone,
+                                                    boolean returnMerged) throws Exception {
+        if (records.isEmpty() || records.size() > maxBatchRecords) {
+            throw new IllegalArgumentException("Batch must contain 1 to " + maxBatchRecords + " records");
+        }
+        for (Map<String, Object> record : records) {
+            Object id = record.get("Id");
+            if (!(id instanceof String) || !SoqlTemplate.isRecordId((String) id)) {
+                throw new IllegalArgumentException("Invalid or missing Id: " + id);
+            }
+        }
+        logger.info("Updating {} accounts in {} requests", records.size(),
+                (records.size() + COLLECTION_LIMIT - 1) / COLLECTION_LIMIT);
+        
+        List<Map<String, Object>> results = new ArrayList<>(records.size());
+        for (int from = 0; from < records.size(); from += COLLECTION_LIMIT) {
+            List<Map<String, Object>> chunk = records.subList(from, Math.min(records.size(), from + COLLECTION_LIMIT));
+            JsonNode response;
+            try {
+                response = updateCollection(chunk, allOrNone);
+            } catch (Exception e) {
+                logger.warn("Account batch update of {} records failed: {}", chunk.size(), e.getMessage());
+                for (Map<String, Object> record : chunk) {
+                    results.add(batchResult((String) record.get("Id"), false,
+                            List.of(Map.of("message", String.valueOf(e.getMessage()))), null));
+                }
+                continue;
             }
+            for (int i = 0; i < chunk.size(); i++) {
+                String id = (String) chunk.get(i).get("Id");
+                JsonNode result = response.path(i);
+                boolean success = result.path("success").asBoolean(false);
+                if (success) {
+                    AccountInfo merged = mergeUpdate(id, chunk.get(i));
+                    results.add(batchResult(id, true, List.of(), returnMerged ? merged : null));
+                } else {
+                    results.add(batchResult(id, false, objectMapper.convertValue(result.path("errors"), List.class), null));
+                }
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * 批量创建记录（sObject Collections，allOrNone=false），最多 200 条
+     * @return 与输入顺序一致的结果数组，每项包含 id、success、errors
+     */
+    public JsonNode createRecords(String objectType, List<Map<String, Object>> records) throws Exception {
+        JsonNode results = sObjectCollection(HttpMethod.POST, objectType, records, false);
+        for (JsonNode result : results) {
+            if (result.path("success").asBoolean(false)) {
+                recordCache.evictMissing(objectType, result.path("id").asText());
+            }
+        }
+        return results;
+    }
+    
+    private JsonNode updateCollection(List<Map<String, Object>> chunk, boolean allOrNone) throws Exception {
+        return sObjectCollection(HttpMethod.PATCH, "Account", chunk, allOrNone);
+    }
+    
+    private JsonNode sObjectCollection(HttpMethod method, String objectType, List<Map<String, Object>> records,
+                                       boolean allOrNone) throws Exception {
+        if (records.size() > COLLECTION_LIMIT) {
+            throw new IllegalArgumentException("sObject Collections accept at most " + COLLECTION_LIMIT + " records");
+        }
+        List<Map<String, Object>> payload = new ArrayList<>(records.size());
+        for (Map<String, Object> record : records) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("attributes", Map.of("type", objectType));
+            entry.putAll(record);
+            payload.add(entry);
+        }
+        String jsonBody = objectMapper.writeValueAsString(Map.of("allOrNone", allOrNone, "records", payload));
+        
+        return requestExecutor.execute(method == HttpMethod.POST ? "composite-create" : "composite-update", tokenInfo -> {
+            String url = tokenInfo.getInstanceUrl() + "/services/data/" + apiVersion + "/composite/sobjects";
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(tokenInfo.getAccessToken());
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            
+            HttpEntity<String> request = new HttpEntity<>(jsonBody, headers);
+            ResponseEntity<String> response = restTemplate().exchange(url, method, request, String.class);
+            return jsonCodec.readTree(response.getBody());
+        });
+    }
+    
+    private static Map<String, Object> batchResult(String id, boolean success, List<?> errors, AccountInfo record) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", id);
+        result.put("success", success);
+        result.put("errors", errors);
+        if (record != null) {
+            result.put("record", record);
         }
-        return null;
+        return result;
+    }
+    
+    /**
+     * 把更新字段合并到缓存记录的副本上；缓存中有完整记录时用合并结果替换缓存，否则清除缓存
+     */
+    private AccountInfo mergeUpdate(String accountId, Map<String, Object> updates) throws Exception {
+        SalesforceRecord cached = recordCache.get("Account", accountId);
+        AccountInfo merged = cached != null ? objectMapper.convertValue(cached, AccountInfo.class) : new AccountInfo();
+        try {
+            objectMapper.updateValue(merged, updates);
+        } catch (JsonMappingException e) {
+            // Salesforce 已接受更新，只是字段无法映射到本地模型：不返回合并结果，下次读取时重新查询
+            logger.debug("Could not merge update into account {}: {}", accountId, e.getOriginalMessage());
+            recordCache.evict("Account", accountId);
+            merged = new AccountInfo();
+            merged.setId(accountId);
+            return merged;
+        }
+        merged.setId(accountId);
+        if (cached != null) {
+            recordCache.put("Account", accountId, merged);
+        } else {
+            recordCache.evict("Account", accountId);
+        }
+        return merged;
     }
 }
-
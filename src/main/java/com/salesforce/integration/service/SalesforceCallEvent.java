@@ -0,0 +1,55 @@
+package com.salesforce.integration.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR 事件：一次 Salesforce REST 调用（从发出请求到响应体读完关闭）
+ * 默认关闭，由 src/main/jfr/salesforce.jfc 开启
+ */
+@Name("com.salesforce.integration.SalesforceCall")
+@Label("Salesforce API Call")
+@Category({"Salesforce Integration", "HTTP"})
+@Description("Salesforce REST call made through a tenant connection pool")
+@StackTrace(false)
+@Enabled(false)
+public class SalesforceCallEvent extends jdk.jfr.Event {
+
+    @Label("Org")
+    String org;
+
+    @Label("Operation")
+    @Description("query, queryMore, retrieve, create, update, delete, updated, deleted, describe, composite, resources or token")
+    String operation;
+
+    @Label("Object Type")
+    String objectType;
+
+    @Label("Method")
+    String method;
+
+    @Label("Status")
+    @Description("HTTP status, 0 when no response was received")
+    int status;
+
+    @Label("Request Bytes")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Bytes")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Time To Headers")
+    @Timespan(Timespan.NANOSECONDS)
+    long timeToHeaders;
+
+    @Label("Error")
+    String error;
+}
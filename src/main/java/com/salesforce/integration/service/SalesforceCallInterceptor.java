@@ -0,0 +1,229 @@
+package com.salesforce.integration.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 租户 RestTemplate 的拦截器：记录请求的 upstream 阶段耗时（到收到响应头为止），
+ * 并在 JFR 开启 SalesforceCall 事件时记录操作、对象类型、状态码和收发字节数。
+ * 操作和对象类型从 REST 路径推断，因此 SalesforceApiService 的各个调用点不需要改动；
+ * 事件未开启时只多一次 isEnabled 判断，不包装响应。
+ */
+class SalesforceCallInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String TOKEN_PATH = "/oauth2/token";
+    private static final String DATA_PATH = "/services/data/";
+
+    private final String tenantId;
+
+    SalesforceCallInterceptor(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        // 令牌请求已计入 token 阶段，不重复计入 upstream
+        boolean tokenCall = request.getURI().getPath().endsWith(TOKEN_PATH);
+        SalesforceCallEvent event = new SalesforceCallEvent();
+        boolean recordEvent = event.isEnabled();
+        if (recordEvent) {
+            event.begin();
+        }
+        long start = RequestTiming.begin();
+
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            if (!tokenCall) {
+                RequestTiming.record(RequestTiming.Phase.UPSTREAM, start);
+            }
+            if (recordEvent) {
+                describe(event, request, body, tokenCall);
+                event.error = e.getMessage();
+                event.commit();
+            }
+            throw e;
+        }
+
+        if (!tokenCall) {
+            RequestTiming.record(RequestTiming.Phase.UPSTREAM, start);
+        }
+        if (!recordEvent) {
+            return response;
+        }
+        describe(event, request, body, tokenCall);
+        event.status = response.getRawStatusCode();
+        event.timeToHeaders = System.nanoTime() - start;
+        return new RecordingResponse(response, event);
+    }
+
+    private void describe(SalesforceCallEvent event, HttpRequest request, byte[] body, boolean tokenCall) {
+        URI uri = request.getURI();
+        event.org = tenantId;
+        event.method = request.getMethodValue();
+        event.requestBytes = body.length;
+        if (tokenCall) {
+            event.operation = "token";
+            return;
+        }
+        String path = uri.getPath();
+        int data = path.indexOf(DATA_PATH);
+        if (data < 0) {
+            event.operation = path;
+            return;
+        }
+        // /services/data/v57.0/{资源}
+        String rest = path.substring(data + DATA_PATH.length());
+        int slash = rest.indexOf('/');
+        String[] segments = slash < 0 || slash == rest.length() - 1
+                ? new String[0] : rest.substring(slash + 1).split("/");
+
+        if (segments.length == 0) {
+            event.operation = "resources";
+        } else if ("query".equals(segments[0]) || "queryAll".equals(segments[0])) {
+            event.operation = segments.length > 1 ? "queryMore" : "query";
+            event.objectType = segments.length > 1 ? null : fromClause(uri.getRawQuery());
+        } else if ("sobjects".equals(segments[0]) && segments.length > 1) {
+            event.objectType = segments[1];
+            if (segments.length == 2) {
+                event.operation = "POST".equals(event.method) ? "create" : "describeGlobal";
+            } else if ("updated".equals(segments[2]) || "deleted".equals(segments[2]) || "describe".equals(segments[2])) {
+                event.operation = segments[2];
+            } else if ("PATCH".equals(event.method)) {
+                event.operation = "update";
+            } else if ("DELETE".equals(event.method)) {
+                event.operation = "delete";
+            } else {
+                event.operation = "retrieve";
+            }
+        } else {
+            event.operation = segments[0];
+        }
+    }
+
+    /**
+     * 从 SOQL 的 FROM 子句取对象类型
+     */
+    private static String fromClause(String rawQuery) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            if (!parameter.startsWith("q=")) {
+                continue;
+            }
+            String soql = URLDecoder.decode(parameter.substring(2), StandardCharsets.UTF_8);
+            int from = soql.toUpperCase(Locale.ROOT).indexOf(" FROM ");
+            if (from < 0) {
+                return null;
+            }
+            String tail = soql.substring(from + 6).trim();
+            int end = 0;
+            while (end < tail.length() && (Character.isLetterOrDigit(tail.charAt(end)) || tail.charAt(end) == '_')) {
+                end++;
+            }
+            return tail.substring(0, end);
+        }
+        return null;
+    }
+
+    /**
+     * 统计读取的响应字节数，响应关闭时提交事件
+     */
+    private static final class RecordingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final SalesforceCallEvent event;
+        private CountingInputStream body;
+        private boolean committed;
+
+        RecordingResponse(ClientHttpResponse delegate, SalesforceCallEvent event) {
+            this.delegate = delegate;
+            this.event = event;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new CountingInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return delegate.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            if (!committed) {
+                committed = true;
+                event.responseBytes = body != null ? body.count : 0;
+                event.commit();
+            }
+            delegate.close();
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
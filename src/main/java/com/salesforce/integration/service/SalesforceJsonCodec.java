@@ -0,0 +1,110 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全局共享的 JSON 编解码器
+ * 复用 Spring 配置的 ObjectMapper，并为记录类型缓存 ObjectReader；
+ * 查询结果直接从响应流逐条反序列化为类型化记录，不构建 JsonNode 树；
+ * 仍返回 JsonNode 的接口通过 readTree 解析。解析耗时计入请求的 parse 阶段。
+ */
+@Component
+public class SalesforceJsonCodec {
+
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public SalesforceJsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * 读取一页 SOQL 查询结果（{"totalSize":..,"done":..,"nextRecordsUrl":..,"records":[..]}）
+     */
+    public <T> QueryPage<T> readQueryPage(InputStream body, Class<T> recordType) throws IOException {
+        // 流式解析，计入 parse 的时间也包含读取响应体
+        long start = RequestTiming.begin();
+        try {
+            return parseQueryPage(body, recordType);
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.PARSE, start);
+        }
+    }
+
+    /**
+     * 解析 JSON 响应体为树结构
+     */
+    public JsonNode readTree(String body) throws IOException {
+        long start = RequestTiming.begin();
+        try {
+            return objectMapper.readTree(body);
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.PARSE, start);
+        }
+    }
+
+    private <T> QueryPage<T> parseQueryPage(InputStream body, Class<T> recordType) throws IOException {
+        ObjectReader reader = readerFor(recordType);
+        List<T> records = new ArrayList<>();
+        String nextRecordsUrl = null;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected query response: " + parser.currentToken());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                if ("records".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        records.add(reader.readValue(parser));
+                    }
+                } else if ("nextRecordsUrl".equals(field) && value == JsonToken.VALUE_STRING) {
+                    nextRecordsUrl = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new QueryPage<>(records, nextRecordsUrl);
+    }
+
+    private ObjectReader readerFor(Class<?> recordType) {
+        return readers.computeIfAbsent(recordType, type -> objectMapper.readerFor(type)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+    }
+
+    /**
+     * 一页查询结果
+     */
+    public static class QueryPage<T> {
+        private final List<T> records;
+        private final String nextRecordsUrl;
+
+        QueryPage(List<T> records, String nextRecordsUrl) {
+            this.records = records;
+            this.nextRecordsUrl = nextRecordsUrl;
+        }
+
+        public List<T> getRecords() { return records; }
+        public String getNextRecordsUrl() { return nextRecordsUrl; }
+    }
+}
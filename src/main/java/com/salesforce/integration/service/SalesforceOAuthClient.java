@@ -5,54 +5,101 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.salesforce.integration.model.TokenInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class SalesforceOAuthClient {
     private static final Logger logger = LoggerFactory.getLogger(SalesforceOAuthClient.class);
     
-    @Value("${salesforce.oauth.client-id:}")
-    private String clientId;
-    
-    @Value("${salesforce.oauth.client-secret:}")
-    private String clientSecret;
-    
-    @Value("${salesforce.oauth.token-url:}")
-    private String tokenUrl;
-    
-    private final RestTemplate restTemplate;
+    private final TenantRegistry tenantRegistry;
     private final ObjectMapper objectMapper;
+    private final SharedTokenCache sharedTokenCache;
+    // 按租户 ID 缓存令牌
     private final ConcurrentHashMap<String, TokenInfo> tokenCache = new ConcurrentHashMap<>();
+    // 每个租户一把刷新锁，同一节点上的并发请求只刷新一次
+    private final ConcurrentHashMap<String, Object> refreshLocks = new ConcurrentHashMap<>();
+    // 令牌被拒绝或手动清除的原因，下次刷新时写入 TokenRefresh 事件
+    private final ConcurrentHashMap<String, String> refreshCauses = new ConcurrentHashMap<>();
     
-    public SalesforceOAuthClient() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    public SalesforceOAuthClient(TenantRegistry tenantRegistry, ObjectMapper objectMapper,
+                                 SharedTokenCache sharedTokenCache) {
+        this.tenantRegistry = tenantRegistry;
+        this.objectMapper = objectMapper;
+        this.sharedTokenCache = sharedTokenCache;
     }
     
     /**
-     * 获取访问令牌（客户端凭证流）
+     * 获取当前租户的访问令牌（客户端凭证流）
+     * 依次使用本地缓存、共享令牌存储，都没有可用令牌时才向 Salesforce 请求
      */
     public TokenInfo getAccessToken() throws Exception {
+        long start = RequestTiming.begin();
+        try {
+            return resolveAccessToken();
+        } finally {
+            RequestTiming.record(RequestTiming.Phase.TOKEN, start);
+        }
+    }
+    
+    private TokenInfo resolveAccessToken() throws Exception {
+        TenantRegistry.Tenant tenant = tenantRegistry.current();
+        
         // 检查缓存
-        String cacheKey = "default";
+        String cacheKey = tenant.getId();
         TokenInfo cached = tokenCache.get(cacheKey);
         if (cached != null && !cached.isExpired()) {
-            logger.debug("Using cached access token");
+            logger.debug("Using cached access token for org {}", cacheKey);
             return cached;
         }
         
+        synchronized (refreshLocks.computeIfAbsent(cacheKey, k -> new Object())) {
+            cached = tokenCache.get(cacheKey);
+            if (cached != null && !cached.isExpired()) {
+                return cached;
+            }
+            TokenRefreshEvent event = new TokenRefreshEvent();
+            event.begin();
+            AtomicBoolean fetched = new AtomicBoolean();
+            String cause = refreshCauses.remove(cacheKey);
+            event.org = cacheKey;
+            event.cause = cause != null ? cause : cached != null ? "expired" : "initial";
+            try {
+                TokenInfo tokenInfo = sharedTokenCache.getOrRefresh(cacheKey, tenant.getConfig().getClientId(),
+                        () -> {
+                            fetched.set(true);
+                            return requestAccessToken(tenant);
+                        });
+                tokenCache.put(cacheKey, tokenInfo);
+                event.success = true;
+                return tokenInfo;
+            } finally {
+                event.source = fetched.get() ? "salesforce" : "shared-store";
+                event.commit();
+            }
+        }
+    }
+    
+    /**
+     * 向 Salesforce 请求新令牌
+     */
+    private TokenInfo requestAccessToken(TenantRegistry.Tenant tenant) throws Exception {
+        String tenantId = tenant.getId();
+        String clientId = tenant.getConfig().getClientId();
+        String clientSecret = tenant.getConfig().getClientSecret();
+        String tokenUrl = tenant.getConfig().getTokenUrl();
+        
         // 检查凭证是否配置
         if (clientId == null || clientId.isEmpty() || 
             clientSecret == null || clientSecret.isEmpty() ||
             tokenUrl == null || tokenUrl.isEmpty()) {
-            throw new Exception("Salesforce OAuth credentials not configured. Please check environment variables.");
+            throw new Exception("Salesforce OAuth credentials not configured for org " + tenantId +
+                    ". Please check environment variables.");
         }
         
         HttpHeaders headers = new HttpHeaders();
@@ -68,7 +115,7 @@ public class SalesforceOAuthClient {
         try {
             logger.info("Requesting access token from: {}", tokenUrl);
             
-            ResponseEntity<String> response = restTemplate.postForEntity(tokenUrl, request, String.class);
+            ResponseEntity<String> response = tenant.getRestTemplate().postForEntity(tokenUrl, request, String.class);
             
             if (response.getStatusCode() == HttpStatus.OK) {
                 JsonNode json = objectMapper.readTree(response.getBody());
@@ -111,8 +158,7 @@ public class SalesforceOAuthClient {
                 
                 tokenInfo.setIssuedAt(System.currentTimeMillis());
                 
-                tokenCache.put(cacheKey, tokenInfo);
-                logger.info("Successfully obtained access token for instance: {}", tokenInfo.getInstanceUrl());
+                logger.info("Successfully obtained access token for org {} instance: {}", tenantId, tokenInfo.getInstanceUrl());
                 
                 return tokenInfo;
             } else {
@@ -133,10 +179,23 @@ public class SalesforceOAuthClient {
     }
     
     /**
-     * 清除令牌缓存
+     * 使指定令牌失效（仅当缓存中仍是该令牌时才清除，避免并发请求重复刷新）
+     */
+    public void invalidateToken(TokenInfo staleToken) {
+        sharedTokenCache.reject(TenantContext.current(), staleToken);
+        if (tokenCache.remove(TenantContext.current(), staleToken)) {
+            refreshCauses.put(TenantContext.current(), "rejected");
+            logger.info("Invalidated rejected access token");
+        }
+    }
+
+    /**
+     * 清除当前租户的令牌缓存
      */
     public void clearTokenCache() {
-        tokenCache.clear();
-        logger.info("Token cache cleared");
+        // 共享存储中的同一个令牌也不再使用，下次请求会重新获取
+        sharedTokenCache.reject(TenantContext.current(), tokenCache.remove(TenantContext.current()));
+        refreshCauses.put(TenantContext.current(), "cleared");
+        logger.info("Token cache cleared for org {}", TenantContext.current());
     }
 }
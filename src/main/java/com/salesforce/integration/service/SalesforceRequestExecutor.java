@@ -0,0 +1,390 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.model.TokenInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Salesforce 请求执行器
+ * - 幂等操作（SOQL 查询、sObject GET）在 5xx / 连接异常时按去相关抖动退避重试
+ * - 401 INVALID_SESSION_ID 时自动重新认证并重试一次
+ * - 可选的对冲请求：在 p95 延迟后发出第二个 GET，取先返回的结果
+ * 重试和对冲共用一个重试预算，避免在 Salesforce 故障期间放大流量
+ * 重试预算、延迟统计和并发隔离（bulkhead）按组织（租户）分开，一个组织变慢或故障不影响其他组织
+ * Salesforce 返回 429/503/504 时通知入站并发限制（AdaptiveConcurrencyLimiter）收缩
+ */
+@Component
+public class SalesforceRequestExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(SalesforceRequestExecutor.class);
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    @FunctionalInterface
+    public interface SalesforceCall<T> {
+        T execute(TokenInfo token) throws Exception;
+    }
+
+    private final SalesforceOAuthClient oauthClient;
+    private final TenantRegistry tenantRegistry;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final boolean hedgeEnabled;
+    private final long hedgeMinDelayMs;
+    private final double retryBudgetRatio;
+    private final Map<String, TenantState> tenantStates = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor hedgeExecutor;
+
+    public SalesforceRequestExecutor(SalesforceOAuthClient oauthClient,
+                                     TenantRegistry tenantRegistry,
+                                     AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                     @Value("${salesforce.resilience.max-attempts:3}") int maxAttempts,
+                                     @Value("${salesforce.resilience.base-delay-ms:100}") long baseDelayMs,
+                                     @Value("${salesforce.resilience.max-delay-ms:2000}") long maxDelayMs,
+                                     @Value("${salesforce.resilience.retry-budget-ratio:0.2}") double retryBudgetRatio,
+                                     @Value("${salesforce.resilience.hedge.enabled:false}") boolean hedgeEnabled,
+                                     @Value("${salesforce.resilience.hedge.min-delay-ms:50}") long hedgeMinDelayMs,
+                                     @Value("${salesforce.resilience.hedge.max-concurrency:32}") int hedgeMaxConcurrency) {
+        this.oauthClient = oauthClient;
+        this.tenantRegistry = tenantRegistry;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeMinDelayMs = hedgeMinDelayMs;
+        this.retryBudgetRatio = retryBudgetRatio;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.hedgeExecutor = new ThreadPoolExecutor(0, hedgeMaxConcurrency, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "sf-hedge-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * 执行幂等操作：允许重试，启用时允许对冲
+     */
+    public <T> T executeIdempotent(String operation, SalesforceCall<T> call) throws Exception {
+        TenantState state = currentState();
+        state.retryBudget.onRequest();
+        long backoff = baseDelayMs;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return hedgeEnabled ? executeHedged(operation, call, state) : executeTimed(call, state);
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                if (!state.retryBudget.tryAcquire()) {
+                    logger.warn("{} failed and retry budget of org {} is exhausted, giving up: {}",
+                            operation, state.tenantId, e.getMessage());
+                    throw e;
+                }
+                backoff = Math.min(maxDelayMs, ThreadLocalRandom.current().nextLong(baseDelayMs, backoff * 3 + 1));
+                logger.warn("{} failed (attempt {}/{}), retrying in {} ms: {}",
+                        operation, attempt, maxAttempts, backoff, e.getMessage());
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * 执行非幂等操作：不重试，仅在会话失效时重新认证一次
+     */
+    public <T> T execute(String operation, SalesforceCall<T> call) throws Exception {
+        return executeWithReauth(call, currentState());
+    }
+
+    private <T> T executeTimed(SalesforceCall<T> call, TenantState state) throws Exception {
+        long start = System.nanoTime();
+        T result = executeWithReauth(call, state);
+        state.latencyWindow.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    private <T> T executeWithReauth(SalesforceCall<T> call, TenantState state) throws Exception {
+        // 每个组织的并发上限：短暂等待后仍然拿不到许可就直接失败，不让一个慢组织占满请求线程
+        if (!state.bulkhead.tryAcquire(state.bulkheadWaitMs, TimeUnit.MILLISECONDS)) {
+            state.rejected.incrementAndGet();
+            throw new Exception("Salesforce org " + state.tenantId + " is at its concurrency limit (" +
+                    state.maxConcurrency + "), request rejected");
+        }
+        try {
+            TokenInfo token = oauthClient.getAccessToken();
+            try {
+                return call.execute(token);
+            } catch (HttpClientErrorException e) {
+                if (!isInvalidSession(e)) {
+                    throw e;
+                }
+                logger.warn("Session expired (INVALID_SESSION_ID) for org {}, re-authenticating once", state.tenantId);
+                oauthClient.invalidateToken(token);
+                return call.execute(oauthClient.getAccessToken());
+            }
+        } catch (HttpStatusCodeException e) {
+            if (isOverloaded(e)) {
+                concurrencyLimiter.onUpstreamOverload();
+            }
+            throw e;
+        } finally {
+            state.bulkhead.release();
+        }
+    }
+
+    private <T> T executeHedged(String operation, SalesforceCall<T> call, TenantState state) throws Exception {
+        LatencyWindow latencyWindow = state.latencyWindow;
+        // 样本不足时 p95 没有意义，不发对冲请求
+        if (latencyWindow.size() < MIN_HEDGE_SAMPLES) {
+            return executeTimed(call, state);
+        }
+        long hedgeDelay = Math.max(hedgeMinDelayMs, latencyWindow.p95());
+
+        CompletableFuture<T> primary;
+        try {
+            primary = submit(call, state);
+        } catch (RejectedExecutionException e) {
+            return executeTimed(call, state);
+        }
+
+        try {
+            return primary.get(hedgeDelay, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 超过 p95 仍未返回，尝试发出对冲请求
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        if (!state.retryBudget.tryAcquire()) {
+            return await(primary);
+        }
+
+        CompletableFuture<T> hedge;
+        try {
+            hedge = submit(call, state);
+        } catch (RejectedExecutionException e) {
+            return await(primary);
+        }
+        logger.debug("{} exceeded {} ms, hedge request sent", operation, hedgeDelay);
+
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> candidate : Arrays.asList(primary, hedge)) {
+            candidate.whenComplete((result, error) -> {
+                if (error == null) {
+                    winner.complete(result);
+                } else if (failures.incrementAndGet() == 2) {
+                    winner.completeExceptionally(error);
+                }
+            });
+        }
+
+        try {
+            return await(winner);
+        } finally {
+            primary.cancel(false);
+            hedge.cancel(false);
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(SalesforceCall<T> call, TenantState state) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        hedgeExecutor.execute(TenantContext.wrap(() -> {
+            try {
+                future.complete(executeTimed(call, state));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }));
+        return future;
+    }
+
+    private TenantState currentState() throws Exception {
+        TenantRegistry.Tenant tenant = tenantRegistry.current();
+        return tenantStates.computeIfAbsent(tenant.getId(), id -> new TenantState(id,
+                tenant.getConfig().getMaxConcurrency(), tenant.getConfig().getBulkheadWaitMs(), retryBudgetRatio));
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private Exception unwrap(Exception e) {
+        Throwable cause = e;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        return new Exception(cause);
+    }
+
+    /**
+     * 5xx（包括 503 SERVER_UNAVAILABLE）和连接重置、超时等 I/O 异常可以重试
+     */
+    static boolean isRetryable(Exception e) {
+        return e instanceof HttpServerErrorException || e instanceof ResourceAccessException;
+    }
+
+    static boolean isOverloaded(HttpStatusCodeException e) {
+        int status = e.getRawStatusCode();
+        return status == 429 || status == 503 || status == 504;
+    }
+
+    static boolean isInvalidSession(HttpClientErrorException e) {
+        return e.getStatusCode() == HttpStatus.UNAUTHORIZED
+                && e.getResponseBodyAsString().contains("INVALID_SESSION_ID");
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public long getHedgeDelayMs() throws Exception {
+        return Math.max(hedgeMinDelayMs, currentState().latencyWindow.p95());
+    }
+
+    /**
+     * 各组织的并发隔离统计
+     */
+    public Map<String, Object> getTenantStats() {
+        Map<String, Object> stats = new HashMap<>();
+        tenantStates.forEach((id, state) -> {
+            Map<String, Object> tenantStats = new HashMap<>();
+            tenantStats.put("maxConcurrency", state.maxConcurrency);
+            tenantStats.put("inFlight", state.maxConcurrency - state.bulkhead.availablePermits());
+            tenantStats.put("rejected", state.rejected.get());
+            tenantStats.put("p95Ms", state.latencyWindow.p95());
+            stats.put(id, tenantStats);
+        });
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    /**
+     * 单个组织的重试预算、延迟统计和并发许可
+     */
+    static class TenantState {
+        final String tenantId;
+        final int maxConcurrency;
+        final long bulkheadWaitMs;
+        final Semaphore bulkhead;
+        final RetryBudget retryBudget;
+        final LatencyWindow latencyWindow = new LatencyWindow(512);
+        final AtomicLong rejected = new AtomicLong();
+
+        TenantState(String tenantId, int maxConcurrency, long bulkheadWaitMs, double retryBudgetRatio) {
+            this.tenantId = tenantId;
+            this.maxConcurrency = maxConcurrency;
+            this.bulkheadWaitMs = bulkheadWaitMs;
+            this.bulkhead = new Semaphore(maxConcurrency);
+            this.retryBudget = new RetryBudget(retryBudgetRatio, 10);
+        }
+    }
+
+    /**
+     * 重试预算：每个请求存入 ratio 个令牌，每次重试或对冲消耗一个令牌
+     */
+    static class RetryBudget {
+        private static final long SCALE = 1000;
+
+        private final long depositPerRequest;
+        private final long maxTokens;
+        private final AtomicLong tokens;
+
+        RetryBudget(double ratio, int maxRetries) {
+            this.depositPerRequest = (long) (ratio * SCALE);
+            this.maxTokens = maxRetries * SCALE;
+            this.tokens = new AtomicLong(maxTokens);
+        }
+
+        void onRequest() {
+            tokens.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maxTokens, current + deposit));
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                long current = tokens.get();
+                if (current < SCALE) {
+                    return false;
+                }
+                if (tokens.compareAndSet(current, current - SCALE)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 最近请求延迟的环形缓冲区，用于计算对冲延迟
+     */
+    static class LatencyWindow {
+        private final long[] samples;
+        private int index;
+        private int count;
+        private volatile long cachedP95;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long latencyMs) {
+            samples[index] = latencyMs;
+            index = (index + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+            // 每 64 个样本重新计算一次，避免每次请求都排序
+            if (index % 64 == 0 || count < 64) {
+                long[] copy = Arrays.copyOf(samples, count);
+                Arrays.sort(copy);
+                cachedP95 = copy[(int) Math.ceil(count * 0.95) - 1];
+            }
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        long p95() {
+            return cachedP95;
+        }
+    }
+}
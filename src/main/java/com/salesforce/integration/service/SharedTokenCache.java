@@ -0,0 +1,240 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.model.TokenInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跨节点、跨重启共享的 OAuth 令牌
+ * 令牌以 AES-GCM 加密后写入 TokenStore（租户 ID 和 client id 作为附加认证数据，换了凭证的旧令牌无法解密）；
+ * 需要刷新时先获取租约，只有租约持有者请求 Salesforce，其他节点轮询存储等待新令牌，
+ * 等待超时或存储不可用时退回到自己请求，保证可用性。
+ */
+@Service
+public class SharedTokenCache {
+    private static final Logger logger = LoggerFactory.getLogger(SharedTokenCache.class);
+
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final TokenStore store;
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec key;
+    private final long leaseTtlMs;
+    private final long leaseWaitMs;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final SecureRandom random = new SecureRandom();
+    // 被 Salesforce 拒绝过的令牌，存储中仍是它时不再使用
+    private final ConcurrentHashMap<String, String> rejectedTokens = new ConcurrentHashMap<>();
+
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong waitedForPeer = new AtomicLong();
+    private final AtomicLong leaseTimeouts = new AtomicLong();
+    private final AtomicLong storeErrors = new AtomicLong();
+
+    public SharedTokenCache(TokenStore store,
+                            ObjectMapper objectMapper,
+                            @Value("${salesforce.token-store.enabled:true}") boolean enabled,
+                            @Value("${salesforce.token-store.key:}") String key,
+                            @Value("${salesforce.token-store.lease-ttl-ms:10000}") long leaseTtlMs,
+                            @Value("${salesforce.token-store.lease-wait-ms:3000}") long leaseWaitMs) throws Exception {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.leaseTtlMs = leaseTtlMs;
+        this.leaseWaitMs = leaseWaitMs;
+        if (!enabled || key.isEmpty()) {
+            // 没有密钥时不落盘，避免明文令牌
+            this.key = null;
+            logger.info("Shared token store disabled{}", enabled ? " (salesforce.token-store.key not set)" : "");
+        } else {
+            this.key = new SecretKeySpec(deriveKey(key), "AES");
+            logger.info("Shared token store: {}", store.describe());
+        }
+    }
+
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    /**
+     * 返回可用的共享令牌；没有时由本节点（持有租约）或其他节点刷新
+     * @param fetcher 向 Salesforce 请求新令牌
+     */
+    public TokenInfo getOrRefresh(String tenantId, String clientId, Callable<TokenInfo> fetcher) throws Exception {
+        if (!isEnabled()) {
+            return fetcher.call();
+        }
+        TokenInfo shared = load(tenantId, clientId);
+        if (shared != null) {
+            storeHits.incrementAndGet();
+            logger.debug("Using shared access token for org {}", tenantId);
+            return shared;
+        }
+
+        if (tryAcquireLease(tenantId)) {
+            try {
+                // 拿到租约前其他节点可能刚写入
+                shared = load(tenantId, clientId);
+                if (shared != null) {
+                    storeHits.incrementAndGet();
+                    return shared;
+                }
+                return fetchAndSave(tenantId, clientId, fetcher);
+            } finally {
+                releaseLease(tenantId);
+            }
+        }
+
+        // 其他节点正在刷新，等待它写入的令牌
+        long deadline = System.currentTimeMillis() + leaseWaitMs;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(POLL_INTERVAL_MS);
+            shared = load(tenantId, clientId);
+            if (shared != null) {
+                waitedForPeer.incrementAndGet();
+                return shared;
+            }
+        }
+        leaseTimeouts.incrementAndGet();
+        logger.warn("Timed out waiting {} ms for another node to refresh the token for org {}, refreshing locally",
+                leaseWaitMs, tenantId);
+        return fetchAndSave(tenantId, clientId, fetcher);
+    }
+
+    /**
+     * 标记令牌已被拒绝，之后从存储读到同一个令牌时视为不存在
+     */
+    public void reject(String tenantId, TokenInfo token) {
+        if (token != null && token.getAccessToken() != null) {
+            rejectedTokens.put(tenantId, token.getAccessToken());
+        }
+    }
+
+    /**
+     * 获取共享令牌统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("backend", store.describe());
+        stats.put("nodeId", nodeId);
+        stats.put("storeHits", storeHits.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("waitedForPeer", waitedForPeer.get());
+        stats.put("leaseTimeouts", leaseTimeouts.get());
+        stats.put("storeErrors", storeErrors.get());
+        return stats;
+    }
+
+    private TokenInfo fetchAndSave(String tenantId, String clientId, Callable<TokenInfo> fetcher) throws Exception {
+        TokenInfo fresh = fetcher.call();
+        refreshes.incrementAndGet();
+        try {
+            store.save(tenantId, encrypt(fresh, aad(tenantId, clientId)));
+            rejectedTokens.remove(tenantId);
+        } catch (Exception e) {
+            storeErrors.incrementAndGet();
+            logger.warn("Failed to save shared token for org {}: {}", tenantId, e.getMessage());
+        }
+        return fresh;
+    }
+
+    private TokenInfo load(String tenantId, String clientId) {
+        try {
+            byte[] encrypted = store.load(tenantId);
+            if (encrypted == null) {
+                return null;
+            }
+            TokenInfo token = decrypt(encrypted, aad(tenantId, clientId));
+            if (token.isExpired() || token.getAccessToken().equals(rejectedTokens.get(tenantId))) {
+                return null;
+            }
+            return token;
+        } catch (javax.crypto.AEADBadTagException e) {
+            // 密钥或凭证已更换，旧令牌作废
+            logger.info("Ignoring shared token for org {} encrypted with a different key or client", tenantId);
+            return null;
+        } catch (Exception e) {
+            storeErrors.incrementAndGet();
+            logger.warn("Failed to load shared token for org {}: {}", tenantId, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean tryAcquireLease(String tenantId) {
+        try {
+            return store.tryAcquireLease(tenantId, nodeId, leaseTtlMs);
+        } catch (Exception e) {
+            // 存储不可用时自行刷新
+            storeErrors.incrementAndGet();
+            logger.warn("Failed to acquire token refresh lease for org {}: {}", tenantId, e.getMessage());
+            return true;
+        }
+    }
+
+    private void releaseLease(String tenantId) {
+        try {
+            store.releaseLease(tenantId, nodeId);
+        } catch (Exception e) {
+            // 租约到期后自动失效
+            logger.debug("Failed to release token refresh lease for org {}: {}", tenantId, e.getMessage());
+        }
+    }
+
+    byte[] encrypt(TokenInfo token, byte[] aad) throws Exception {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(aad);
+        byte[] ciphertext = cipher.doFinal(objectMapper.writeValueAsBytes(token));
+        return ByteBuffer.allocate(IV_BYTES + ciphertext.length).put(iv).put(ciphertext).array();
+    }
+
+    TokenInfo decrypt(byte[] encrypted, byte[] aad) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, encrypted, 0, IV_BYTES));
+        cipher.updateAAD(aad);
+        byte[] plaintext = cipher.doFinal(encrypted, IV_BYTES, encrypted.length - IV_BYTES);
+        return objectMapper.readValue(plaintext, TokenInfo.class);
+    }
+
+    private static byte[] aad(String tenantId, String clientId) {
+        return (tenantId + ":" + clientId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 密钥可以是 Base64 编码的 32 字节随机数（推荐，openssl rand -base64 32），否则对口令做 SHA-256
+     */
+    private static byte[] deriveKey(String key) throws Exception {
+        try {
+            byte[] decoded = Base64.getDecoder().decode(key);
+            if (decoded.length == 32) {
+                return decoded;
+            }
+        } catch (IllegalArgumentException e) {
+            // 不是 Base64，按口令处理
+        }
+        return MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,120 @@
+package com.salesforce.integration.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 慢请求日志：超过阈值的请求及其分阶段耗时写入固定大小的环形缓冲区，新记录覆盖最旧的记录
+ * 写入无锁（一次自增 + 一次数组写），只有慢请求才会创建条目。
+ */
+@Component
+public class SlowRequestLog {
+    private static final Logger logger = LoggerFactory.getLogger(SlowRequestLog.class);
+
+    private final long thresholdNanos;
+    private final AtomicReferenceArray<Entry> ring;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    public SlowRequestLog(@Value("${salesforce.timing.slow-threshold-ms:1000}") long thresholdMs,
+                          @Value("${salesforce.timing.slow-log-size:200}") int size) {
+        this.thresholdNanos = thresholdMs * 1_000_000;
+        this.ring = new AtomicReferenceArray<>(Math.max(1, size));
+    }
+
+    /**
+     * 请求结束时调用；未超过阈值的请求只计数
+     */
+    public void record(String method, String path, int status, String org, RequestTiming timing) {
+        requests.incrementAndGet();
+        long elapsed = timing.elapsedNanos();
+        if (elapsed < thresholdNanos) {
+            return;
+        }
+        Entry entry = new Entry(System.currentTimeMillis(), method, path, status, org,
+                elapsed / 1_000_000.0, timing.phaseMillis());
+        long sequence = written.getAndIncrement();
+        ring.set((int) (sequence % ring.length()), entry);
+        logger.debug("Slow request {} {} took {} ms: {}", method, path, entry.totalMs, entry.phases);
+    }
+
+    /**
+     * 最近的慢请求，最新的在前
+     */
+    public List<Map<String, Object>> recent(int limit) {
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < ring.length(); i++) {
+            Entry entry = ring.get(i);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort((a, b) -> Long.compare(b.timestamp, a.timestamp));
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Entry entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            result.add(entry.toMap());
+        }
+        return result;
+    }
+
+    /**
+     * 获取慢请求统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("thresholdMs", thresholdNanos / 1_000_000);
+        stats.put("capacity", ring.length());
+        stats.put("requests", requests.get());
+        stats.put("slowRequests", written.get());
+        return stats;
+    }
+
+    public void clear() {
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+    }
+
+    private static final class Entry {
+        private final long timestamp;
+        private final String method;
+        private final String path;
+        private final int status;
+        private final String org;
+        private final double totalMs;
+        private final Map<String, Double> phases;
+
+        Entry(long timestamp, String method, String path, int status, String org, double totalMs,
+              Map<String, Double> phases) {
+            this.timestamp = timestamp;
+            this.method = method;
+            this.path = path;
+            this.status = status;
+            this.org = org;
+            this.totalMs = totalMs;
+            this.phases = phases;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("timestamp", timestamp);
+            map.put("method", method);
+            map.put("path", path);
+            map.put("status", status);
+            map.put("org", org);
+            map.put("totalMs", totalMs);
+            map.put("phasesMs", phases);
+            return map;
+        }
+    }
+}
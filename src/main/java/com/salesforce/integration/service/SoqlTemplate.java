@@ -0,0 +1,200 @@
+package com.salesforce.integration.service;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的 SOQL 语句：声明一次，字面部分在编译时完成 URL 编码，执行时只拼接已编码的片段和参数
+ * 参数以 :name 声明，只能绑定 Salesforce 记录 ID（15 或 18 位字母数字）或 ID 集合（生成 IN 列表），
+ * 绑定时校验，因此参数无法改变语句结构。相同语句和参数得到逐字节相同的编码查询，可直接用作缓存或合并请求的键。
+ */
+public final class SoqlTemplate {
+
+    private static final Pattern PARAMETER = Pattern.compile(":([A-Za-z][A-Za-z0-9_]*)");
+    private static final Pattern RECORD_ID = Pattern.compile("[A-Za-z0-9]{15}(?:[A-Za-z0-9]{3})?");
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final String ENCODED_QUOTE = encode("'");
+    private static final String ENCODED_SEPARATOR = encode("','");
+
+    private final String statement;
+    // 已编码的字面片段，比参数多一个
+    private final String[] encodedSegments;
+    private final String[] parameterNames;
+
+    private SoqlTemplate(String statement, String[] encodedSegments, String[] parameterNames) {
+        this.statement = statement;
+        this.encodedSegments = encodedSegments;
+        this.parameterNames = parameterNames;
+    }
+
+    /**
+     * 编译语句，例如 SELECT Id, Name FROM Account WHERE Id = :id
+     */
+    public static SoqlTemplate compile(String statement) {
+        List<String> segments = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Matcher matcher = PARAMETER.matcher(statement);
+        int last = 0;
+        while (matcher.find()) {
+            segments.add(encode(statement.substring(last, matcher.start())));
+            names.add(matcher.group(1));
+            last = matcher.end();
+        }
+        segments.add(encode(statement.substring(last)));
+        return new SoqlTemplate(statement, segments.toArray(new String[0]), names.toArray(new String[0]));
+    }
+
+    /**
+     * 按 ID 查询单条记录的语句；对象名和字段列表来自代码或配置，仍校验对象名，避免拼入语句
+     */
+    public static SoqlTemplate selectById(String fields, String objectType) {
+        return compile("SELECT " + fields + " FROM " + identifier(objectType) + " WHERE Id = :id");
+    }
+
+    /**
+     * 按 ID 集合查询的语句
+     */
+    public static SoqlTemplate selectByIds(String fields, String objectType) {
+        return compile("SELECT " + fields + " FROM " + identifier(objectType) + " WHERE Id IN (:ids)");
+    }
+
+    /**
+     * 未参数化的语句（条件已由调用方转义），只做一次编码
+     */
+    public static Query literal(String soql) {
+        return new Query(soql, encode(soql));
+    }
+
+    /**
+     * 是否是 15 或 18 位的 Salesforce 记录 ID
+     */
+    public static boolean isRecordId(String value) {
+        return value != null && RECORD_ID.matcher(value).matches();
+    }
+
+    /**
+     * 校验对象名或字段名
+     */
+    public static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid SOQL identifier: " + name);
+        }
+        return name;
+    }
+
+    /**
+     * 按声明顺序绑定参数：String 为单个记录 ID，Collection 为 ID 列表
+     */
+    public Query bind(Object... values) {
+        if (values.length != parameterNames.length) {
+            throw new IllegalArgumentException("Expected " + parameterNames.length + " SOQL parameters, got " +
+                    values.length + " for: " + statement);
+        }
+        StringBuilder encoded = new StringBuilder(encodedSegments[0].length() + 32 * values.length + 64);
+        encoded.append(encodedSegments[0]);
+        for (int i = 0; i < values.length; i++) {
+            appendParameter(encoded, parameterNames[i], values[i]);
+            encoded.append(encodedSegments[i + 1]);
+        }
+        return new Query(null, encoded.toString());
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    private static void appendParameter(StringBuilder encoded, String name, Object value) {
+        if (value instanceof Collection) {
+            Collection<?> ids = (Collection<?>) value;
+            if (ids.isEmpty()) {
+                throw new IllegalArgumentException("Empty ID list for SOQL parameter :" + name);
+            }
+            encoded.append(ENCODED_QUOTE);
+            boolean first = true;
+            for (Object id : ids) {
+                if (!first) {
+                    encoded.append(ENCODED_SEPARATOR);
+                }
+                encoded.append(recordId(name, id));
+                first = false;
+            }
+            encoded.append(ENCODED_QUOTE);
+        } else {
+            // ID 只含字母数字，无需编码
+            encoded.append(ENCODED_QUOTE).append(recordId(name, value)).append(ENCODED_QUOTE);
+        }
+    }
+
+    private static String recordId(String name, Object value) {
+        if (!(value instanceof String) || !isRecordId((String) value)) {
+            throw new IllegalArgumentException("Invalid record ID for SOQL parameter :" + name + ": " + value);
+        }
+        return (String) value;
+    }
+
+    /**
+     * 按 RFC 3986 编码查询参数值：只保留非保留字符，其余（包括空格和 +）一律百分号编码
+     */
+    static String encode(String value) {
+        StringBuilder encoded = new StringBuilder(value.length() + 16);
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '.' || c == '_' || c == '~') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * 绑定后的查询；encodedQuery 即 q 参数的编码值，equals/hashCode 以它为准
+     */
+    public static final class Query {
+        private final String soql;
+        private final String encodedQuery;
+
+        private Query(String soql, String encodedQuery) {
+            this.soql = soql;
+            this.encodedQuery = encodedQuery;
+        }
+
+        public String getEncodedQuery() {
+            return encodedQuery;
+        }
+
+        /**
+         * 查询的 query 接口 URI；已编码，RestTemplate 不会再次编码
+         */
+        public URI toUri(String instanceUrl, String apiVersion) {
+            return URI.create(instanceUrl + "/services/data/" + apiVersion + "/query?q=" + encodedQuery);
+        }
+
+        /**
+         * 原始 SOQL（用于日志），按需解码
+         */
+        @Override
+        public String toString() {
+            return soql != null ? soql : URLDecoder.decode(encodedQuery, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Query && encodedQuery.equals(((Query) o).encodedQuery);
+        }
+
+        @Override
+        public int hashCode() {
+            return encodedQuery.hashCode();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.model.AccountFormData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 启动预热
+ * 应用就绪后在后台线程获取访问令牌、建立到 Salesforce 实例的连接并渲染一次页面模板，
+ * 让第一个真实请求不再承担这些开销；预热失败只记录日志，不影响启动。
+ */
+@Service
+public class StartupWarmupService {
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmupService.class);
+
+    private final SalesforceOAuthClient oauthClient;
+    private final SalesforceApiService salesforceApiService;
+    private final PageRenderCache pageRenderCache;
+
+    @Value("${salesforce.warmup.enabled:true}")
+    private boolean enabled;
+
+    private volatile String status = "pending";
+    private volatile long durationMs;
+
+    public StartupWarmupService(SalesforceOAuthClient oauthClient,
+                                SalesforceApiService salesforceApiService,
+                                PageRenderCache pageRenderCache) {
+        this.oauthClient = oauthClient;
+        this.salesforceApiService = salesforceApiService;
+        this.pageRenderCache = pageRenderCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            status = "disabled";
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "startup-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void warmUp() {
+        long start = System.currentTimeMillis();
+        status = "running";
+
+        // 模板渲染不依赖 Salesforce，先做
+        try {
+            Map<String, Object> model = new HashMap<>();
+            model.put("recordId", "warmup");
+            model.put("formData", AccountFormData.empty());
+            model.put("mode", "create");
+            model.put("hasSavedData", false);
+            pageRenderCache.renderNow("embed", model);
+            pageRenderCache.renderNow("form", model);
+        } catch (Exception e) {
+            logger.warn("Template warm-up failed: {}", e.getMessage());
+        }
+
+        try {
+            oauthClient.getAccessToken();
+            salesforceApiService.warmUpConnection();
+            status = "completed";
+        } catch (Exception e) {
+            status = "failed: " + e.getMessage();
+            logger.warn("Salesforce warm-up failed: {}", e.getMessage());
+        }
+
+        durationMs = System.currentTimeMillis() - start;
+        logger.info("Startup warm-up {} in {} ms", status.startsWith("failed") ? "failed" : "finished", durationMs);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("status", status);
+        result.put("durationMs", durationMs);
+        return result;
+    }
+}
@@ -0,0 +1,38 @@
+package com.salesforce.integration.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次表单存储后端 I/O（命中本地读缓存的读取不产生事件）
+ */
+@Name("com.salesforce.integration.StorageIo")
+@Label("Form Storage I/O")
+@Category({"Salesforce Integration", "Storage"})
+@Description("FormDataStore call made by FileStorageService")
+@StackTrace(false)
+@Enabled(false)
+public class StorageIoEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    @Description("version, read, write, delete or list")
+    String operation;
+
+    @Label("Record Id")
+    String recordId;
+
+    @Label("Backend")
+    String backend;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,375 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步创建 Task 的持久化队列
+ * 接受的任务先追加写入本地日志文件（NDJSON，每行一条 enqueue / done / retry / dead 记录）再返回 ticket，
+ * 后台按租户分组，每次最多 batch-size 条通过 sObject Collections 批量创建；失败的记录按指数退避重试，
+ * 超过 max-attempts 后进入死信状态。重启时重放日志恢复未完成的任务和 ticket 状态，日志过大时压缩。
+ * 投递语义是至少一次：批量请求已到达 Salesforce 但响应丢失时，重试可能重复创建。
+ */
+@Service
+public class TaskQueueService {
+    private static final Logger logger = LoggerFactory.getLogger(TaskQueueService.class);
+
+    public static final String QUEUED = "queued";
+    public static final String RETRYING = "retrying";
+    public static final String CREATED = "created";
+    public static final String DEAD = "dead";
+
+    private static final String TASK_OBJECT = "Task";
+    private static final int COLLECTION_LIMIT = 200;
+    private static final long MAX_BACKOFF_MS = 300_000;
+
+    private final SalesforceApiService salesforceApiService;
+    private final ObjectMapper objectMapper;
+    private final AppendOnlyLog log;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final int statusRetention;
+
+    private final ConcurrentHashMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Ticket> pending = new ConcurrentLinkedQueue<>();
+    // 已结束的 ticket，按结束顺序淘汰
+    private final ConcurrentLinkedQueue<String> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public TaskQueueService(SalesforceApiService salesforceApiService,
+                            ObjectMapper objectMapper,
+                            @Value("${salesforce.task-queue.dir:${java.io.tmpdir}/salesforce-tasks}") String dir,
+                            @Value("${salesforce.task-queue.batch-size:200}") int batchSize,
+                            @Value("${salesforce.task-queue.max-attempts:5}") int maxAttempts,
+                            @Value("${salesforce.task-queue.retry-backoff-ms:5000}") long retryBackoffMs,
+                            @Value("${salesforce.task-queue.fsync:true}") boolean fsync,
+                            @Value("${salesforce.task-queue.status-retention:100000}") int statusRetention,
+                            @Value("${salesforce.task-queue.compact-bytes:16777216}") long compactBytes) throws IOException {
+        this.salesforceApiService = salesforceApiService;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, Math.min(COLLECTION_LIMIT, batchSize));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.statusRetention = statusRetention;
+        this.log = new AppendOnlyLog(Paths.get(dir).resolve("tasks.log"), objectMapper, fsync, compactBytes);
+        replay();
+    }
+
+    /**
+     * 持久化任务并返回 ticket；写入日志成功后才算接受
+     */
+    public String enqueue(Map<String, Object> fields) throws IOException {
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), TenantContext.current(), fields,
+                System.currentTimeMillis());
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("op", "enqueue");
+        record.put("ticket", ticket.id);
+        record.put("tenant", ticket.tenant);
+        record.put("fields", fields);
+        record.put("ts", ticket.enqueuedAt);
+        // 与日志压缩互斥：压缩时不会漏掉已写入日志但还未登记的任务
+        long position;
+        synchronized (this) {
+            position = log.append(List.of(record));
+            tickets.put(ticket.id, ticket);
+            pending.add(ticket);
+        }
+        log.awaitDurable(position);
+        return ticket.id;
+    }
+
+    /**
+     * ticket 状态，未知或已淘汰返回 null
+     */
+    public Map<String, Object> getStatus(String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        return ticket != null ? ticket.toMap() : null;
+    }
+
+    /**
+     * 取出到期的任务，按租户分批创建
+     */
+    @Scheduled(fixedDelayString = "${salesforce.task-queue.drain-interval-ms:500}")
+    public void drain() {
+        long now = System.currentTimeMillis();
+        List<Ticket> notDue = new ArrayList<>();
+        Map<String, List<Ticket>> batch = new LinkedHashMap<>();
+        int taken = 0;
+        Ticket ticket;
+        while ((ticket = pending.poll()) != null) {
+            if (ticket.nextAttemptAt > now) {
+                notDue.add(ticket);
+                continue;
+            }
+            List<Ticket> group = batch.computeIfAbsent(ticket.tenant, t -> new ArrayList<>());
+            group.add(ticket);
+            if (group.size() >= batchSize) {
+                submitAll(batch);
+                batch.clear();
+            }
+            if (++taken >= batchSize * 10) {
+                // 一轮最多处理十批，其余留给下一轮
+                break;
+            }
+        }
+        submitAll(batch);
+        pending.addAll(notDue);
+        compactIfNeeded();
+    }
+
+    private void submitAll(Map<String, List<Ticket>> batch) {
+        for (Map.Entry<String, List<Ticket>> group : batch.entrySet()) {
+            submit(group.getKey(), group.getValue());
+        }
+    }
+
+    private void submit(String tenant, List<Ticket> group) {
+        List<Map<String, Object>> records = new ArrayList<>(group.size());
+        for (Ticket ticket : group) {
+            records.add(ticket.fields);
+        }
+        batches.incrementAndGet();
+        List<Map<String, Object>> outcomes = new ArrayList<>(group.size());
+        try {
+            JsonNode results = TenantContext.callAs(tenant,
+                    () -> salesforceApiService.createRecords(TASK_OBJECT, records));
+            for (int i = 0; i < group.size(); i++) {
+                JsonNode result = results.path(i);
+                if (result.path("success").asBoolean(false)) {
+                    outcomes.add(complete(group.get(i), CREATED, result.path("id").asText(null), null));
+                } else {
+                    outcomes.add(fail(group.get(i), result.path("errors").toString()));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Task batch of {} for org {} failed: {}", group.size(), tenant, e.getMessage());
+            for (Ticket ticket : group) {
+                outcomes.add(fail(ticket, String.valueOf(e.getMessage())));
+            }
+        }
+        try {
+            log.awaitDurable(log.append(outcomes));
+        } catch (IOException e) {
+            // 结果未落盘：重启后这些任务会再次提交
+            logger.error("Failed to record results of {} tasks", group.size(), e);
+        }
+    }
+
+    private Map<String, Object> fail(Ticket ticket, String error) {
+        ticket.attempts++;
+        if (ticket.attempts >= maxAttempts) {
+            logger.warn("Task {} dead-lettered after {} attempts: {}", ticket.id, ticket.attempts, error);
+            return complete(ticket, DEAD, null, error);
+        }
+        retries.incrementAndGet();
+        ticket.status = RETRYING;
+        ticket.error = error;
+        ticket.nextAttemptAt = System.currentTimeMillis() + backoff(ticket.attempts);
+        pending.add(ticket);
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("op", "retry");
+        record.put("ticket", ticket.id);
+        record.put("attempts", ticket.attempts);
+        record.put("error", error);
+        return record;
+    }
+
+    private Map<String, Object> complete(Ticket ticket, String status, String salesforceId, String error) {
+        ticket.status = status;
+        ticket.salesforceId = salesforceId;
+        ticket.error = error;
+        ticket.fields = null;
+        (CREATED.equals(status) ? created : deadLettered).incrementAndGet();
+        retain(ticket.id);
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("op", CREATED.equals(status) ? "done" : "dead");
+        record.put("ticket", ticket.id);
+        record.put("attempts", ticket.attempts);
+        if (salesforceId != null) {
+            record.put("id", salesforceId);
+        }
+        if (error != null) {
+            record.put("error", error);
+        }
+        return record;
+    }
+
+    private long backoff(int attempts) {
+        return Math.min(MAX_BACKOFF_MS, retryBackoffMs << Math.min(20, attempts - 1));
+    }
+
+    private void retain(String ticketId) {
+        finished.add(ticketId);
+        while (finished.size() > statusRetention) {
+            String oldest = finished.poll();
+            if (oldest != null) {
+                tickets.remove(oldest);
+            }
+        }
+    }
+
+    /**
+     * 获取队列统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("created", created.get());
+        stats.put("deadLettered", deadLettered.get());
+        stats.put("retries", retries.get());
+        stats.put("batches", batches.get());
+        stats.put("batchSize", batchSize);
+        stats.put("trackedTickets", tickets.size());
+        stats.put("logFile", log.getFile().toString());
+        try {
+            stats.put("logBytes", log.size());
+        } catch (IOException e) {
+            stats.put("logBytes", -1);
+        }
+        return stats;
+    }
+
+    /**
+     * 日志需要压缩时只保留未完成任务和保留期内的 ticket 状态
+     */
+    private synchronized void compactIfNeeded() {
+        try {
+            if (!log.needsCompaction()) {
+                return;
+            }
+            List<Map<String, Object>> records = new ArrayList<>();
+            for (Ticket ticket : tickets.values()) {
+                records.addAll(ticket.toLogRecords());
+            }
+            log.rewrite(records);
+            logger.info("Compacted task queue log to {} bytes ({} tickets)", log.size(), tickets.size());
+        } catch (IOException e) {
+            logger.error("Failed to compact task queue log", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replay() throws IOException {
+        Map<String, Ticket> replayed = new LinkedHashMap<>();
+        log.replay(record -> {
+            String id = (String) record.get("ticket");
+            String op = (String) record.get("op");
+            if ("enqueue".equals(op)) {
+                replayed.put(id, new Ticket(id, (String) record.get("tenant"),
+                        (Map<String, Object>) record.get("fields"), ((Number) record.get("ts")).longValue()));
+                return;
+            }
+            Ticket ticket = replayed.get(id);
+            if (ticket == null) {
+                return;
+            }
+            ticket.attempts = ((Number) record.getOrDefault("attempts", ticket.attempts)).intValue();
+            ticket.error = (String) record.get("error");
+            if ("retry".equals(op)) {
+                ticket.status = RETRYING;
+            } else {
+                ticket.status = "done".equals(op) ? CREATED : DEAD;
+                ticket.salesforceId = (String) record.get("id");
+                ticket.fields = null;
+            }
+        });
+        for (Ticket ticket : replayed.values()) {
+            tickets.put(ticket.id, ticket);
+            if (ticket.fields != null) {
+                pending.add(ticket);
+            } else {
+                retain(ticket.id);
+            }
+        }
+        logger.info("Recovered task queue: {} pending, {} finished tickets", pending.size(), finished.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static final class Ticket {
+        private final String id;
+        private final String tenant;
+        private final long enqueuedAt;
+        private volatile Map<String, Object> fields;
+        private volatile String status = QUEUED;
+        private volatile int attempts;
+        private volatile String salesforceId;
+        private volatile String error;
+        private volatile long nextAttemptAt;
+
+        Ticket(String id, String tenant, Map<String, Object> fields, long enqueuedAt) {
+            this.id = id;
+            this.tenant = tenant;
+            this.fields = fields;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("ticket", id);
+            map.put("status", status);
+            map.put("attempts", attempts);
+            map.put("enqueuedAt", enqueuedAt);
+            if (salesforceId != null) {
+                map.put("id", salesforceId);
+            }
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+
+        /**
+         * 压缩日志时重写的记录：enqueue 加上当前状态
+         */
+        List<Map<String, Object>> toLogRecords() {
+            List<Map<String, Object>> records = new ArrayList<>(2);
+            Map<String, Object> enqueue = new LinkedHashMap<>();
+            enqueue.put("op", "enqueue");
+            enqueue.put("ticket", id);
+            enqueue.put("tenant", tenant);
+            enqueue.put("fields", fields);
+            enqueue.put("ts", enqueuedAt);
+            records.add(enqueue);
+            if (!QUEUED.equals(status)) {
+                Map<String, Object> state = new LinkedHashMap<>();
+                state.put("op", RETRYING.equals(status) ? "retry" : CREATED.equals(status) ? "done" : "dead");
+                state.put("ticket", id);
+                state.put("attempts", attempts);
+                if (salesforceId != null) {
+                    state.put("id", salesforceId);
+                }
+                if (error != null) {
+                    state.put("error", error);
+                }
+                records.add(state);
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.salesforce.integration.service;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 当前请求所属的 Salesforce 组织（租户）
+ * 由 TenantFilter 在请求开始时设置；后台任务和未识别租户的请求使用默认租户。
+ * 切换到其他线程执行时需要通过 wrap / callAs 传递。
+ */
+public final class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenantId = CURRENT.get();
+        return tenantId != null ? tenantId : DEFAULT_TENANT;
+    }
+
+    public static boolean isDefault() {
+        return DEFAULT_TENANT.equals(current());
+    }
+
+    public static void set(String tenantId) {
+        CURRENT.set(tenantId);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 以指定租户执行，结束后恢复原来的租户
+     */
+    public static <T> T callAs(String tenantId, Callable<T> task) throws Exception {
+        String previous = CURRENT.get();
+        CURRENT.set(tenantId);
+        try {
+            return task.call();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 捕获当前租户，返回在其他线程中以该租户执行的任务
+     */
+    public static Runnable wrap(Runnable task) {
+        String tenantId = current();
+        return () -> {
+            try {
+                callAs(tenantId, () -> {
+                    task.run();
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package com.salesforce.integration.service;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Salesforce 组织（租户）注册表
+ * 默认租户来自 salesforce.oauth.*，其他租户配置在 salesforce.tenants.&lt;id&gt;.* 下；
+ * 每个租户有独立的凭证、连接池（RestTemplate）和并发上限，一个组织变慢不会占满其他组织的连接。
+ */
+@Component
+public class TenantRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(TenantRegistry.class);
+
+    private final Map<String, Tenant> tenants = new LinkedHashMap<>();
+    private final Map<String, String> tenantByOrigin = new HashMap<>();
+
+    public TenantRegistry(Environment environment,
+                          @Value("${salesforce.http.connect-timeout-ms:5000}") int connectTimeoutMs,
+                          @Value("${salesforce.http.read-timeout-ms:30000}") int readTimeoutMs) {
+        Binder binder = Binder.get(environment);
+        TenantConfig defaults = binder.bind("salesforce.tenant-defaults", TenantConfig.class)
+                .orElseGet(TenantConfig::new);
+
+        // 默认租户沿用原有的单组织配置
+        TenantConfig defaultTenant = defaults.copy();
+        defaultTenant.setClientId(environment.getProperty("salesforce.oauth.client-id", ""));
+        defaultTenant.setClientSecret(environment.getProperty("salesforce.oauth.client-secret", ""));
+        defaultTenant.setTokenUrl(environment.getProperty("salesforce.oauth.token-url", ""));
+        register(TenantContext.DEFAULT_TENANT, defaultTenant, connectTimeoutMs, readTimeoutMs);
+
+        Map<String, TenantConfig> configured = binder
+                .bind("salesforce.tenants", Bindable.mapOf(String.class, TenantConfig.class))
+                .orElse(Collections.emptyMap());
+        configured.forEach((id, config) ->
+                register(id, config.withDefaults(defaults), connectTimeoutMs, readTimeoutMs));
+
+        logger.info("Registered {} Salesforce org(s): {}", tenants.size(), tenants.keySet());
+    }
+
+    private void register(String id, TenantConfig config, int connectTimeoutMs, int readTimeoutMs) {
+        tenants.put(id, new Tenant(id, config, connectTimeoutMs, readTimeoutMs));
+        for (String origin : config.getOrigins()) {
+            String normalized = normalizeOrigin(origin);
+            if (normalized != null) {
+                tenantByOrigin.put(normalized, id);
+            }
+        }
+    }
+
+    /**
+     * 获取租户，不存在返回 null
+     */
+    public Tenant find(String tenantId) {
+        return tenants.get(tenantId);
+    }
+
+    /**
+     * 当前线程所属的租户
+     */
+    public Tenant current() throws Exception {
+        String tenantId = TenantContext.current();
+        Tenant tenant = tenants.get(tenantId);
+        if (tenant == null) {
+            throw new Exception("Unknown Salesforce org: " + tenantId);
+        }
+        return tenant;
+    }
+
+    /**
+     * 根据 Origin / Referer 查找租户，未配置返回 null
+     */
+    public String resolveByOrigin(String originOrUrl) {
+        String normalized = normalizeOrigin(originOrUrl);
+        return normalized != null ? tenantByOrigin.get(normalized) : null;
+    }
+
+    public Collection<Tenant> all() {
+        return tenants.values();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Tenant tenant : tenants.values()) {
+            PoolStats pool = tenant.connectionManager.getTotalStats();
+            Map<String, Object> tenantStats = new HashMap<>();
+            tenantStats.put("configured", tenant.isConfigured());
+            tenantStats.put("origins", tenant.config.getOrigins());
+            tenantStats.put("maxConcurrency", tenant.config.getMaxConcurrency());
+            tenantStats.put("maxConnections", tenant.config.getMaxConnections());
+            tenantStats.put("connectionsLeased", pool.getLeased());
+            tenantStats.put("connectionsAvailable", pool.getAvailable());
+            tenantStats.put("connectionsPending", pool.getPending());
+            stats.put(tenant.id, tenantStats);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Tenant tenant : tenants.values()) {
+            try {
+                tenant.httpClient.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close HTTP client for org {}: {}", tenant.id, e.getMessage());
+            }
+        }
+    }
+
+    static String normalizeOrigin(String originOrUrl) {
+        if (originOrUrl == null || originOrUrl.isBlank() || "null".equals(originOrUrl)) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(originOrUrl.trim());
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return null;
+            }
+            int port = uri.getPort();
+            return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT) +
+                   (port > 0 ? ":" + port : "");
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 一个 Salesforce 组织的运行时资源
+     */
+    public static class Tenant {
+        private final String id;
+        private final TenantConfig config;
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final CloseableHttpClient httpClient;
+        private final RestTemplate restTemplate;
+
+        Tenant(String id, TenantConfig config, int connectTimeoutMs, int readTimeoutMs) {
+            this.id = id;
+            this.config = config;
+            this.connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+            connectionManager.setMaxTotal(config.getMaxConnections());
+            connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
+            this.httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(connectTimeoutMs)
+                            .setSocketTimeout(readTimeoutMs)
+                            // 连接池耗尽时最多等待一个连接超时时间，而不是无限等待
+                            .setConnectionRequestTimeout(connectTimeoutMs)
+                            .build())
+                    .evictIdleConnections(30, TimeUnit.SECONDS)
+                    .disableCookieManagement()
+                    .build();
+            this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+            // 上游耗时（Server-Timing）和 JFR SalesforceCall 事件
+            restTemplate.getInterceptors().add(new SalesforceCallInterceptor(id));
+        }
+
+        public String getId() { return id; }
+        public TenantConfig getConfig() { return config; }
+        public RestTemplate getRestTemplate() { return restTemplate; }
+
+        public boolean isConfigured() {
+            return !config.getClientId().isEmpty() && !config.getClientSecret().isEmpty()
+                    && !config.getTokenUrl().isEmpty();
+        }
+    }
+
+    /**
+     * 租户配置（salesforce.tenants.&lt;id&gt;.* 和 salesforce.tenant-defaults.*）
+     */
+    public static class TenantConfig {
+        private String clientId = "";
+        private String clientSecret = "";
+        private String tokenUrl = "";
+        private List<String> origins = new ArrayList<>();
+        private Integer maxConcurrency;
+        private Integer maxConnections;
+        private Long bulkheadWaitMs;
+
+        TenantConfig copy() {
+            TenantConfig copy = new TenantConfig();
+            copy.origins = new ArrayList<>(origins);
+            copy.maxConcurrency = maxConcurrency;
+            copy.maxConnections = maxConnections;
+            copy.bulkheadWaitMs = bulkheadWaitMs;
+            return copy;
+        }
+
+        TenantConfig withDefaults(TenantConfig defaults) {
+            if (maxConcurrency == null) maxConcurrency = defaults.maxConcurrency;
+            if (maxConnections == null) maxConnections = defaults.maxConnections;
+            if (bulkheadWaitMs == null) bulkheadWaitMs = defaults.bulkheadWaitMs;
+            return this;
+        }
+
+        public String getClientId() { return clientId; }
+        public void setClientId(String clientId) { this.clientId = clientId != null ? clientId : ""; }
+        public String getClientSecret() { return clientSecret; }
+        public void setClientSecret(String clientSecret) { this.clientSecret = clientSecret != null ? clientSecret : ""; }
+        public String getTokenUrl() { return tokenUrl; }
+        public void setTokenUrl(String tokenUrl) { this.tokenUrl = tokenUrl != null ? tokenUrl : ""; }
+        public List<String> getOrigins() { return origins; }
+        public void setOrigins(List<String> origins) { this.origins = origins != null ? origins : new ArrayList<>(); }
+        public int getMaxConcurrency() { return maxConcurrency != null ? maxConcurrency : 20; }
+        public void setMaxConcurrency(Integer maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+        public int getMaxConnections() { return maxConnections != null ? maxConnections : 20; }
+        public void setMaxConnections(Integer maxConnections) { this.maxConnections = maxConnections; }
+        public long getBulkheadWaitMs() { return bulkheadWaitMs != null ? bulkheadWaitMs : 100; }
+        public void setBulkheadWaitMs(Long bulkheadWaitMs) { this.bulkheadWaitMs = bulkheadWaitMs; }
+    }
+}
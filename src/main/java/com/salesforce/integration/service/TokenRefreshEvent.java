@@ -0,0 +1,34 @@
+package com.salesforce.integration.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次令牌刷新（本地缓存没有可用令牌时获取令牌的全过程）
+ */
+@Name("com.salesforce.integration.TokenRefresh")
+@Label("Salesforce Token Refresh")
+@Category({"Salesforce Integration", "OAuth"})
+@Description("Access token obtained from the shared token store or the Salesforce token endpoint")
+@StackTrace(false)
+@Enabled(false)
+public class TokenRefreshEvent extends jdk.jfr.Event {
+
+    @Label("Org")
+    String org;
+
+    @Label("Cause")
+    @Description("initial, expired, rejected or cleared")
+    String cause;
+
+    @Label("Source")
+    @Description("shared-store or salesforce")
+    String source;
+
+    @Label("Success")
+    boolean success;
+}
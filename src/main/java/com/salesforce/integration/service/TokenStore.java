@@ -0,0 +1,36 @@
+package com.salesforce.integration.service;
+
+import java.io.IOException;
+
+/**
+ * 共享令牌存储后端
+ * 按租户保存加密后的令牌，并提供刷新租约：同一时间只有持有租约的节点向 Salesforce 请求新令牌，
+ * 其他节点等待并复用它写入的令牌。存储只接触密文，加解密由 SharedTokenCache 负责。
+ */
+public interface TokenStore {
+
+    /**
+     * 读取租户的加密令牌，不存在返回 null
+     */
+    byte[] load(String tenantId) throws IOException;
+
+    /**
+     * 保存租户的加密令牌
+     */
+    void save(String tenantId, byte[] encrypted) throws IOException;
+
+    /**
+     * 尝试获取刷新租约；租约未被占用、已过期或已由 owner 持有时返回 true
+     */
+    boolean tryAcquireLease(String tenantId, String owner, long ttlMs) throws IOException;
+
+    /**
+     * 释放 owner 持有的租约
+     */
+    void releaseLease(String tenantId, String owner) throws IOException;
+
+    /**
+     * 后端描述，用于日志和诊断
+     */
+    String describe();
+}
@@ -0,0 +1,181 @@
+package com.salesforce.integration.bench;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.salesforce.integration.service.PayloadLog;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * 每请求日志开销基准：旧日志语句（INFO 输出 SOQL、编码后的 URL、更新请求体）同步写文件，
+ * 对比新语句（载荷改为采样 DEBUG + 延迟渲染）经异步有界队列写文件。
+ * 一个“请求”包含一次 /form 读取路径和一次 Account 更新的日志语句；多线程并发执行，统计请求线程上的耗时。
+ * 同时报告实际写入的行数：生产配置（neverBlock）在队列满时会丢弃 INFO，所以异步方式另外以不丢弃（队列满时阻塞）的配置各测一次。
+ * 手动运行：java -cp target/classes:target/test-classes:&lt;依赖&gt; com.salesforce.integration.bench.LoggingOverheadBenchmark [线程数] [每线程请求数]
+ */
+public class LoggingOverheadBenchmark {
+
+    private static final String SOQL = "SELECT Id, Name, Phone, Website, Industry, Type, Description, AnnualRevenue, " +
+            "BillingStreet, BillingCity, BillingState, BillingPostalCode, BillingCountry, OwnerId, CreatedDate, " +
+            "LastModifiedDate FROM Account WHERE Id = '001xx000003DGb2AAG' AND IsDeleted = false LIMIT 1";
+    private static final String URL = "https://example.my.salesforce.com/services/data/v57.0/query?q=" +
+            SOQL.replace(" ", "%20").replace(",", "%2C").replace("'", "%27").replace("=", "%3D");
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int requestsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        Map<String, Object> updates = new LinkedHashMap<>();
+        for (int i = 0; i < 12; i++) {
+            updates.put("Field" + i + "__c", "value-" + i + "-" + "x".repeat(40));
+        }
+        PayloadLog.configure(0.01, 512);
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Path dir = Files.createTempDirectory("logging-bench");
+        System.out.printf("%d threads x %d requests, log files in %s%n", threads, requestsPerThread, dir);
+
+        // 预热
+        run(context, dir, "warmup", Mode.SYNC, threads, requestsPerThread / 4, updates, true);
+        run(context, dir, "warmup", Mode.ASYNC_LOSSLESS, threads, requestsPerThread / 4, updates, false);
+
+        run(context, dir, "before: sync, INFO payloads", Mode.SYNC, threads, requestsPerThread, updates, true);
+        run(context, dir, "sync, sampled DEBUG payloads", Mode.SYNC, threads, requestsPerThread, updates, false);
+        run(context, dir, "async lossless, INFO payloads", Mode.ASYNC_LOSSLESS, threads, requestsPerThread, updates, true);
+        run(context, dir, "after: async lossless, sampled DEBUG", Mode.ASYNC_LOSSLESS, threads, requestsPerThread, updates, false);
+        run(context, dir, "after: async neverBlock, sampled DEBUG", Mode.ASYNC_NEVER_BLOCK, threads, requestsPerThread, updates, false);
+    }
+
+    private enum Mode { SYNC, ASYNC_LOSSLESS, ASYNC_NEVER_BLOCK }
+
+    private static void run(LoggerContext context, Path dir, String name, Mode mode, int threads,
+                            int requestsPerThread, Map<String, Object> updates, boolean oldStatements) throws Exception {
+        Path file = Files.createTempFile(dir, "bench", ".log");
+        Appender<ILoggingEvent> appender = appender(context, file, mode);
+        Logger logger = context.getLogger("bench.SalesforceApiService");
+        logger.detachAndStopAllAppenders();
+        logger.setAdditive(false);
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        long[] busyNanos = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long begin = System.nanoTime();
+                for (int i = 0; i < requestsPerThread; i++) {
+                    String recordId = "001xx00000" + (i % 1000);
+                    if (oldStatements) {
+                        oldRequest(logger, recordId, updates);
+                    } else {
+                        newRequest(logger, recordId, updates);
+                    }
+                }
+                busyNanos[index] = System.nanoTime() - begin;
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        appender.stop();
+
+        long totalNanos = 0;
+        for (long nanos : busyNanos) {
+            totalNanos += nanos;
+        }
+        long requests = (long) threads * requestsPerThread;
+        long lines;
+        try (Stream<String> stream = Files.lines(file)) {
+            lines = stream.count();
+        }
+        if (!"warmup".equals(name)) {
+            System.out.printf("%-42s %8.2f us/request on the request thread, %9d lines written, %6.1f MB%n",
+                    name, totalNanos / 1000.0 / requests, lines, Files.size(file) / 1024.0 / 1024.0);
+        }
+        Files.delete(file);
+    }
+
+    /**
+     * 改动前的日志语句
+     */
+    private static void oldRequest(Logger logger, String recordId, Map<String, Object> updates) {
+        logger.info("Form page request - recordId: {}", recordId);
+        logger.info("Found saved data for recordId: {}", recordId);
+        logger.info("Loaded account data for recordId: {} from {}", recordId, "/tmp/salesforce-form-data");
+        logger.info("Getting account info for: {}", recordId);
+        logger.info("Original SOQL: {}", SOQL);
+        logger.info("Encoded URL: {}", URL);
+        logger.info("Updating account {} with: {}", recordId, updates);
+    }
+
+    /**
+     * 改动后的日志语句
+     */
+    private static void newRequest(Logger logger, String recordId, Map<String, Object> updates) {
+        logger.debug("Form page request - recordId: {}", recordId);
+        logger.debug("Found saved data for recordId: {}", recordId);
+        logger.debug("Loaded account data for recordId: {} (version {})", recordId, 1L);
+        logger.debug("Getting account info for: {}", recordId);
+        if (PayloadLog.sampled(logger)) {
+            logger.debug("SOQL: {}", PayloadLog.truncated(SOQL));
+        }
+        logger.info("Updating account {} ({} fields)", recordId, updates.size());
+        if (PayloadLog.sampled(logger)) {
+            logger.debug("Account {} update payload: {}", recordId, PayloadLog.truncated(updates));
+        }
+    }
+
+    private static Appender<ILoggingEvent> appender(LoggerContext context, Path file, Mode mode) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5p %t --- %-40.40logger{39} : %m%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.toString());
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+        if (mode == Mode.SYNC) {
+            return fileAppender;
+        }
+
+        // ASYNC_NEVER_BLOCK 与 logback-spring.xml 相同；ASYNC_LOSSLESS 队列满时阻塞，不丢弃任何级别
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(context);
+        asyncAppender.setQueueSize(8192);
+        boolean neverBlock = mode == Mode.ASYNC_NEVER_BLOCK;
+        asyncAppender.setNeverBlock(neverBlock);
+        if (!neverBlock) {
+            asyncAppender.setDiscardingThreshold(0);
+        }
+        asyncAppender.setIncludeCallerData(false);
+        asyncAppender.setMaxFlushTime(10000);
+        asyncAppender.addAppender(fileAppender);
+        asyncAppender.start();
+        return asyncAppender;
+    }
+}
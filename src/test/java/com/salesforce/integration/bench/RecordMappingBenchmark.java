@@ -0,0 +1,124 @@
+package com.salesforce.integration.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.model.AccountFormData;
+import com.salesforce.integration.model.AccountInfo;
+import com.salesforce.integration.service.SalesforceJsonCodec;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 记录映射基准：旧路径（readTree + HashMap 拷贝 + 表单 Map 拷贝）
+ * 对比新路径（流式反序列化为 AccountInfo + AccountFormData）。
+ * 手动运行：java -cp target/classes:target/test-classes:&lt;依赖&gt; com.salesforce.integration.bench.RecordMappingBenchmark [记录数]
+ */
+public class RecordMappingBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURE_ROUNDS = 500;
+
+    public static void main(String[] args) throws Exception {
+        int recordCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        byte[] body = buildQueryResponse(recordCount);
+        ObjectMapper mapper = new ObjectMapper();
+        SalesforceJsonCodec codec = new SalesforceJsonCodec(mapper);
+
+        System.out.printf("Query page: %d records, %d bytes%n", recordCount, body.length);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            treeMapping(mapper, body);
+            streamingMapping(codec, body);
+        }
+        report("tree + HashMap", () -> treeMapping(mapper, body), recordCount);
+        report("streaming typed", () -> streamingMapping(codec, body), recordCount);
+    }
+
+    private static int treeMapping(ObjectMapper mapper, byte[] body) throws Exception {
+        JsonNode root = mapper.readTree(body);
+        List<Map<String, Object>> forms = new ArrayList<>();
+        for (JsonNode record : root.get("records")) {
+            Map<String, Object> account = new HashMap<>();
+            account.put("Id", text(record, "Id"));
+            account.put("Name", text(record, "Name"));
+            account.put("Phone", text(record, "Phone"));
+            account.put("Website", text(record, "Website"));
+            account.put("Industry", text(record, "Industry"));
+            account.put("Type", text(record, "Type"));
+            account.put("Description", text(record, "Description"));
+
+            Map<String, Object> form = new HashMap<>();
+            form.put("sfRecordId", account.get("Id"));
+            form.put("accountName", account.getOrDefault("Name", ""));
+            form.put("phone", account.getOrDefault("Phone", ""));
+            form.put("website", account.getOrDefault("Website", ""));
+            form.put("industry", account.getOrDefault("Industry", ""));
+            form.put("description", account.getOrDefault("Description", ""));
+            forms.add(form);
+        }
+        return forms.size();
+    }
+
+    private static int streamingMapping(SalesforceJsonCodec codec, byte[] body) throws Exception {
+        List<AccountInfo> accounts = codec.readQueryPage(new ByteArrayInputStream(body), AccountInfo.class).getRecords();
+        List<AccountFormData> forms = new ArrayList<>(accounts.size());
+        for (AccountInfo account : accounts) {
+            AccountFormData form = AccountFormData.empty();
+            form.setSfRecordId(account.getId());
+            form.setAccountName(account.getName());
+            form.setPhone(account.getPhone());
+            form.setWebsite(account.getWebsite());
+            form.setIndustry(account.getIndustry());
+            form.setDescription(account.getDescription());
+            forms.add(form);
+        }
+        return forms.size();
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static void report(String name, Task task, int recordCount) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            task.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        System.out.printf("%-16s %8.1f us/page %10d bytes/page %6d bytes/record%n", name,
+                elapsed / 1000.0 / MEASURE_ROUNDS, allocated / MEASURE_ROUNDS,
+                allocated / MEASURE_ROUNDS / recordCount);
+    }
+
+    private static byte[] buildQueryResponse(int recordCount) {
+        StringBuilder json = new StringBuilder("{\"totalSize\":").append(recordCount).append(",\"done\":true,\"records\":[");
+        for (int i = 0; i < recordCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"attributes\":{\"type\":\"Account\",\"url\":\"/services/data/v59.0/sobjects/Account/001")
+                .append(i).append("\"},\"Id\":\"001000000000").append(i)
+                .append("\",\"Name\":\"Account ").append(i)
+                .append("\",\"Phone\":\"+1 555 0100\",\"Website\":\"https://example.com\",")
+                .append("\"Industry\":\"Technology\",\"Type\":\"Customer\",")
+                .append("\"Description\":\"Benchmark account record with a moderately long description text\",")
+                .append("\"AnnualRevenue\":1250000.0}");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private interface Task {
+        int run() throws Exception;
+    }
+}
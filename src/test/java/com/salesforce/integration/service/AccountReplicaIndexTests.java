@@ -0,0 +1,54 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.model.AccountInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountReplicaIndexTests {
+
+    @Test
+    void searchesByNamePrefixAndFilters() {
+        AccountReplicaService.ReplicaIndex index = new AccountReplicaService.ReplicaIndex();
+        index.upsert(account("001A", "Acme Corp", "Technology", "Customer"));
+        index.upsert(account("001B", "Acme Labs", "Biotechnology", "Prospect"));
+        index.upsert(account("001C", "Globex", "Technology", "Customer"));
+
+        List<AccountInfo> byPrefix = index.search("acme", null, null, 10);
+        assertEquals(2, byPrefix.size());
+        assertEquals("Acme Corp", byPrefix.get(0).getName());
+
+        List<AccountInfo> filtered = index.search("acme", "technology", null, 10);
+        assertEquals(1, filtered.size());
+        assertEquals("001A", filtered.get(0).getId());
+
+        assertEquals(2, index.search(null, null, "Customer", 10).size());
+    }
+
+    @Test
+    void upsertAndRemoveKeepIndexesConsistent() {
+        AccountReplicaService.ReplicaIndex index = new AccountReplicaService.ReplicaIndex();
+        index.upsert(account("001A", "Acme Corp", "Technology", "Customer"));
+        index.upsert(account("001A", "Initech", "Finance", "Customer"));
+
+        assertTrue(index.search("acme", null, null, 10).isEmpty());
+        assertTrue(index.search(null, "Technology", null, 10).isEmpty());
+        assertEquals(1, index.search("ini", "finance", null, 10).size());
+
+        index.remove("001A");
+        assertEquals(0, index.size());
+        assertTrue(index.search(null, null, "Customer", 10).isEmpty());
+    }
+
+    private static AccountInfo account(String id, String name, String industry, String type) {
+        AccountInfo record = new AccountInfo();
+        record.setId(id);
+        record.setName(name);
+        record.setIndustry(industry);
+        record.setType(type);
+        return record;
+    }
+}
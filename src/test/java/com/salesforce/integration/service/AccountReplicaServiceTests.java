@@ -0,0 +1,61 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.model.AccountInfo;
+import com.salesforce.integration.model.SalesforceRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AccountReplicaServiceTests {
+
+    @Test
+    void deltaChangesDuringAFullLoadSurviveTheSwap() throws Exception {
+        SalesforceApiService api = mock(SalesforceApiService.class);
+        AccountReplicaService replica = new AccountReplicaService(api);
+        ReflectionTestUtils.setField(replica, "enabled", true);
+        ReflectionTestUtils.setField(replica, "maxStalenessMs", 60_000L);
+        ReflectionTestUtils.setField(replica, "maxRecords", 100);
+
+        when(api.queryAllRecords(eq("Account"), isNull(), any())).thenAnswer(invocation -> {
+            Consumer<SalesforceRecord> page = invocation.getArgument(2);
+            page.accept(account("001A", "Acme"));
+            page.accept(account("001B", "Globex"));
+            // 分页进行到一半时增量同步改名了 001A、删除了 001B，后面的分页仍是旧快照
+            assertTrue(replica.isInterestedIn("Account"));
+            replica.onSync("Account", List.of(account("001A", "Acme Renamed")), List.of("001B"));
+            page.accept(account("001C", "Initech"));
+            return 3;
+        });
+        replica.fullLoad();
+
+        assertEquals(List.of("Acme Renamed"), names(replica.search("acme", null, null, 10)));
+        assertTrue(names(replica.search("globex", null, null, 10)).isEmpty());
+        assertEquals(List.of("Initech"), names(replica.search("ini", null, null, 10)));
+        assertEquals("replica", replica.search("acme", null, null, 10).get("source"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> names(Map<String, Object> result) {
+        return ((List<AccountInfo>) result.get("records")).stream().map(AccountInfo::getName)
+                .collect(Collectors.toList());
+    }
+
+    private static AccountInfo account(String id, String name) {
+        AccountInfo record = new AccountInfo();
+        record.setId(id);
+        record.setName(name);
+        return record;
+    }
+}
@@ -0,0 +1,71 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.service.AdaptiveConcurrencyLimiter.Priority;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    @Test
+    void shedsLowPriorityFirstAndUserPagesLast() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(Priority.LOW));
+        }
+        // low 只能使用一半的名额
+        assertFalse(limiter.tryAcquire(Priority.LOW));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire(Priority.NORMAL));
+        }
+        assertFalse(limiter.tryAcquire(Priority.NORMAL));
+        assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+        assertFalse(limiter.tryAcquire(Priority.CRITICAL));
+
+        limiter.release(5, true);
+        assertFalse(limiter.tryAcquire(Priority.NORMAL));
+        assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+    }
+
+    @Test
+    void shrinksWhenSlowOrOverloadedAndGrowsBackWhenBusyAndFast() {
+        AdaptiveConcurrencyLimiter limiter = limiter(50);
+
+        window(limiter, 20, 500, false);
+        assertEquals(40, limiter.getLimit());
+        window(limiter, 20, 10, true);
+        assertEquals(32, limiter.getLimit());
+
+        // 并发很低时即使很快也不增加上限
+        window(limiter, 1, 10, false);
+        assertEquals(32, limiter.getLimit());
+        window(limiter, 20, 10, false);
+        assertEquals(37, limiter.getLimit());
+    }
+
+    /**
+     * 同时占用 concurrency 个名额，再以给定耗时释放，完成一个窗口；upstreamOverload 时窗口内 Salesforce 返回过 503
+     */
+    private static void window(AdaptiveConcurrencyLimiter limiter, int concurrency, long latencyMs,
+                               boolean upstreamOverload) {
+        if (upstreamOverload) {
+            limiter.onUpstreamOverload();
+        }
+        for (int i = 0; i < concurrency; i++) {
+            assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+        }
+        for (int i = 0; i < 20; i++) {
+            if (i >= concurrency) {
+                limiter.tryAcquire(Priority.CRITICAL);
+            }
+            limiter.release(latencyMs, true);
+        }
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, 2, 100, 100, 0.8, 0, 20, 0.9, 0.5);
+    }
+}
@@ -0,0 +1,55 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AppendOnlyLogTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsAppendedAfterATornTailSurviveReplay() throws Exception {
+        Path file = dir.resolve("queue.log");
+        AppendOnlyLog log = new AppendOnlyLog(file, objectMapper, true, 1 << 20);
+        log.awaitDurable(log.append(List.of(Map.of("seq", 1), Map.of("seq", 2))));
+        log.close();
+        // 崩溃时第三条记录只写了一半
+        Files.write(file, "{\"seq\":3,\"da".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        AppendOnlyLog reopened = new AppendOnlyLog(file, objectMapper, true, 1 << 20);
+        reopened.awaitDurable(reopened.append(List.of(Map.of("seq", 4))));
+        reopened.close();
+
+        List<Object> replayed = new ArrayList<>();
+        AppendOnlyLog recovered = new AppendOnlyLog(file, objectMapper, true, 1 << 20);
+        recovered.replay(record -> replayed.add(record.get("seq")));
+        recovered.close();
+        assertEquals(List.of(1, 2, 4), replayed);
+        assertEquals("{\"seq\":1}\n{\"seq\":2}\n{\"seq\":4}\n", Files.readString(file));
+    }
+
+    @Test
+    void aFileWithoutAnyCompleteLineStartsEmpty() throws Exception {
+        Path file = dir.resolve("outbox.log");
+        Files.write(file, "x".repeat(20_000).getBytes(StandardCharsets.UTF_8));
+
+        AppendOnlyLog log = new AppendOnlyLog(file, objectMapper, false, 1 << 20);
+        log.append(List.of(Map.of("seq", 1)));
+        log.close();
+        assertEquals("{\"seq\":1}\n", Files.readString(file));
+    }
+}
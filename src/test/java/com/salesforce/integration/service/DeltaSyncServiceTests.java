@@ -0,0 +1,68 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeltaSyncServiceTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void syncRunsAsDefaultTenantWhateverTheCallersOrg() throws Exception {
+        Path stateFile = dir.resolve("watermarks.json");
+        String watermark = OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(10)
+                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx"));
+        Files.writeString(stateFile, objectMapper.writeValueAsString(Map.of("Account", watermark)));
+
+        List<String> tenants = new ArrayList<>();
+        SalesforceApiService api = mock(SalesforceApiService.class);
+        when(api.getChangedRecords(eq("Account"), anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            tenants.add(TenantContext.current());
+            return "updated".equals(invocation.getArgument(1))
+                    ? objectMapper.readTree("{\"ids\":[\"001A\"]}")
+                    : objectMapper.readTree("{\"deletedRecords\":[]}");
+        });
+        RecordCache cache = mock(RecordCache.class);
+        when(cache.contains("Account", "001A")).thenAnswer(invocation -> !tenants.add(TenantContext.current()));
+        ObjectProvider<RecordChangeListener> listeners = mock(ObjectProvider.class);
+        when(listeners.stream()).thenAnswer(invocation -> Stream.empty());
+        when(listeners.orderedStream()).thenAnswer(invocation -> Stream.empty());
+
+        DeltaSyncService sync = new DeltaSyncService(api, cache, listeners, objectMapper, stateFile.toString());
+        ReflectionTestUtils.setField(sync, "objectTypes", List.of("Account"));
+        ReflectionTestUtils.setField(sync, "batchSize", 200);
+
+        String callerAfterSync = TenantContext.callAs("acme", () -> {
+            Map<String, Object> summary = sync.syncAll();
+            assertEquals(1, ((Map<String, Object>) summary.get("Account")).get("updated"));
+            return TenantContext.current();
+        });
+
+        // updated、deleted 两次查询和缓存检查都在默认租户下执行，调用方的租户随后恢复
+        assertEquals(List.of("default", "default", "default"), tenants);
+        assertEquals("acme", callerAfterSync);
+    }
+}
@@ -0,0 +1,72 @@
+package com.salesforce.integration.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiagnosticProbeRunnerTests {
+
+    private final CountDownLatch never = new CountDownLatch(1);
+    private DiagnosticProbeRunner runner;
+
+    @AfterEach
+    void shutdown() {
+        runner.shutdown();
+    }
+
+    @Test
+    void returnsPartialResultsAtDeadline() {
+        runner = new DiagnosticProbeRunner(5000, 1000, 4, 4);
+        Map<String, DiagnosticProbeRunner.Probe> probes = new LinkedHashMap<>();
+        probes.put("hung", restTemplate -> {
+            never.await();
+            return null;
+        });
+        probes.put("fast", restTemplate -> "ok");
+        probes.put("broken", restTemplate -> {
+            throw new IllegalStateException("boom");
+        });
+
+        long start = System.currentTimeMillis();
+        Map<String, Object> report = runner.run(probes, 200);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < 2000, "waited " + elapsed + " ms");
+        assertEquals(false, report.get("complete"));
+        Map<?, ?> results = (Map<?, ?>) report.get("results");
+        assertEquals(List.of("hung", "fast", "broken"), List.copyOf(results.keySet()));
+        assertEquals(DiagnosticProbeRunner.TIMEOUT, ((Map<?, ?>) results.get("hung")).get("status"));
+        assertEquals("ok", ((Map<?, ?>) results.get("fast")).get("result"));
+        assertEquals("boom", ((Map<?, ?>) results.get("broken")).get("error"));
+    }
+
+    @Test
+    void rejectsProbesBeyondPoolAndRunsUnderCallerTenant() throws Exception {
+        runner = new DiagnosticProbeRunner(5000, 1000, 1, 1);
+        Map<String, DiagnosticProbeRunner.Probe> probes = new LinkedHashMap<>();
+        // 第一个探测占住唯一的线程，第二个排队，第三个被拒绝
+        probes.put("first", restTemplate -> {
+            Thread.sleep(200);
+            return TenantContext.current();
+        });
+        probes.put("second", restTemplate -> TenantContext.current());
+        probes.put("third", restTemplate -> TenantContext.current());
+
+        Map<String, Object> report = TenantContext.callAs("org2", () -> runner.run(probes, 2000));
+
+        Map<?, ?> results = (Map<?, ?>) report.get("results");
+        assertEquals("org2", ((Map<?, ?>) results.get("first")).get("result"));
+        assertEquals("org2", ((Map<?, ?>) results.get("second")).get("result"));
+        assertEquals(DiagnosticProbeRunner.REJECTED, ((Map<?, ?>) results.get("third")).get("status"));
+        assertFalse((Boolean) report.get("complete"));
+        assertEquals(1L, runner.getStats().get("rejected"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.model.AccountInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class EmbedHydrationServiceTests {
+
+    private SalesforceApiService salesforceApiService;
+    private EmbedHydrationService service;
+
+    @BeforeEach
+    void setUp() {
+        salesforceApiService = mock(SalesforceApiService.class);
+        service = new EmbedHydrationService(salesforceApiService, new ObjectMapper(), true, 1000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void inlinesAccountJsonSafeForScriptTag() throws Exception {
+        AccountInfo account = new AccountInfo();
+        account.setId("001xx000003DGb2AAG");
+        account.setName("Acme </script><script>alert(1)</script>");
+        when(salesforceApiService.getAccountById("001xx000003DGb2AAG")).thenReturn(account);
+
+        EmbedHydrationService.HydratedRecord record =
+                service.await(service.startHydration("001xx000003DGb2AAG"));
+
+        assertEquals("Account", record.getObjectType());
+        assertFalse(record.getJson().contains("<"));
+        assertTrue(record.getJson().contains("\\u003c/script>"));
+        assertEquals(account.getName(), new ObjectMapper().readTree(record.getJson()).get("Name").asText());
+    }
+
+    @Test
+    void skipsRecordTypesWithoutApi() {
+        assertNull(service.await(service.startHydration("003xx000004TmiQAAS")));
+        // 前缀匹配但格式不合法的 ID 不发起查询
+        assertNull(service.await(service.startHydration("001xx000003DGb2' OR Name != '")));
+        verifyNoInteractions(salesforceApiService);
+    }
+}
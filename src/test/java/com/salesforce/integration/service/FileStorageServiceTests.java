@@ -0,0 +1,121 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class FileStorageServiceTests {
+
+    @TempDir
+    Path storageDir;
+
+    @Test
+    void replicasSharingAStoreSeeEachOthersSaves() throws Exception {
+        FormDataStore shared = new LocalFileFormDataStore(storageDir.toString());
+        FormSyncOutbox outbox = mock(FormSyncOutbox.class);
+        RecordEventHub events = mock(RecordEventHub.class);
+        FileStorageService nodeA = new FileStorageService(new ObjectMapper(), shared, outbox, events, mock(FormSearchIndex.class), 0, 100);
+        FileStorageService nodeB = new FileStorageService(new ObjectMapper(), shared, outbox, events, mock(FormSearchIndex.class), 0, 100);
+
+        assertTrue(nodeA.saveAccountData("001A", form("Acme")));
+        assertEquals("Acme", nodeB.loadAccountData("001A").get("accountName"));
+        // 版本未变，第二次读取命中本地缓存
+        assertEquals("Acme", nodeB.loadAccountData("001A").get("accountName"));
+        assertEquals(1L, nodeB.getStats().get("hits"));
+
+        String before = nodeB.getDataVersion("001A");
+        assertTrue(nodeA.saveAccountData("001A", form("Acme Renamed")));
+        assertTrue(Long.parseLong(nodeB.getDataVersion("001A")) > Long.parseLong(before));
+        assertEquals("Acme Renamed", nodeB.loadAccountData("001A").get("accountName"));
+
+        assertTrue(nodeA.deleteAccountData("001A"));
+        assertFalse(nodeB.hasSavedData("001A"));
+        assertNull(nodeB.loadAccountData("001A"));
+    }
+
+    @Test
+    void versionsStayMonotonicAcrossRestarts() throws Exception {
+        LocalFileFormDataStore store = new LocalFileFormDataStore(storageDir.toString());
+        long first = store.write("001A", "{}".getBytes());
+        long second = store.write("001A", "{}".getBytes());
+        assertTrue(second > first);
+
+        LocalFileFormDataStore restarted = new LocalFileFormDataStore(storageDir.toString());
+        assertTrue(restarted.write("001B", "{}".getBytes()) > second);
+        assertEquals(2, restarted.list().size());
+        assertEquals(second, restarted.version("001A"));
+    }
+
+    @Test
+    void listsSavedRecordsInPagesByModifiedTime() throws Exception {
+        LocalFileFormDataStore store = new LocalFileFormDataStore(storageDir.toString());
+        long[] versions = new long[5];
+        for (int i = 0; i < 5; i++) {
+            versions[i] = store.write("001" + i, "{}".getBytes());
+        }
+        store.write("0012", "{\"changed\":true}".getBytes());
+
+        FormDataStore.Page first = store.listPage(null, 0, true, 2);
+        assertEquals(List.of("0012", "0014"), keys(first));
+        FormDataStore.Page second = store.listPage(first.getNextCursor(), 0, true, 2);
+        assertEquals(List.of("0013", "0011"), keys(second));
+        FormDataStore.Page last = store.listPage(second.getNextCursor(), 0, true, 2);
+        assertEquals(List.of("0010"), keys(last));
+        assertNull(last.getNextCursor());
+
+        FormDataStore.Page recent = store.listPage(null, versions[3], false, 10);
+        assertEquals(List.of("0013", "0014", "0012"), keys(recent));
+        assertEquals(16, recent.getEntries().get(2).getSize());
+        assertThrows(IllegalArgumentException.class, () -> store.listPage("not a cursor", 0, true, 2));
+    }
+
+    @Test
+    void manifestIsReusedAfterCleanCloseAndRebuiltAfterCrash() throws Exception {
+        LocalFileFormDataStore store = new LocalFileFormDataStore(storageDir.toString());
+        store.write("001A", "{}".getBytes());
+        store.write("001B", "{}".getBytes());
+        store.delete("001A");
+        store.close();
+
+        LocalFileFormDataStore reopened = new LocalFileFormDataStore(storageDir.toString());
+        assertEquals(Map.of("001B", reopened.version("001B")), reopened.list());
+        // 正常重新打开后的第一次写入在替换文件之后、追加清单之前崩溃：清单中没有任何新记录
+        Files.write(storageDir.resolve("account_001E.json"), "{}".getBytes());
+
+        LocalFileFormDataStore afterFirstWriteCrash = new LocalFileFormDataStore(storageDir.toString());
+        assertEquals(Set.of("001B", "001E"), afterFirstWriteCrash.list().keySet());
+        // 不关闭（模拟进程被杀），再在清单之外放入一个文件
+        afterFirstWriteCrash.write("001C", "{}".getBytes());
+        Files.write(storageDir.resolve("account_001D.json"), "{}".getBytes());
+
+        LocalFileFormDataStore recovered = new LocalFileFormDataStore(storageDir.toString());
+        assertEquals(4, recovered.list().size());
+        assertEquals(Set.of("001B", "001C", "001D", "001E"), Set.copyOf(keys(recovered.listPage(null, 0, false, 10))));
+    }
+
+    private static List<String> keys(FormDataStore.Page page) {
+        return page.getEntries().stream().map(FormDataStore.Entry::getKey).collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> form(String accountName) {
+        Map<String, Object> form = new HashMap<>();
+        form.put("sfRecordId", "001A");
+        form.put("accountName", accountName);
+        return form;
+    }
+}
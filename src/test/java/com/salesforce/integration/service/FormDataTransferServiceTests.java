@@ -0,0 +1,119 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class FormDataTransferServiceTests {
+
+    @TempDir
+    Path sourceDir;
+
+    @TempDir
+    Path targetDir;
+
+    @Test
+    void tarExportImportsIntoAnEmptyStore() throws Exception {
+        LocalFileFormDataStore source = new LocalFileFormDataStore(sourceDir.toString());
+        for (int i = 0; i < 30; i++) {
+            // 大小不同的记录，覆盖 tar 块对齐
+            source.write("001" + i, ("{\"accountName\":\"" + "x".repeat(i * 40) + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        Map<String, Object> exported = transfer(source, 16 * 1024).export(FormDataTransferService.TAR, archive);
+        assertEquals(30L, exported.get("records"));
+        assertEquals(0, archive.size() % 512);
+
+        LocalFileFormDataStore target = new LocalFileFormDataStore(targetDir.toString());
+        // 在途额度小于整个归档，导入必须分批等待写入完成
+        Map<String, Object> imported = transfer(target, 2048)
+                .importFrom(FormDataTransferService.TAR, new ByteArrayInputStream(archive.toByteArray()));
+        assertEquals(30L, imported.get("records"));
+        assertEquals(0L, imported.get("failed"));
+        for (int i = 0; i < 30; i++) {
+            assertEquals(new String(source.read("001" + i).getContent(), StandardCharsets.UTF_8),
+                    new String(target.read("001" + i).getContent(), StandardCharsets.UTF_8));
+        }
+        assertEquals(30, target.list().size());
+    }
+
+    @Test
+    void ndjsonImportSkipsInvalidAndOversizedRecords() throws Exception {
+        LocalFileFormDataStore source = new LocalFileFormDataStore(sourceDir.toString());
+        source.write("001A", "{\n  \"accountName\" : \"Acme\"\n}".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transfer(source, 1024).export(FormDataTransferService.NDJSON, out);
+        String exported = out.toString(StandardCharsets.UTF_8);
+        assertEquals(1, exported.split("\n").length);
+
+        String input = exported
+                + "{\"key\":\"001B\",\"data\":[1,2]}\n"
+                + "not json\n"
+                + "{\"key\":\"001C\",\"data\":{\"accountName\":\"" + "y".repeat(2000) + "\"}}\n";
+        LocalFileFormDataStore target = new LocalFileFormDataStore(targetDir.toString());
+        Map<String, Object> imported = transfer(target, 1024)
+                .importFrom(FormDataTransferService.NDJSON, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1L, imported.get("records"));
+        assertEquals(3L, imported.get("failed"));
+        assertEquals(3, ((List<?>) imported.get("errors")).size());
+        assertEquals("Acme", new ObjectMapper().readTree(target.read("001A").getContent()).get("accountName").asText());
+        assertNull(target.read("001B"));
+        assertTrue(target.list().keySet().contains("001A"));
+    }
+
+    @Test
+    void ndjsonImportSkipsAnUnterminatedHugeLineWithoutBufferingIt() throws Exception {
+        byte[] tail = ("\n{\"key\":\"001A\",\"data\":{\"accountName\":\"Acme\"}}\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+        long hugeLine = 64L * 1024 * 1024;
+        // 64 MB 没有换行的内容，之后是一条正常记录；只生成不缓存，导入也不应缓存超过 max-record-bytes
+        InputStream input = new InputStream() {
+            private long position;
+
+            @Override
+            public int read() {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0];
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                if (position >= hugeLine + tail.length) {
+                    return -1;
+                }
+                int count = 0;
+                while (count < length && position < hugeLine + tail.length) {
+                    buffer[offset + count++] = position < hugeLine ? (byte) 'x' : tail[(int) (position - hugeLine)];
+                    position++;
+                }
+                return count;
+            }
+        };
+        LocalFileFormDataStore target = new LocalFileFormDataStore(targetDir.toString());
+        Map<String, Object> imported = transfer(target, 1024).importFrom(FormDataTransferService.NDJSON, input);
+
+        assertEquals(1L, imported.get("records"));
+        assertEquals(1L, imported.get("failed"));
+        assertEquals("Acme", new ObjectMapper().readTree(target.read("001A").getContent()).get("accountName").asText());
+    }
+
+    private static FormDataTransferService transfer(FormDataStore store, int maxRecordBytes) {
+        FileStorageService fileStorage = new FileStorageService(new ObjectMapper(), store,
+                mock(FormSyncOutbox.class), mock(RecordEventHub.class), mock(FormSearchIndex.class), 0, 100);
+        return new FormDataTransferService(store, fileStorage, new ObjectMapper(), 3, 4096, maxRecordBytes);
+    }
+}
@@ -0,0 +1,78 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormSearchIndexTests {
+
+    @TempDir
+    Path storageDir;
+
+    @Test
+    void ranksPrefixMatchesAndFollowsSavesAndDeletes() throws Exception {
+        FormSearchIndex index = new FormSearchIndex(new LocalFileFormDataStore(storageDir.toString()),
+                new ObjectMapper(), true, 2);
+        index.update("001A", 1, Map.of("accountName", "Acme Corporation", "phone", "(555) 010-0100"));
+        index.update("001B", 2, Map.of("accountName", "Globex", "description", "Supplier to Acme since 1999"));
+        index.update("001C", 3, Map.of("accountName", "Initech", "website", "https://acmeish.example.com"));
+
+        // 名称完整匹配 > 网站前缀匹配 > 描述完整匹配
+        assertEquals(List.of("001A", "001C", "001B"), ids(index.search("acme", 10)));
+        assertEquals(List.of("001A"), ids(index.search("ACME corp", 10)));
+        assertEquals(List.of("001A"), ids(index.search("5550100", 10)));
+        assertEquals(List.of("accountName"), index.search("acme", 1).get(0).get("matchedFields"));
+        assertThrows(IllegalArgumentException.class, () -> index.search(" -- ", 10));
+        // 任何一个词没有命中就没有结果
+        assertEquals(List.of(), index.search("acme zzz", 10));
+        assertEquals(List.of("001B"), ids(index.search("acme supplier", 10)));
+
+        index.update("001A", 4, Map.of("accountName", "Umbrella"));
+        // 旧版本的更新被忽略
+        index.update("001A", 1, Map.of("accountName", "Acme Corporation"));
+        assertEquals(List.of("001C", "001B"), ids(index.search("acme", 10)));
+        index.remove("001B");
+        assertEquals(List.of("001C"), ids(index.search("acme", 10)));
+        assertEquals(List.of("001A"), ids(index.search("umb", 10)));
+
+        Map<String, Object> stats = index.getStats();
+        assertEquals(2, stats.get("documents"));
+        // umbrella + initech, https, acmeish, example, com
+        assertEquals(6L, stats.get("postings"));
+        assertEquals(6, stats.get("terms"));
+    }
+
+    @Test
+    void rebuildsFromStoreInParallelWithoutOverwritingNewerSaves() throws Exception {
+        LocalFileFormDataStore store = new LocalFileFormDataStore(storageDir.toString());
+        for (int i = 0; i < 200; i++) {
+            store.write(String.format("001%04d", i), ("{\"accountName\":\"Account " + i + "\",\"phone\":\"555-"
+                    + String.format("%04d", i) + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+        FormSearchIndex index = new FormSearchIndex(store, new ObjectMapper(), true, 4);
+        // 重建前已经收到的更新比存储中的版本新，重建不能覆盖
+        index.update("0010007", Long.MAX_VALUE, Map.of("accountName", "Renamed"));
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertEquals(200, index.getStats().get("documents"));
+        assertEquals(199, index.search("account", 500).size());
+        assertEquals(List.of("0010042"), ids(index.search("account 555-0042", 10)));
+        assertEquals(List.of("0010007"), ids(index.search("renamed", 10)));
+        assertTrue((Long) index.getStats().get("estimatedBytes") > 0);
+    }
+
+    private static List<String> ids(List<Map<String, Object>> results) {
+        return results.stream().map(r -> (String) r.get("recordId")).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,185 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FormSyncOutboxTests {
+
+    private static final String ACCOUNT_ID = "001000000000001AAA";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void coalescesSavesAndPushesLatestFormAsAccountFields() throws Exception {
+        SalesforceApiService api = mock(SalesforceApiService.class);
+        List<List<Map<String, Object>>> pushed = new ArrayList<>();
+        when(api.updateAccounts(any(), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            List<Map<String, Object>> records = invocation.getArgument(0);
+            pushed.add(records);
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Map<String, Object> record : records) {
+                results.add(Map.of("id", record.get("Id"), "success", true));
+            }
+            return results;
+        });
+        FormDataStore store = new LocalFileFormDataStore(dir.resolve("forms").toString());
+        FormSyncOutbox outbox = outbox(store, api);
+        FileStorageService storage = storage(store, outbox);
+
+        storage.saveAccountData(ACCOUNT_ID, form("Acme", "1,200"));
+        storage.saveAccountData(ACCOUNT_ID, form("Acme Renamed", "abc"));
+        storage.saveAccountData("001000000000002AAA", form("Globex", "50"));
+        outbox.publish();
+
+        assertEquals(1, pushed.size());
+        assertEquals(2, pushed.get(0).size());
+        // 只推送最新的表单；空白和非数字的字段不写回
+        assertTrue(pushed.get(0).contains(Map.of("Id", ACCOUNT_ID, "Name", "Acme Renamed", "Phone", "555")));
+        assertEquals(1L, outbox.getStats().get("coalescedSaves"));
+        assertEquals(0, outbox.getStats().get("pending"));
+
+        outbox.publish();
+        assertEquals(1, pushed.size());
+        outbox.close();
+    }
+
+    @Test
+    void recoversUnpublishedSavesAfterRestartAndPausesOnFailedBatch() throws Exception {
+        FormDataStore store = new LocalFileFormDataStore(dir.resolve("forms").toString());
+        SalesforceApiService unavailable = mock(SalesforceApiService.class);
+        when(unavailable.updateAccounts(any(), anyBoolean(), anyBoolean()))
+                .thenReturn(List.of(Map.of("id", ACCOUNT_ID, "success", false, "errors", List.of())));
+        FormSyncOutbox first = outbox(store, unavailable);
+        storage(store, first).saveAccountData(ACCOUNT_ID, form("Acme", "10"));
+        first.publish();
+        assertEquals(1L, first.getStats().get("failedBatches"));
+        assertEquals(1, first.getStats().get("pending"));
+        first.close();
+
+        SalesforceApiService api = mock(SalesforceApiService.class);
+        when(api.updateAccounts(any(), anyBoolean(), anyBoolean()))
+                .thenReturn(List.of(Map.of("id", ACCOUNT_ID, "success", true)));
+        FormSyncOutbox restarted = outbox(store, api);
+        assertEquals(1, restarted.getStats().get("pending"));
+        restarted.publish();
+        assertEquals(0, restarted.getStats().get("pending"));
+        restarted.close();
+
+        // 已发布的保存重启后不再推送
+        SalesforceApiService idle = mock(SalesforceApiService.class);
+        FormSyncOutbox again = outbox(store, idle);
+        again.publish();
+        verify(idle, never()).updateAccounts(any(), anyBoolean(), anyBoolean());
+        again.close();
+    }
+
+    @Test
+    void sustainedOutageDoesNotDeadLetterPendingSaves() throws Exception {
+        FormDataStore store = new LocalFileFormDataStore(dir.resolve("forms").toString());
+        SalesforceApiService api = mock(SalesforceApiService.class);
+        // 503、凭据失效和整批失败结果交替出现，次数远超 max-attempts
+        when(api.updateAccounts(any(), anyBoolean(), anyBoolean()))
+                .thenThrow(new IllegalStateException("503 Service Unavailable"))
+                .thenReturn(List.of(failure(ACCOUNT_ID), failure("001000000000002AAA")))
+                .thenThrow(new IllegalStateException("401 INVALID_SESSION_ID"))
+                .thenReturn(List.of(failure(ACCOUNT_ID), failure("001000000000002AAA")))
+                .thenThrow(new IllegalStateException("503 Service Unavailable"))
+                .thenThrow(new IllegalStateException("503 Service Unavailable"))
+                .thenThrow(new IllegalStateException("503 Service Unavailable"))
+                .thenReturn(List.of(Map.of("id", ACCOUNT_ID, "success", true), failure("001000000000002AAA")))
+                .thenReturn(List.of(Map.of("id", "001000000000002AAA", "success", true)));
+        FormSyncOutbox outbox = outbox(store, api);
+        FileStorageService storage = storage(store, outbox);
+        storage.saveAccountData(ACCOUNT_ID, form("Acme", "10"));
+        storage.saveAccountData("001000000000002AAA", form("Globex", "20"));
+
+        for (int i = 0; i < 7; i++) {
+            outbox.publish();
+        }
+        assertEquals(7L, outbox.getStats().get("failedBatches"));
+        assertEquals(2, outbox.getStats().get("pending"));
+        assertEquals(0L, outbox.getStats().get("deadLettered"));
+
+        // 恢复后第一批只有一条被拒绝，它单独计一次重试，随后发布成功
+        outbox.publish();
+        assertEquals(1L, outbox.getStats().get("published"));
+        assertEquals(1, outbox.getStats().get("pending"));
+        outbox.publish();
+        assertEquals(2L, outbox.getStats().get("published"));
+        assertEquals(0, outbox.getStats().get("pending"));
+        assertEquals(0L, outbox.getStats().get("deadLettered"));
+        outbox.close();
+    }
+
+    @Test
+    void deadLettersRecordsSalesforceKeepsRejecting() throws Exception {
+        FormDataStore store = new LocalFileFormDataStore(dir.resolve("forms").toString());
+        SalesforceApiService api = mock(SalesforceApiService.class);
+        when(api.updateAccounts(any(), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Map<String, Object> record : invocation.<List<Map<String, Object>>>getArgument(0)) {
+                results.add(ACCOUNT_ID.equals(record.get("Id")) ? failure(ACCOUNT_ID)
+                        : Map.of("id", record.get("Id"), "success", true));
+            }
+            return results;
+        });
+        FormSyncOutbox outbox = outbox(store, api);
+        FileStorageService storage = storage(store, outbox);
+
+        for (int i = 0; i < 5; i++) {
+            // 每轮都有另一条记录成功，被拒绝的记录逐条计数
+            storage.saveAccountData("00100000000000" + (3 + i) + "AAA", form("Other " + i, "1"));
+            if (i == 0) {
+                storage.saveAccountData(ACCOUNT_ID, form("Acme", "10"));
+            }
+            outbox.publish();
+        }
+        assertEquals(1L, outbox.getStats().get("deadLettered"));
+        assertEquals(5L, outbox.getStats().get("published"));
+        assertEquals(0, outbox.getStats().get("pending"));
+        assertEquals(0L, outbox.getStats().get("failedBatches"));
+        outbox.close();
+    }
+
+    private FormSyncOutbox outbox(FormDataStore store, SalesforceApiService api) throws Exception {
+        return new FormSyncOutbox(store, api, objectMapper, true, dir.resolve("outbox").toString(),
+                200, 0, 5, 0, 5, false, 1 << 20);
+    }
+
+    private FileStorageService storage(FormDataStore store, FormSyncOutbox outbox) {
+        return new FileStorageService(objectMapper, store, outbox, mock(RecordEventHub.class), mock(FormSearchIndex.class), 0, 100);
+    }
+
+    private static Map<String, Object> failure(String id) {
+        return Map.of("id", id, "success", false, "errors", List.of(Map.of("statusCode", "UNABLE_TO_LOCK_ROW")));
+    }
+
+    private static Map<String, Object> form(String accountName, String annualRevenue) {
+        Map<String, Object> form = new HashMap<>();
+        form.put("sfRecordId", ACCOUNT_ID);
+        form.put("accountName", accountName);
+        form.put("phone", "555");
+        form.put("industry", " ");
+        form.put("annualRevenue", annualRevenue);
+        return form;
+    }
+}
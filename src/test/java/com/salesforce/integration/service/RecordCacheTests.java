@@ -0,0 +1,54 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.model.SalesforceRecord;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class RecordCacheTests {
+
+    @Test
+    void missesDoNotEvictCachedRecords() {
+        RecordCache cache = new RecordCache(mock(RecordEventHub.class), 300, 2, 30, 2);
+        cache.put("Account", "001A", record("001A"));
+        cache.put("Account", "001B", record("001B"));
+
+        for (int i = 0; i < 10; i++) {
+            cache.putMissing("Account", "001dead" + i);
+        }
+
+        assertNotNull(cache.get("Account", "001A"));
+        assertNotNull(cache.get("Account", "001B"));
+        assertEquals(2, cache.getStats().get("negativeSize"));
+        assertTrue(cache.isKnownMissing("Account", "001dead9"));
+        assertFalse(cache.isKnownMissing("Contact", "001dead9"));
+    }
+
+    @Test
+    void createdOrCachedRecordClearsMiss() {
+        RecordCache cache = new RecordCache(mock(RecordEventHub.class), 300, 10, 30, 10);
+        cache.putMissing("Account", "001A");
+        cache.putMissing("Account", "001B");
+        cache.putTypeFailure("Foo__c", "Unsupported object type Foo__c");
+
+        cache.evictMissing("Account", "001A");
+        cache.put("Account", "001B", record("001B"));
+
+        assertFalse(cache.isKnownMissing("Account", "001A"));
+        assertFalse(cache.isKnownMissing("Account", "001B"));
+        assertEquals("Unsupported object type Foo__c", cache.getTypeFailure("Foo__c"));
+        assertNull(cache.getTypeFailure("Account"));
+        assertEquals(1L, cache.getStats().get("negativeHits"));
+    }
+
+    private static SalesforceRecord record(String id) {
+        SalesforceRecord record = new SalesforceRecord();
+        record.setId(id);
+        return record;
+    }
+}
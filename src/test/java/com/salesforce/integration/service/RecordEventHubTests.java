@@ -0,0 +1,148 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordEventHubTests {
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private RecordEventHub hub;
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        hub.shutdown();
+    }
+
+    @Test
+    void stalledSubscriberDoesNotDelayOtherConnections() throws Exception {
+        hub = new RecordEventHub(new ObjectMapper(), 100, 60_000, 100, 8, 2, 200);
+        CountDownLatch stalled = new CountDownLatch(1);
+        SseEmitter slow = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                if (isSubscribed(builder)) {
+                    return;
+                }
+                // 模拟不再读取的客户端：写出一直阻塞
+                stalled.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Broken pipe");
+            }
+        };
+        RecordingEmitter sameRecord = new RecordingEmitter();
+        RecordingEmitter otherRecord = new RecordingEmitter();
+        hub.subscribe("001A", slow);
+        hub.subscribe("001A", sameRecord);
+        hub.subscribe("001B", otherRecord);
+
+        hub.formSaved("001A", Map.of("accountName", "Acme"));
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        // 阻塞的连接只占住一个写线程，其他连接照常按顺序收到每次推送
+        for (int i = 1; i <= 10; i++) {
+            hub.formSaved("001A", Map.of("accountName", "Acme " + i));
+            hub.formSaved("001B", Map.of("accountName", "Globex " + i));
+            assertTrue(sameRecord.await(i + 1));
+            assertTrue(otherRecord.await(i));
+        }
+        assertEquals("Acme 10", sameRecord.lastAccountName());
+        // 慢连接的队列满后被断开
+        assertEquals(1L, hub.getStats().get("slowConsumers"));
+        assertEquals(2, hub.getStats().get("connections"));
+
+        hub.heartbeat();
+        assertTrue(otherRecord.awaitHeartbeat());
+    }
+
+    @Test
+    void heartbeatDisconnectsAWriteBlockedPastTheSendTimeout() throws Exception {
+        hub = new RecordEventHub(new ObjectMapper(), 100, 60_000, 100, 32, 2, 50);
+        CountDownLatch stalled = new CountDownLatch(1);
+        hub.subscribe("001A", new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                if (isSubscribed(builder)) {
+                    return;
+                }
+                stalled.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        hub.formSaved("001A", Map.of("accountName", "Acme"));
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+
+        hub.heartbeat();
+        assertEquals(1L, hub.getStats().get("slowConsumers"));
+        assertEquals(0, hub.getStats().get("connections"));
+    }
+
+    private static String text(SseEmitter.SseEventBuilder builder) {
+        StringBuilder text = new StringBuilder();
+        builder.build().forEach(part -> text.append(part.getData()));
+        return text.toString();
+    }
+
+    /**
+     * 订阅时在请求线程上同步发送的确认事件
+     */
+    private static boolean isSubscribed(SseEmitter.SseEventBuilder builder) {
+        return text(builder).startsWith("event:subscribed");
+    }
+
+    /**
+     * 记录收到的推送和心跳
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch heartbeat = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            String text = text(builder);
+            if (text.startsWith(":heartbeat")) {
+                heartbeat.countDown();
+            } else if (text.contains("\"fields\"")) {
+                events.add(text);
+            }
+        }
+
+        boolean await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return events.size() == count;
+        }
+
+        boolean awaitHeartbeat() throws InterruptedException {
+            return heartbeat.await(5, TimeUnit.SECONDS);
+        }
+
+        String lastAccountName() {
+            String last = events.get(events.size() - 1);
+            int start = last.indexOf("\"accountName\":\"") + 15;
+            return last.substring(start, last.indexOf('"', start));
+        }
+    }
+}
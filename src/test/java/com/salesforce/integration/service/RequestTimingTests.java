@@ -0,0 +1,63 @@
+package com.salesforce.integration.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestTimingTests {
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.clear();
+    }
+
+    @Test
+    void accumulatesPhasesIntoServerTimingHeader() throws Exception {
+        RequestTiming timing = RequestTiming.start();
+        timing.add(RequestTiming.Phase.UPSTREAM, 120_400_000);
+        timing.add(RequestTiming.Phase.STORAGE, 300_000);
+        timing.add(RequestTiming.Phase.STORAGE, 200_000);
+
+        // 异步任务记录到发起请求的记录器上
+        Thread worker = new Thread(RequestTiming.wrap(() ->
+                RequestTiming.current().add(RequestTiming.Phase.RENDER, 3_100_000)));
+        worker.start();
+        worker.join();
+
+        String header = timing.toServerTimingHeader();
+        assertTrue(header.startsWith("storage;dur=0.5;desc=\"2 calls\", upstream;dur=120.4, render;dur=3.1, total;dur="),
+                header);
+        assertFalse(header.contains("token"));
+
+        // 没有记录器的线程不受影响
+        RequestTiming.clear();
+        RequestTiming.record(RequestTiming.Phase.TOKEN, RequestTiming.begin());
+        assertEquals(3, timing.phaseMillis().size());
+    }
+
+    @Test
+    void slowLogKeepsOnlyTheMostRecentSlowRequests() {
+        SlowRequestLog log = new SlowRequestLog(0, 2);
+        for (int i = 1; i <= 3; i++) {
+            RequestTiming timing = new RequestTiming();
+            timing.add(RequestTiming.Phase.UPSTREAM, i * 1_000_000L);
+            log.record("GET", "/form/" + i, 200, "default", timing);
+        }
+
+        List<Map<String, Object>> recent = log.recent(10);
+        assertEquals(2, recent.size());
+        assertTrue(recent.stream().noneMatch(entry -> "/form/1".equals(entry.get("path"))));
+        assertEquals(3L, log.getStats().get("slowRequests"));
+
+        SlowRequestLog strict = new SlowRequestLog(60_000, 2);
+        strict.record("GET", "/form", 200, "default", new RequestTiming());
+        assertTrue(strict.recent(10).isEmpty());
+        assertEquals(1L, strict.getStats().get("requests"));
+    }
+}
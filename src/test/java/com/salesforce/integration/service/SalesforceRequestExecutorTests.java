@@ -0,0 +1,140 @@
+package com.salesforce.integration.service;
+
+import com.salesforce.integration.model.TokenInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SalesforceRequestExecutorTests {
+
+    private SalesforceOAuthClient oauthClient;
+    private TenantRegistry tenantRegistry;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private SalesforceRequestExecutor executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        oauthClient = mock(SalesforceOAuthClient.class);
+        when(oauthClient.getAccessToken()).thenReturn(new TokenInfo());
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("salesforce.tenant-defaults.max-concurrency", "1")
+                .withProperty("salesforce.tenant-defaults.bulkhead-wait-ms", "0")
+                .withProperty("salesforce.tenants.acme.max-concurrency", "1");
+        tenantRegistry = new TenantRegistry(environment, 1000, 1000);
+        concurrencyLimiter = mock(AdaptiveConcurrencyLimiter.class);
+        executor = new SalesforceRequestExecutor(oauthClient, tenantRegistry, concurrencyLimiter, 3, 1, 5, 0.2, false, 50, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        tenantRegistry.shutdown();
+    }
+
+    @Test
+    void retriesIdempotentCallOnServerError() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.executeIdempotent("query", token -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        // Salesforce 的 503 通知入站并发限制
+        verify(concurrencyLimiter, times(2)).onUpstreamOverload();
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(HttpClientErrorException.class, () -> executor.executeIdempotent("query", token -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        }));
+
+        assertEquals(1, calls.get());
+        verify(concurrencyLimiter, never()).onUpstreamOverload();
+    }
+
+    @Test
+    void doesNotRetryNonIdempotentCalls() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(HttpServerErrorException.class, () -> executor.execute("create", token -> {
+            calls.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+        }));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void reauthenticatesOnceOnInvalidSession() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        byte[] body = "[{\"errorCode\":\"INVALID_SESSION_ID\"}]".getBytes(StandardCharsets.UTF_8);
+
+        String result = executor.execute("create", token -> {
+            if (calls.incrementAndGet() == 1) {
+                throw HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "Unauthorized", null, body, null);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        verify(oauthClient, times(1)).invalidateToken(any());
+    }
+
+    @Test
+    void bulkheadRejectsOnlyTheSaturatedOrg() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // 默认组织的唯一许可被一个慢请求占用
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> {
+            try {
+                return executor.execute("slow", token -> {
+                    started.countDown();
+                    release.await();
+                    return "slow";
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Exception rejected = assertThrows(Exception.class, () -> executor.execute("create", token -> "ok"));
+        assertTrue(rejected.getMessage().contains("concurrency limit"));
+
+        // 其他组织不受影响
+        assertEquals("ok", TenantContext.callAs("acme", () -> executor.execute("create", token -> "ok")));
+
+        release.countDown();
+        assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,84 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.integration.model.TokenInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SharedTokenCacheTests {
+
+    private static final String KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+
+    @TempDir
+    Path storeDir;
+
+    @Test
+    void onlyOneNodeRefreshesWhileOthersReuseTheToken() throws Exception {
+        TokenStore store = new LocalFileTokenStore(storeDir.toString());
+        SharedTokenCache nodeA = new SharedTokenCache(store, new ObjectMapper(), true, KEY, 10000, 3000);
+        SharedTokenCache nodeB = new SharedTokenCache(store, new ObjectMapper(), true, KEY, 10000, 3000);
+        AtomicInteger tokenCalls = new AtomicInteger();
+        CountDownLatch inFlight = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<TokenInfo> a = pool.submit(() -> nodeA.getOrRefresh("default", "client", () -> {
+                inFlight.countDown();
+                Thread.sleep(300);
+                return token("tok-" + tokenCalls.incrementAndGet());
+            }));
+            inFlight.await(5, TimeUnit.SECONDS);
+            Future<TokenInfo> b = pool.submit(() -> nodeB.getOrRefresh("default", "client",
+                    () -> token("tok-" + tokenCalls.incrementAndGet())));
+
+            assertEquals("tok-1", a.get(5, TimeUnit.SECONDS).getAccessToken());
+            assertEquals("tok-1", b.get(5, TimeUnit.SECONDS).getAccessToken());
+            assertEquals(1, tokenCalls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 新启动的节点直接复用，不请求令牌
+        SharedTokenCache restarted = new SharedTokenCache(store, new ObjectMapper(), true, KEY, 10000, 3000);
+        assertEquals("tok-1", restarted.getOrRefresh("default", "client", () -> token("unexpected")).getAccessToken());
+    }
+
+    @Test
+    void storesCiphertextAndRefreshesRejectedOrForeignTokens() throws Exception {
+        TokenStore store = new LocalFileTokenStore(storeDir.toString());
+        SharedTokenCache cache = new SharedTokenCache(store, new ObjectMapper(), true, KEY, 10000, 3000);
+        TokenInfo first = cache.getOrRefresh("default", "client", () -> token("secret-token"));
+
+        assertFalse(new String(store.load("default"), StandardCharsets.ISO_8859_1).contains("secret-token"));
+
+        // 换了 client id 或被拒绝的令牌都不再使用
+        assertNotEquals("secret-token",
+                cache.getOrRefresh("default", "other-client", () -> token("other")).getAccessToken());
+        cache.reject("default", cache.getOrRefresh("default", "other-client", () -> token("unused")));
+        assertEquals("renewed", cache.getOrRefresh("default", "other-client", () -> token("renewed")).getAccessToken());
+        assertEquals("secret-token", first.getAccessToken());
+    }
+
+    private static TokenInfo token(String accessToken) {
+        TokenInfo token = new TokenInfo();
+        token.setAccessToken(accessToken);
+        token.setInstanceUrl("https://example.my.salesforce.com");
+        token.setTokenType("Bearer");
+        token.setExpiresIn(3600);
+        token.setIssuedAt(System.currentTimeMillis());
+        return token;
+    }
+}
@@ -0,0 +1,45 @@
+package com.salesforce.integration.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SoqlTemplateTests {
+
+    @Test
+    void bindsIdsIntoPreEncodedQueryWithStableKeys() {
+        SoqlTemplate template = SoqlTemplate.selectById("Id, Name", "Account");
+        SoqlTemplate.Query first = template.bind("001000000000001AAA");
+        SoqlTemplate.Query second = template.bind("001000000000001AAA");
+
+        assertEquals(first, second);
+        assertEquals(first.getEncodedQuery(), second.getEncodedQuery());
+        assertEquals("SELECT%20Id%2C%20Name%20FROM%20Account%20WHERE%20Id%20%3D%20%27001000000000001AAA%27",
+                first.getEncodedQuery());
+        assertEquals("http://sf/services/data/v59.0/query?q=" + first.getEncodedQuery(),
+                first.toUri("http://sf", "v59.0").toString());
+
+        SoqlTemplate.Query batch = SoqlTemplate.selectByIds("Id", "Contact")
+                .bind(List.of("003000000000001", "003000000000002AAA"));
+        assertEquals("SELECT Id FROM Contact WHERE Id IN ('003000000000001','003000000000002AAA')",
+                URLDecoder.decode(batch.getEncodedQuery(), StandardCharsets.UTF_8));
+        assertEquals(SoqlTemplate.literal(batch.toString()), batch);
+    }
+
+    @Test
+    void rejectsParametersThatAreNotRecordIds() {
+        SoqlTemplate template = SoqlTemplate.selectById("Id", "Account");
+
+        assertThrows(IllegalArgumentException.class, () -> template.bind("001' OR Name != '"));
+        assertThrows(IllegalArgumentException.class, () -> template.bind("0010000000000"));
+        assertThrows(IllegalArgumentException.class, () -> template.bind());
+        assertThrows(IllegalArgumentException.class,
+                () -> SoqlTemplate.selectByIds("Id", "Account").bind(List.of("001000000000001", "x")));
+        assertThrows(IllegalArgumentException.class, () -> SoqlTemplate.selectById("Id", "Account WHERE"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.salesforce.integration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskQueueServiceTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path queueDir;
+
+    @Test
+    void createsTasksInBatchesAndDeadLettersRejectedRecords() throws Exception {
+        SalesforceApiService api = mock(SalesforceApiService.class);
+        when(api.createRecords(eq("Task"), any())).thenAnswer(invocation -> {
+            List<Map<String, Object>> records = invocation.getArgument(1);
+            ArrayNode results = objectMapper.createArrayNode();
+            for (Map<String, Object> record : records) {
+                boolean rejected = "bad".equals(record.get("Subject"));
+                results.addObject().put("id", rejected ? null : "00T" + record.get("Subject"))
+                        .put("success", !rejected);
+            }
+            return results;
+        });
+        TaskQueueService queue = queue(api);
+
+        List<String> tickets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tickets.add(queue.enqueue(Map.of("Subject", "t" + i)));
+        }
+        String bad = queue.enqueue(Map.of("Subject", "bad"));
+        queue.drain();
+        // 第二次重试失败后进入死信
+        queue.drain();
+
+        verify(api, times(4)).createRecords(eq("Task"), any());
+        assertEquals("created", queue.getStatus(tickets.get(3)).get("status"));
+        assertEquals("00Tt3", queue.getStatus(tickets.get(3)).get("id"));
+        assertEquals("dead", queue.getStatus(bad).get("status"));
+        assertEquals(2, queue.getStatus(bad).get("attempts"));
+        queue.close();
+    }
+
+    @Test
+    void recoversPendingTasksAndStatusesAfterRestart() throws Exception {
+        SalesforceApiService unavailable = mock(SalesforceApiService.class);
+        when(unavailable.createRecords(eq("Task"), any())).thenThrow(new Exception("org unavailable"));
+        TaskQueueService first = queue(unavailable);
+        String ticket = first.enqueue(Map.of("Subject", "later"));
+        first.drain();
+        assertEquals("retrying", first.getStatus(ticket).get("status"));
+        first.close();
+
+        SalesforceApiService api = mock(SalesforceApiService.class);
+        ArrayNode ok = objectMapper.createArrayNode();
+        ok.addObject().put("id", "00T1").put("success", true);
+        when(api.createRecords(eq("Task"), any())).thenReturn(ok);
+        TaskQueueService restarted = queue(api);
+        assertEquals(1, restarted.getStatus(ticket).get("attempts"));
+        restarted.drain();
+        assertEquals("created", restarted.getStatus(ticket).get("status"));
+        restarted.close();
+
+        // 已完成的任务重启后不再提交
+        SalesforceApiService idle = mock(SalesforceApiService.class);
+        TaskQueueService again = queue(idle);
+        again.drain();
+        verify(idle, never()).createRecords(any(), any());
+        assertEquals("00T1", again.getStatus(ticket).get("id"));
+        again.close();
+    }
+
+    private TaskQueueService queue(SalesforceApiService api) throws Exception {
+        return new TaskQueueService(api, objectMapper, queueDir.toString(), 2, 2, 0, false, 1000, 1 << 20);
+    }
+}